@@ -0,0 +1,131 @@
+package cipm.consistency.commitintegration.diff.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.containers.CompilationUnit;
+
+/**
+ * The scope for an EMF Compare comparison which excludes unchanged compilation units. An unchanged compilation unit is
+ * not matched unless a changed compilation unit references it. In this case, it is matched so that the references
+ * can be resolved, but it is not compared. All other model elements, e. g., packages and modules, are compared as
+ * usual.
+ *
+ * @author Martin Armbruster
+ */
+public class CompilationUnitFilteringComparisonScope extends ResourceListFilteringComparisonScope {
+	private Set<String> unchangedCompilationUnits;
+	private Set<String> referencedCompilationUnits = new HashSet<>();
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param left                      the left or new model.
+	 * @param right                     the right or old model.
+	 * @param newResources              a list of new model Resources. Can be null.
+	 * @param currentResources          a list of old model Resources. Can be null.
+	 * @param unchangedCompilationUnits names of the compilation units which are equal in both models.
+	 */
+	public CompilationUnitFilteringComparisonScope(Notifier left, Notifier right, List<Resource> newResources,
+			List<Resource> currentResources, Set<String> unchangedCompilationUnits) {
+		super(left, right, newResources, currentResources);
+		this.unchangedCompilationUnits = unchangedCompilationUnits;
+		collectReferencedCompilationUnits(left, newResources);
+		collectReferencedCompilationUnits(right, currentResources);
+	}
+
+	private void collectReferencedCompilationUnits(Notifier model, List<Resource> resources) {
+		List<Resource> toVisit = new ArrayList<>();
+		if (model instanceof Resource) {
+			toVisit.add((Resource) model);
+		} else if (model instanceof ResourceSet) {
+			toVisit.addAll(resources != null ? resources : ((ResourceSet) model).getResources());
+		}
+		for (Resource resource : toVisit) {
+			for (EObject root : resource.getContents()) {
+				if (root instanceof CompilationUnit && !isUnchanged(root)) {
+					collectReferencedCompilationUnits(root);
+				}
+			}
+		}
+	}
+
+	private void collectReferencedCompilationUnits(EObject changedRoot) {
+		TreeIterator<EObject> contents = changedRoot.eAllContents();
+		while (contents.hasNext()) {
+			for (EObject target : contents.next().eCrossReferences()) {
+				EObject targetRoot = EcoreUtil.getRootContainer(target);
+				if (targetRoot != changedRoot && isUnchanged(targetRoot)) {
+					referencedCompilationUnits.add(((CompilationUnit) targetRoot).getName());
+				}
+			}
+		}
+	}
+
+	private boolean isUnchanged(EObject obj) {
+		return obj instanceof CompilationUnit
+				&& unchangedCompilationUnits.contains(((CompilationUnit) obj).getName());
+	}
+
+	private boolean isExcluded(EObject obj) {
+		return isUnchanged(obj) && !referencedCompilationUnits.contains(((CompilationUnit) obj).getName());
+	}
+
+	@Override
+	public Iterator<? extends EObject> getCoveredEObjects(Resource resource) {
+		return filter(EcoreUtil.getAllProperContents(resource, false));
+	}
+
+	@Override
+	public Iterator<? extends EObject> getChildren(EObject eObject) {
+		if (isExcluded(eObject)) {
+			return Collections.emptyIterator();
+		}
+		return filter(EcoreUtil.getAllProperContents(eObject, false));
+	}
+
+	private Iterator<EObject> filter(TreeIterator<?> contents) {
+		// In contrast to the content filter, the excluded compilation units are pruned with all of their contents.
+		List<EObject> result = new ArrayList<>();
+		while (contents.hasNext()) {
+			Object next = contents.next();
+			if (!(next instanceof EObject)) {
+				continue;
+			}
+			EObject obj = (EObject) next;
+			if (isExcluded(obj)) {
+				contents.prune();
+			} else if (getEObjectContentFilter().apply(obj)) {
+				result.add(obj);
+			}
+		}
+		return result.iterator();
+	}
+
+	/**
+	 * Checks if the differences for a match are not computed because it belongs to an unchanged compilation unit in
+	 * both models.
+	 *
+	 * @param match the match.
+	 * @return true if the match is considered to have no differences.
+	 */
+	public boolean isUnchanged(Match match) {
+		return match.getLeft() != null && match.getRight() != null
+				&& isUnchanged(EcoreUtil.getRootContainer(match.getLeft()));
+	}
+
+	public Set<String> getReferencedCompilationUnits() {
+		return referencedCompilationUnits;
+	}
+}
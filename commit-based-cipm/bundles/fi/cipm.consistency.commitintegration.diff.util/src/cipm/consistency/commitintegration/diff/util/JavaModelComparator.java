@@ -1,8 +1,10 @@
 package cipm.consistency.commitintegration.diff.util;
 
 import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.Monitor;
 import org.eclipse.emf.compare.Comparison;
 import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.compare.diff.DiffBuilder;
 import org.eclipse.emf.compare.diff.DefaultDiffEngine;
@@ -11,6 +13,7 @@ import org.eclipse.emf.compare.postprocessor.BasicPostProcessorDescriptorImpl;
 import org.eclipse.emf.compare.postprocessor.PostProcessorDescriptorRegistryImpl;
 import java.util.regex.Pattern;
 import java.util.List;
+import java.util.Set;
 import org.emftext.language.java.JavaPackage;
 import org.splevo.jamopp.diffing.scope.PackageIgnoreChecker;
 import org.splevo.jamopp.diffing.diff.JaMoPPFeatureFilter;
@@ -43,8 +46,36 @@ public final class JavaModelComparator {
 	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
 			List<Resource> newResources, List<Resource> currentResources,
 			IPostProcessor postProcessor) {
+		return compareJavaModels(newState, currentState, newResources, currentResources, postProcessor, null);
+	}
+	
+	/**
+	 * Compares Java models using EMF Compare. Compilation units which are known to be unchanged are excluded from
+	 * the comparison.
+	 * 
+	 * @param newState contains the new state.
+	 * @param currentState contains the current or old state compared to the new state.
+	 * @param newResources a list of Resources which represent the new state of Java models.
+	 *                     If the newState is a ResourceSet, this list is used to filter the Resources in the newState.
+	 * @param currentResources a list of Resources which represent the current or old state of Java models.
+	 *                         If the currentState is a ResourceSet, this list is used to filter the Resources in the
+	 *                         currentState.
+	 * @param postProcessor an optional post processor for the comparison process.
+	 * @param unchangedCompilationUnits names of the compilation units which are equal in both states. If it is null,
+	 *                                  all compilation units are compared.
+	 * @return the comparison result.
+	 */
+	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
+			List<Resource> newResources, List<Resource> currentResources,
+			IPostProcessor postProcessor, Set<String> unchangedCompilationUnits) {
 		
-		var scope = new ResourceListFilteringComparisonScope(newState, currentState, newResources, currentResources);
+		ResourceListFilteringComparisonScope scope;
+		if (unchangedCompilationUnits != null) {
+			scope = new CompilationUnitFilteringComparisonScope(newState, currentState, newResources,
+					currentResources, unchangedCompilationUnits);
+		} else {
+			scope = new ResourceListFilteringComparisonScope(newState, currentState, newResources, currentResources);
+		}
 		scope.getNsURIs().add(JavaPackage.eNS_URI);
 		
 		var jamoppFeatureFilter = new JaMoPPFeatureFilter(new PackageIgnoreChecker(List.of()));
@@ -54,6 +85,16 @@ public final class JavaModelComparator {
 			protected FeatureFilter createFeatureFilter() {
 				return jamoppFeatureFilter;
 			}
+			
+			@Override
+			protected void checkForDifferences(Match match, Monitor monitor) {
+				// Unchanged compilation units are only matched to resolve references to them.
+				if (scope instanceof CompilationUnitFilteringComparisonScope
+						&& ((CompilationUnitFilteringComparisonScope) scope).isUnchanged(match)) {
+					return;
+				}
+				super.checkForDifferences(match, monitor);
+			}
 		};
 		
 		var engineRegistry = HierarchicalMatchEngineFactoryGenerator
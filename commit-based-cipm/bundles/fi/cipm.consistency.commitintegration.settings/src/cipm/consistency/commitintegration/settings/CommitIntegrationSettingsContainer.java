@@ -42,4 +42,24 @@ public final class CommitIntegrationSettingsContainer {
 	public boolean getPropertyAsBoolean(String key) {
 		return Boolean.parseBoolean(getProperty(key));
 	}
+	
+	/**
+	 * Returns a property as an integer.
+	 * 
+	 * @param key          the key of the property.
+	 * @param defaultValue the value which is returned if the property is not set or
+	 *                     is not an integer.
+	 * @return the value of the property.
+	 */
+	public int getPropertyAsInteger(String key, int defaultValue) {
+		String value = getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
 }
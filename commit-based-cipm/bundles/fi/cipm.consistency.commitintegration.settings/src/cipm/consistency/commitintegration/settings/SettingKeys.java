@@ -29,10 +29,182 @@ public final class SettingKeys {
 	 * parsing.
 	 */
 	public static final String JAVA_PARSER_EXCLUSION_PATTERNS = KEY_BASE + "parser.excludes";
+	/**
+	 * A setting which controls if only the Java files changed by a commit are
+	 * re-parsed while the models of all other files are reused from the previous
+	 * commit.
+	 */
+	public static final String PERFORM_INCREMENTAL_PARSING = KEY_BASE + "parser.incremental";
+	/**
+	 * A setting which controls if the stubs of the trivial recovery are kept for
+	 * the next commit so that only the proxies in re-parsed Java files are
+	 * recovered. It requires the incremental parsing.
+	 */
+	public static final String PERFORM_INCREMENTAL_RECOVERY = KEY_BASE + "recovery.incremental";
+	/**
+	 * A setting which controls if the state-based propagation of the Java model
+	 * only compares the compilation units of changed Java files. It requires the
+	 * incremental parsing.
+	 */
+	public static final String PERFORM_SCOPED_STATE_PROPAGATION = KEY_BASE + "propagation.scoped";
+	/**
+	 * A setting which controls if the parsed models of single Java files are
+	 * cached on the disk and reused for identical file contents.
+	 */
+	public static final String USE_PARSED_MODEL_CACHE = KEY_BASE + "parser.cache";
+	/**
+	 * The maximum size of the cache for parsed models in megabytes. If the cache
+	 * grows beyond it, the least recently used models are removed.
+	 */
+	public static final String PARSED_MODEL_CACHE_MAX_SIZE = KEY_BASE + "parser.cache.maxsize";
+	/**
+	 * Path to a directory in which the models of class files in libraries are
+	 * cached by the SHA-256 checksum of their jar files. The directory can be
+	 * shared by multiple repositories and runs.
+	 */
+	public static final String LIBRARY_MODEL_CACHE_PATH = KEY_BASE + "parser.librarycache";
+	/**
+	 * A setting which controls if the library model cache is only read, e. g.,
+	 * because it is shared and filled by another run.
+	 */
+	public static final String LIBRARY_MODEL_CACHE_READ_ONLY = KEY_BASE + "parser.librarycache.readonly";
+	/**
+	 * The number of threads which parse the Java files in parallel. Values lower
+	 * than two disable the parallel parsing. It is only applied if the parallel
+	 * parsing is enabled.
+	 */
+	public static final String PARSING_PARALLELISM = KEY_BASE + "parser.parallelism";
+	/**
+	 * A setting which enables the parallel parsing. JaMoPP does not guarantee that
+	 * its parser can be used by multiple threads with separate ResourceSets. Hence,
+	 * the parallel parsing is disabled by default and should only be enabled for
+	 * a JaMoPP version whose parallel results equal the sequential ones.
+	 */
+	public static final String ENABLE_PARALLEL_PARSING = KEY_BASE + "parser.parallel";
+	/**
+	 * A setting which controls if only the files changed between two commits are
+	 * updated in the working tree instead of a complete clean and checkout.
+	 */
+	public static final String PERFORM_TARGETED_CHECKOUT = KEY_BASE + "checkout.targeted";
+	/**
+	 * A list of regular expressions for paths of untracked files, e. g., build
+	 * outputs, which are kept during a targeted checkout.
+	 */
+	public static final String KEPT_BUILD_OUTPUT_PATTERNS = KEY_BASE + "checkout.keep";
+	/**
+	 * Path to a file with rules which classify the detected modules before a
+	 * developer is asked.
+	 */
+	public static final String MODULE_CLASSIFICATION_RULES = KEY_BASE + "modules.rules";
+	/**
+	 * A setting which controls if the detected modules are classified without
+	 * any interaction. Modules without a matching rule are classified by the
+	 * defaults of the rules.
+	 */
+	public static final String HEADLESS_MODULE_CLASSIFICATION = KEY_BASE + "modules.headless";
+	/**
+	 * The number of threads which detect the modules of the Java files in
+	 * parallel. Values lower than two disable the parallel detection.
+	 */
+	public static final String MODULE_DETECTION_PARALLELISM = KEY_BASE + "modules.parallelism";
+	/**
+	 * A setting which controls if the modules detected for the Java files of
+	 * the previous commit are reused for the unchanged Java files.
+	 */
+	public static final String INCREMENTAL_MODULE_DETECTION = KEY_BASE + "modules.incremental";
+	/**
+	 * A setting which controls if the Java model is split into one Resource per
+	 * detected module so that only the Resources with changed files are
+	 * propagated.
+	 */
+	public static final String PERFORM_MODEL_SHARDING = KEY_BASE + "model.sharding";
+	/**
+	 * A setting which controls if the next commit is prepared while the changes
+	 * of the current commit are propagated. It is ignored if the incremental
+	 * parsing or targeted checkout is enabled.
+	 */
+	public static final String PERFORM_PIPELINED_PROPAGATION = KEY_BASE + "pipeline";
+	/**
+	 * The number of prepared commits which may wait for their propagation.
+	 */
+	public static final String PIPELINE_CAPACITY = KEY_BASE + "pipeline.capacity";
+	/**
+	 * A setting which controls if fetched commits are grouped so that the changes
+	 * of consecutive commits are propagated in one step.
+	 */
+	public static final String PERFORM_COMMIT_COALESCING = KEY_BASE + "coalescing";
+	/**
+	 * The maximum number of commits in one propagation step.
+	 */
+	public static final String COALESCING_MAX_COMMITS = KEY_BASE + "coalescing.commits";
+	/**
+	 * The maximum number of changed Java files in one propagation step.
+	 */
+	public static final String COALESCING_MAX_CHANGED_FILES = KEY_BASE + "coalescing.files";
+	/**
+	 * The maximum number of added and removed lines in Java files in one
+	 * propagation step.
+	 */
+	public static final String COALESCING_MAX_CHANGED_LINES = KEY_BASE + "coalescing.lines";
+	/**
+	 * A setting which controls if a propagation step ends at every tagged commit.
+	 */
+	public static final String COALESCING_CUT_AT_TAGS = KEY_BASE + "coalescing.tags";
+	/**
+	 * A setting which controls if the counting of added and removed lines for the
+	 * change statistic is skipped.
+	 */
+	public static final String SKIP_CHANGE_STATISTICS = KEY_BASE + "statistics.skip";
+	/**
+	 * A list of models which are stored in EMF's binary resource encoding instead
+	 * of XMI. Possible values are java, repository, system, allocation,
+	 * usagemodel, resourceenvironment, and im.
+	 */
+	public static final String BINARY_RESOURCE_MODELS = KEY_BASE + "storage.binary";
+	/**
+	 * A setting which controls if the instrumentation model and PCM repository
+	 * are saved at most once per commit on a background thread instead of
+	 * immediately after every modification.
+	 */
+	public static final String PERFORM_DEFERRED_SAVING = KEY_BASE + "storage.deferred";
+	/**
+	 * Path to a snapshot file with the complete state of the V-SUM. If the V-SUM
+	 * does not exist, it is restored from the snapshot instead of being
+	 * initialized. Without the snapshot file, it is created after the
+	 * initialization.
+	 */
+	public static final String VSUM_SNAPSHOT_PATH = KEY_BASE + "vsum.snapshot";
+	/**
+	 * A setting which controls if the snapshot of the V-SUM is updated with the
+	 * current state at the shutdown.
+	 */
+	public static final String UPDATE_VSUM_SNAPSHOT = KEY_BASE + "vsum.snapshot.update";
+	/**
+	 * Path to a directory in which a snapshot of the V-SUM is stored after every
+	 * successfully propagated commit. Unchanged files are shared between the
+	 * snapshots. If the propagation of a commit fails, the snapshot of the
+	 * previous commit is restored.
+	 */
+	public static final String VSUM_SNAPSHOT_STORE_PATH = KEY_BASE + "vsum.snapshots";
 	/**
 	 * Path to a script for the preprocessing of a commit.
 	 */
 	public static final String PATH_TO_PREPROCESSING_SCRIPT = KEY_BASE + "path.preprocess";
+	/**
+	 * A list of glob patterns for the input files of the preprocessing script, e.
+	 * g., build files. If the inputs and outputs are set, the outputs are cached
+	 * and restored as long as the inputs do not change.
+	 */
+	public static final String PREPROCESSING_CACHE_INPUTS = KEY_BASE + "preprocess.inputs";
+	/**
+	 * A list of glob patterns for the output files of the preprocessing script.
+	 */
+	public static final String PREPROCESSING_CACHE_OUTPUTS = KEY_BASE + "preprocess.outputs";
+	/**
+	 * The maximum size of the cache for the preprocessing outputs in megabytes.
+	 * If the cache grows beyond it, the least recently used outputs are removed.
+	 */
+	public static final String PREPROCESSING_CACHE_MAX_SIZE = KEY_BASE + "preprocess.cache.maxsize";
 	/**
 	 * Path to a script for the compilation of the instrumented code.
 	 */
@@ -1,5 +1,7 @@
 package cipm.consistency.domains.java;
 
+import java.util.Set;
+
 import cipm.consistency.domains.java.propagation.JavaStateBasedChangeResolutionStrategy;
 import tools.vitruv.domains.java.JavaDomain;
 import tools.vitruv.framework.domains.StateBasedChangeResolutionStrategy;
@@ -10,7 +12,7 @@ import tools.vitruv.framework.domains.StateBasedChangeResolutionStrategy;
  * @author Martin Armbruster
  */
 public class AdjustedJavaDomain extends JavaDomain {
-	private StateBasedChangeResolutionStrategy internalStrategy =
+	private JavaStateBasedChangeResolutionStrategy internalStrategy =
 			new JavaStateBasedChangeResolutionStrategy();
 	
 	public AdjustedJavaDomain() {
@@ -21,4 +23,14 @@ public class AdjustedJavaDomain extends JavaDomain {
 	public StateBasedChangeResolutionStrategy getStateChangePropagationStrategy() {
 		return internalStrategy;
 	}
+	
+	/**
+	 * Sets the names of the compilation units which are excluded from the following state-based propagations
+	 * because they are unchanged.
+	 * 
+	 * @param unchangedCompilationUnits the names or null if all compilation units are compared.
+	 */
+	public void setUnchangedCompilationUnits(Set<String> unchangedCompilationUnits) {
+		internalStrategy.setUnchangedCompilationUnits(unchangedCompilationUnits);
+	}
 }
@@ -17,6 +17,7 @@ import java.util.List
 import java.util.ArrayList
 import org.eclipse.emf.ecore.EObject
 import java.util.Collection
+import java.util.Set
 import org.apache.log4j.Logger
 import cipm.consistency.commitintegration.diff.util.JavaModelComparator
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer
@@ -32,6 +33,15 @@ import cipm.consistency.commitintegration.diff.util.JavaChangedMethodDetectorDif
  */
 class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResolutionStrategy {
 	static final Logger logger = Logger.getLogger("ci." + JavaStateBasedChangeResolutionStrategy.simpleName)
+	Set<String> unchangedCompilationUnits
+	
+	/**
+	 * Sets the names of the compilation units which are equal in the new and old state. They are excluded from the
+	 * comparison between two states. If it is null, all compilation units are compared.
+	 */
+	def setUnchangedCompilationUnits(Set<String> unchangedCompilationUnits) {
+		this.unchangedCompilationUnits = unchangedCompilationUnits
+	}
 	
 	private def checkNoProxies(Resource resource, String stateNotice) {
 		val proxies = resource.referencedProxies
@@ -49,7 +59,7 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 			if (oldState.URI != newState.URI) {
 				currentStateCopy.URI = newState.URI
 			}
-			compareStatesAndReplayChanges(newState, currentStateCopy, null, null)
+			compareStatesAndReplayChanges(newState, currentStateCopy, null, null, unchangedCompilationUnits)
 		])
 	}
 
@@ -154,9 +164,18 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 	 */
 	private def compareStatesAndReplayChanges(Notifier newState, Notifier currentState,
 			List<Resource> newResources, List<Resource> currentResources) {
+		compareStatesAndReplayChanges(newState, currentState, newResources, currentResources, null)
+	}
+	
+	/**
+	 * Compares states using EMFCompare without the unchanged compilation units and replays the changes to the
+	 * current state.
+	 */
+	private def compareStatesAndReplayChanges(Notifier newState, Notifier currentState,
+			List<Resource> newResources, List<Resource> currentResources, Set<String> unchangedCompilationUnits) {
 		val postProcessor = new JavaChangedMethodDetectorDiffPostProcessor()
 		val changes = JavaModelComparator.compareJavaModels(newState, currentState,
-				newResources, currentResources, postProcessor).differences
+				newResources, currentResources, postProcessor, unchangedCompilationUnits).differences
 		// Replay the EMF compare differences.
 		val mergerRegistry = IMerger.RegistryImpl.createStandaloneInstance()
 		val merger = new BatchMerger(mergerRegistry)
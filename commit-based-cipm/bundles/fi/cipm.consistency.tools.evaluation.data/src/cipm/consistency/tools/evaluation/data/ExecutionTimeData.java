@@ -1,14 +1,77 @@
 package cipm.consistency.tools.evaluation.data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * A data structure for execution times.
+ * A data structure for execution times. Besides the coarse times in milliseconds, it contains a span with a duration
+ * in nanoseconds for every executed stage.
  * 
  * @author Martin Armbruster
  */
 public class ExecutionTimeData {
+	public static final String STAGE_TREE_DIFF = "tree-diff";
+	public static final String STAGE_CLEAN = "clean";
+	public static final String STAGE_CHECKOUT = "checkout";
+	public static final String STAGE_PREPROCESS = "preprocess";
+	public static final String STAGE_PARSE = "parse";
+	public static final String STAGE_POST_PARSE_TRAVERSAL = "post-parse-traversal";
+	public static final String STAGE_TRIVIAL_RECOVERY = "trivial-recovery";
+	public static final String STAGE_MODULE_DETECTION = "module-detection";
+	public static final String STAGE_MODEL_MERGE = "model-merge";
+	public static final String STAGE_PROPAGATION = "propagation";
+	public static final String STAGE_EXTERNAL_CALL_FILLING = "external-call-filling";
+	public static final String STAGE_INSTRUMENTATION = "instrumentation";
+	public static final String STAGE_MODEL_PRINTING = "model-printing";
+	public static final String STAGE_COMPILATION = "compilation";
+	public static final String STAGE_DEPLOYMENT = "deployment";
+	public static final String STAGE_SNAPSHOT = "snapshot";
+	public static final String COUNTER_FILES = "files";
+	public static final String COUNTER_EOBJECTS = "eobjects";
+	public static final String COUNTER_CHANGES = "changes";
+	public static final String COUNTER_SHARDS = "shards";
 	private long changePropagationTime;
 	private long instrumentationTime;
 	private long overallTime;
+	private List<StageSpan> stages = new ArrayList<>();
+	
+	/**
+	 * Starts a new span for a stage.
+	 * 
+	 * @param stage name of the stage.
+	 * @return the started span.
+	 */
+	public StageSpan startStage(String stage) {
+		StageSpan span = new StageSpan(stage);
+		synchronized (stages) {
+			stages.add(span);
+		}
+		return span;
+	}
+	
+	/**
+	 * Starts a new span for a stage in the global container.
+	 * 
+	 * @param stage name of the stage.
+	 * @return the started span.
+	 */
+	public static StageSpan startGlobalStage(String stage) {
+		return EvaluationDataContainer.getGlobalContainer().getExecutionTimes().startStage(stage);
+	}
+	
+	/**
+	 * Returns the spans of the stages. Stages can be started concurrently, e. g., by the preprocessing.
+	 * 
+	 * @return a copy of the spans or null if the data were read without spans.
+	 */
+	public List<StageSpan> getStages() {
+		if (stages == null) {
+			return null;
+		}
+		synchronized (stages) {
+			return new ArrayList<>(stages);
+		}
+	}
 	
 	public long getChangePropagationTime() {
 		return changePropagationTime;
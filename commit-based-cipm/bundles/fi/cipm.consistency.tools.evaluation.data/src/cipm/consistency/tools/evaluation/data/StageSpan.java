@@ -0,0 +1,58 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A data structure for the execution time of one stage and its counters, e. g., the number of parsed files. A span
+ * is started by {@link ExecutionTimeData#startStage(String)} and stopped by {@link #close()}.
+ * 
+ * @author Martin Armbruster
+ */
+public class StageSpan implements AutoCloseable {
+	private String stage;
+	private long durationNanos;
+	private Map<String, Long> counters = new LinkedHashMap<>();
+	private transient long startNanos;
+	private transient boolean stopped;
+	
+	StageSpan(String stage) {
+		this.stage = stage;
+		this.startNanos = System.nanoTime();
+	}
+	
+	/**
+	 * Adds a value to a counter of this span.
+	 * 
+	 * @param counter name of the counter.
+	 * @param value the value to add.
+	 * @return this span.
+	 */
+	public synchronized StageSpan count(String counter, long value) {
+		counters.merge(counter, value, Long::sum);
+		return this;
+	}
+	
+	/**
+	 * Stops the span. Further calls have no effect.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!stopped) {
+			stopped = true;
+			durationNanos = System.nanoTime() - startNanos;
+		}
+	}
+	
+	public String getStage() {
+		return stage;
+	}
+	
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+	
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+}
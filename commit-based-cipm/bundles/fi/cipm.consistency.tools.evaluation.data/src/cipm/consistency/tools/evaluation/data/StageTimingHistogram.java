@@ -0,0 +1,131 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+
+/**
+ * Aggregates the stage spans of multiple runs. For every stage, the number of spans, the total, minimum, and maximum
+ * duration, the sums of the counters, and a histogram of the durations are determined. The histogram contains one
+ * bucket per power of two so that bucket i counts the spans with a duration in [2^i, 2^(i+1)) nanoseconds.
+ * 
+ * @author Martin Armbruster
+ */
+public class StageTimingHistogram {
+	private static final int NUMBER_OF_BUCKETS = 64;
+	private int numberOfRuns;
+	private Map<String, StageStatistics> stages = new LinkedHashMap<>();
+	
+	/**
+	 * Creates the histogram for evaluation data files.
+	 * 
+	 * @param files the files with the evaluation data. Files which cannot be read are ignored.
+	 * @return the histogram.
+	 */
+	public static StageTimingHistogram aggregate(List<Path> files) {
+		StageTimingHistogram histogram = new StageTimingHistogram();
+		for (Path file : files) {
+			EvaluationDataContainer container = EvaluationDataContainerReaderWriter.read(file);
+			if (container != null) {
+				histogram.add(container.getExecutionTimes());
+			}
+		}
+		return histogram;
+	}
+	
+	/**
+	 * Adds the spans of one run.
+	 * 
+	 * @param data the execution times of the run.
+	 */
+	public void add(ExecutionTimeData data) {
+		numberOfRuns++;
+		if (data.getStages() == null) {
+			return;
+		}
+		for (StageSpan span : data.getStages()) {
+			stages.computeIfAbsent(span.getStage(), s -> new StageStatistics()).add(span);
+		}
+	}
+	
+	/**
+	 * Writes the histogram to a file.
+	 * 
+	 * @param file the file in which the histogram is written.
+	 */
+	public void write(Path file) {
+		Gson gson = new Gson();
+		try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+			gson.toJson(this, StageTimingHistogram.class, gson.newJsonWriter(writer));
+		} catch (IOException e) {
+		}
+	}
+	
+	public int getNumberOfRuns() {
+		return numberOfRuns;
+	}
+	
+	public Map<String, StageStatistics> getStages() {
+		return stages;
+	}
+	
+	/**
+	 * A data structure for the aggregated spans of one stage.
+	 * 
+	 * @author Martin Armbruster
+	 */
+	public static class StageStatistics {
+		private long count;
+		private long totalNanos;
+		private long minNanos = Long.MAX_VALUE;
+		private long maxNanos;
+		private long[] buckets = new long[NUMBER_OF_BUCKETS];
+		private Map<String, Long> counterTotals = new LinkedHashMap<>();
+		
+		void add(StageSpan span) {
+			long duration = span.getDurationNanos();
+			count++;
+			totalNanos += duration;
+			minNanos = Math.min(minNanos, duration);
+			maxNanos = Math.max(maxNanos, duration);
+			buckets[duration <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(duration)]++;
+			if (span.getCounters() != null) {
+				span.getCounters().forEach((k, v) -> counterTotals.merge(k, v, Long::sum));
+			}
+		}
+		
+		public long getCount() {
+			return count;
+		}
+		
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+		
+		public long getMinNanos() {
+			return minNanos;
+		}
+		
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+		
+		public long getMeanNanos() {
+			return count == 0 ? 0 : totalNanos / count;
+		}
+		
+		public long[] getBuckets() {
+			return buckets;
+		}
+		
+		public Map<String, Long> getCounterTotals() {
+			return counterTotals;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package cipm.consistency.commitintegration;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.xmi.impl.URIHandlerImpl;
+
+/**
+ * A URI handler which does not deresolve the URIs of cross-resource references against the location of the saved
+ * Resource. As a result, the references of a stored model still point to the same Resources if the model is loaded
+ * for another location.
+ *
+ * @author Martin Armbruster
+ */
+class AbsoluteURIHandler extends URIHandlerImpl {
+	@Override
+	public URI deresolve(URI uri) {
+		return uri;
+	}
+}
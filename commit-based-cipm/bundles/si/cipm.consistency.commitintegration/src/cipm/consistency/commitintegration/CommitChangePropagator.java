@@ -2,8 +2,10 @@ package cipm.consistency.commitintegration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -14,6 +16,8 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.ExecutionTimeData;
+import cipm.consistency.tools.evaluation.data.StageSpan;
 import tools.vitruv.framework.vsum.internal.InternalVirtualModel;
 
 /**
@@ -30,10 +34,15 @@ public class CommitChangePropagator {
 	 * Field for logging.
 	 */
 	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitChangePropagator.class.getSimpleName());
+	private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
 	private GitRepositoryWrapper repoWrapper;
 	private InternalVirtualModel vsum;
 	private String remoteRepository;
 	private JavaFileSystemLayout fileLayout;
+	private IncrementalParsingState parsingState = new IncrementalParsingState();
+	private ParsedModelCache parsedModelCache;
+	private LibraryModelCache libraryCache;
+	private CommitCoalescingScheduler coalescingScheduler;
 
 	/**
 	 * Creates a new instance.
@@ -81,14 +90,59 @@ public class CommitChangePropagator {
 	 * @throws GitAPIException if there is an exception within the Git usage.
 	 */
 	public void fetchAndPropagateChanges() throws IOException, GitAPIException {
+		propagateChanges(fetchNewCommits());
+		LOGGER.debug("Finished the change propagation.");
+	}
+
+	/**
+	 * Fetches changes from the remote repository and determines the commits whose
+	 * changes are propagated step by step.
+	 * 
+	 * @return the latest local commit followed by the end commits of the
+	 *         propagation steps. If there are no new commits, the list only
+	 *         contains the latest local commit.
+	 * @throws IOException if something from the repositories cannot be read.
+	 */
+	public List<RevCommit> fetchNewCommits() throws IOException {
 		RevCommit lastCommit = repoWrapper.getLatestCommit();
 		LOGGER.debug("Latest commit is " + lastCommit.getId().getName());
 		LOGGER.debug("Fetching remote repository to get new commits.");
 		List<RevCommit> nextCommits = repoWrapper.fetchAndGetNewCommits();
 		LOGGER.debug("Got " + nextCommits.size() + " new commits.");
 		nextCommits.add(0, lastCommit);
-		propagateChanges(nextCommits);
-		LOGGER.debug("Finished the change propagation.");
+		CommitCoalescingScheduler scheduler = getCoalescingScheduler();
+		if (scheduler != null) {
+			nextCommits = scheduler.schedule(nextCommits);
+		}
+		return nextCommits;
+	}
+
+	/**
+	 * Sets the scheduler which groups fetched commits into propagation steps.
+	 * 
+	 * @param scheduler the scheduler. Can be null which results in a scheduler
+	 *                  created from the settings.
+	 */
+	public void setCoalescingScheduler(CommitCoalescingScheduler scheduler) {
+		this.coalescingScheduler = scheduler;
+	}
+
+	private CommitCoalescingScheduler getCoalescingScheduler() {
+		if (coalescingScheduler != null) {
+			return coalescingScheduler;
+		}
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (!settings.getPropertyAsBoolean(SettingKeys.PERFORM_COMMIT_COALESCING)) {
+			return null;
+		}
+		CommitCoalescingScheduler scheduler = new CommitCoalescingScheduler(repoWrapper,
+				settings.getPropertyAsInteger(SettingKeys.COALESCING_MAX_COMMITS, 0),
+				settings.getPropertyAsInteger(SettingKeys.COALESCING_MAX_CHANGED_FILES, 0),
+				settings.getPropertyAsInteger(SettingKeys.COALESCING_MAX_CHANGED_LINES, 0));
+		if (settings.getPropertyAsBoolean(SettingKeys.COALESCING_CUT_AT_TAGS)) {
+			scheduler.addCutRule(new CommitCoalescingScheduler.TaggedCommitCutRule(repoWrapper));
+		}
+		return scheduler;
 	}
 
 	/**
@@ -114,6 +168,18 @@ public class CommitChangePropagator {
 	 * @throws IOException     if something from the repositories cannot be read.
 	 */
 	public void propagateChanges(List<RevCommit> commits) throws GitAPIException, IOException {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (commits.size() > 2 && settings.getPropertyAsBoolean(SettingKeys.PERFORM_PIPELINED_PROPAGATION)) {
+			if (settings.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_PARSING)
+					|| settings.getPropertyAsBoolean(SettingKeys.PERFORM_TARGETED_CHECKOUT)) {
+				LOGGER.debug("The pipelined propagation does not support the incremental parsing and targeted"
+						+ " checkout. Propagating the commits one after another.");
+			} else {
+				new PipelinedCommitPropagator(this, settings.getPropertyAsInteger(SettingKeys.PIPELINE_CAPACITY, 1))
+					.propagateChanges(commits);
+				return;
+			}
+		}
 		if (commits.size() > 0) {
 			RevCommit first = commits.remove(0);
 			LOGGER.debug("Propagating " + commits.size() + " commits.");
@@ -175,39 +241,127 @@ public class CommitChangePropagator {
 	 */
 	public boolean propagateChanges(RevCommit start, RevCommit end) throws GitAPIException, IOException {
 		String commitId = end.getId().getName();
+		repoWrapper.setCollectChangeStatistics(!CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.SKIP_CHANGE_STATISTICS));
+		var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
+		// The line counts are reset so that they only cover this propagation step which can span multiple commits.
+		cs.setNumberAddedLines(0);
+		cs.setNumberRemovedLines(0);
 		LOGGER.debug("Obtaining all differences.");
-		List<DiffEntry> diffs = repoWrapper.computeDiffsBetweenTwoCommits(start, end, true, true);
+		List<DiffEntry> diffs;
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_TREE_DIFF)) {
+			diffs = repoWrapper.computeDiffsBetweenTwoCommits(start, end, true, true);
+			span.count(ExecutionTimeData.COUNTER_FILES, diffs.size());
+		}
 		if (diffs.size() == 0) {
 			LOGGER.debug("No Java files changed for " + commitId + " so that no propagation is performed.");
 			return false;
 		}
-		var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
 		String oldId = start != null ? start.getId().getName() : null;
 		cs.setOldCommit(oldId != null ? oldId : "");
 		cs.setNewCommit(commitId);
 		cs.setNumberCommits(repoWrapper.getAllCommitsBetweenTwoCommits(oldId, commitId).size() + 1);
-		LOGGER.debug("Cleaning the repository.");
-		repoWrapper.performCompleteClean();
-		LOGGER.debug("Checkout of " + commitId);
-		repoWrapper.checkout(commitId);
-		boolean preprocessResult = preprocess();
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (settings.getPropertyAsBoolean(SettingKeys.PERFORM_TARGETED_CHECKOUT)) {
+			LOGGER.debug("Updating the changed files for the checkout of " + commitId);
+			String keptPaths = settings.getProperty(SettingKeys.KEPT_BUILD_OUTPUT_PATTERNS);
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_CHECKOUT)) {
+				repoWrapper.updateWorkingTree(start, end,
+						keptPaths != null ? Arrays.asList(keptPaths.split(";")) : List.of());
+			}
+		} else {
+			LOGGER.debug("Cleaning the repository.");
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_CLEAN)) {
+				repoWrapper.performCompleteClean();
+			}
+			LOGGER.debug("Checkout of " + commitId);
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_CHECKOUT)) {
+				repoWrapper.checkout(commitId);
+			}
+		}
+		boolean preprocessResult;
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_PREPROCESS)) {
+			preprocessResult = preprocess(repoWrapper.getRootDirectory());
+		}
 		if (!preprocessResult) {
 			LOGGER.debug("The preprocessing failed. Aborting.");
 			return false;
 		}
 		LOGGER.debug("Delegating the change propagation to the JavaParserAndPropagatorUtility.");
-		JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(repoWrapper.getRootDirectory().toPath(),
-				fileLayout.getJavaModelFile(), vsum, fileLayout.getModuleConfiguration());
+		configureParsedModelCache();
+		// The changes are derived from the diff independently of the parsing state, e. g., for the incremental
+		// module detection.
+		JavaFileChanges changes = JavaFileChanges.fromDiffs(repoWrapper.getRootDirectory().toPath(), diffs, oldId,
+				commitId);
+		if (settings.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_PARSING)) {
+			if (!parsingState.isBasedOn(oldId)) {
+				parsingState.reset();
+			}
+			// The state is invalidated until the propagation finishes successfully.
+			parsingState.setCommitId(null);
+			JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(repoWrapper.getRootDirectory().toPath(),
+					fileLayout.getJavaModelFile(), vsum, fileLayout.getModuleConfiguration(), parsingState, changes);
+			parsingState.setCommitId(commitId);
+		} else {
+			JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(repoWrapper.getRootDirectory().toPath(),
+					fileLayout.getJavaModelFile(), vsum, fileLayout.getModuleConfiguration(), null, changes);
+		}
 		LOGGER.debug("Finished the propagation of " + commitId);
 		return true;
 	}
 
-	private boolean preprocess() {
-		File possibleFile = new File(CommitIntegrationSettingsContainer.getSettingsContainer()
-				.getProperty(SettingKeys.PATH_TO_PREPROCESSING_SCRIPT));
+	/**
+	 * Enables or disables the caches for parsed models and library models depending on the settings.
+	 */
+	void configureParsedModelCache() {
+		if (CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.USE_PARSED_MODEL_CACHE)) {
+			long maxSize = CommitIntegrationSettingsContainer.getSettingsContainer().getPropertyAsInteger(
+					SettingKeys.PARSED_MODEL_CACHE_MAX_SIZE, ParsedModelCache.DEFAULT_MAX_SIZE) * BYTES_PER_MEGABYTE;
+			// The cache is kept so that its size is only determined once.
+			Path cacheDirectory = fileLayout.getParsedModelCache();
+			if (parsedModelCache == null || !parsedModelCache.getCacheDirectory().equals(cacheDirectory)
+					|| parsedModelCache.getMaxSize() != maxSize) {
+				parsedModelCache = new ParsedModelCache(cacheDirectory, maxSize);
+			}
+			JavaParserAndPropagatorUtils.setParsedModelCache(parsedModelCache);
+		} else {
+			JavaParserAndPropagatorUtils.setParsedModelCache(null);
+		}
+		String libraryCachePath = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.LIBRARY_MODEL_CACHE_PATH);
+		if (libraryCachePath != null && !libraryCachePath.isBlank()) {
+			if (libraryCache == null || !libraryCache.getCacheDirectory().equals(Paths.get(libraryCachePath))) {
+				libraryCache = new LibraryModelCache(Paths.get(libraryCachePath), CommitIntegrationSettingsContainer
+						.getSettingsContainer().getPropertyAsBoolean(SettingKeys.LIBRARY_MODEL_CACHE_READ_ONLY));
+			}
+			JavaParserAndPropagatorUtils.setLibraryModelCache(libraryCache);
+		} else {
+			JavaParserAndPropagatorUtils.setLibraryModelCache(null);
+		}
+	}
+
+	/**
+	 * Runs the preprocessing script for a checked out commit.
+	 * 
+	 * @param directory the directory which contains the checked out commit.
+	 * @return true if the preprocessing was successful. false otherwise.
+	 */
+	boolean preprocess(File directory) {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		File possibleFile = new File(settings.getProperty(SettingKeys.PATH_TO_PREPROCESSING_SCRIPT));
 		String absPath = possibleFile.getAbsolutePath();
 		if (possibleFile.exists()) {
-			return ExternalCommandExecutionUtils.runScript(this.repoWrapper.getRootDirectory(), absPath);
+			String inputs = settings.getProperty(SettingKeys.PREPROCESSING_CACHE_INPUTS);
+			String outputs = settings.getProperty(SettingKeys.PREPROCESSING_CACHE_OUTPUTS);
+			if (inputs != null && outputs != null) {
+				long maxSize = settings.getPropertyAsInteger(SettingKeys.PREPROCESSING_CACHE_MAX_SIZE,
+						PreprocessingCache.DEFAULT_MAX_SIZE) * BYTES_PER_MEGABYTE;
+				PreprocessingCache cache = new PreprocessingCache(fileLayout.getPreprocessingCache(),
+						Arrays.asList(inputs.split(";")), Arrays.asList(outputs.split(";")), maxSize);
+				return cache.preprocess(directory.toPath(), possibleFile.toPath().toAbsolutePath());
+			}
+			return ExternalCommandExecutionUtils.runScript(directory, absPath);
 		} else {
 			LOGGER.debug(absPath + " not found.");
 		}
@@ -242,9 +396,14 @@ public class CommitChangePropagator {
 	 */
 	public void shutdown() {
 		LOGGER.debug("Shutting down.");
+		parsingState.reset();
 		repoWrapper.closeRepository();
 	}
 
+	InternalVirtualModel getVSUM() {
+		return vsum;
+	}
+
 	public GitRepositoryWrapper getWrapper() {
 		return repoWrapper;
 	}
@@ -0,0 +1,165 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Groups consecutive commits so that the changes of a group are propagated in
+ * one step. A group ends if adding the next commit exceeds the maximum number
+ * of commits, changed Java files, or changed lines, or if a cut rule demands
+ * the end of the group after a commit.
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitCoalescingScheduler {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitCoalescingScheduler.class.getSimpleName());
+	private GitRepositoryWrapper wrapper;
+	private int maxCommits;
+	private int maxChangedFiles;
+	private int maxChangedLines;
+	private List<CutRule> cutRules = new ArrayList<>();
+
+	/**
+	 * A rule which decides if a group of commits ends after a commit.
+	 */
+	@FunctionalInterface
+	public interface CutRule {
+		/**
+		 * Checks if a group of commits ends after a commit.
+		 * 
+		 * @param commit the commit.
+		 * @return true if the group ends after the commit. false otherwise.
+		 */
+		boolean isCutAfter(RevCommit commit);
+	}
+
+	/**
+	 * A cut rule which ends a group after every tagged commit, e. g., releases.
+	 */
+	public static class TaggedCommitCutRule implements CutRule {
+		private Set<ObjectId> taggedCommits;
+
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param wrapper the repository from which the tags are read.
+		 */
+		public TaggedCommitCutRule(GitRepositoryWrapper wrapper) {
+			taggedCommits = wrapper.getTaggedCommitIds();
+		}
+
+		@Override
+		public boolean isCutAfter(RevCommit commit) {
+			return taggedCommits.contains(commit.getId());
+		}
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param wrapper         the repository which contains the commits.
+	 * @param maxCommits      the maximum number of commits in a group. Values lower
+	 *                        than one do not limit the group.
+	 * @param maxChangedFiles the maximum number of changed Java files in a group.
+	 *                        Values lower than one do not limit the group.
+	 * @param maxChangedLines the maximum number of added and removed lines in Java
+	 *                        files of a group. Values lower than one do not limit
+	 *                        the group.
+	 */
+	public CommitCoalescingScheduler(GitRepositoryWrapper wrapper, int maxCommits, int maxChangedFiles,
+			int maxChangedLines) {
+		this.wrapper = wrapper;
+		this.maxCommits = maxCommits;
+		this.maxChangedFiles = maxChangedFiles;
+		this.maxChangedLines = maxChangedLines;
+	}
+
+	public void addCutRule(CutRule rule) {
+		cutRules.add(rule);
+	}
+
+	/**
+	 * Groups consecutive commits.
+	 * 
+	 * @param commits the commits. The first commit is the already propagated base
+	 *                commit.
+	 * @return the base commit followed by the last commit of every group.
+	 * @throws IOException if the repository cannot be read.
+	 */
+	public List<RevCommit> schedule(List<RevCommit> commits) throws IOException {
+		List<RevCommit> result = new ArrayList<>();
+		if (commits.isEmpty()) {
+			return result;
+		}
+		result.add(commits.get(0));
+		int groupCommits = 0;
+		int groupLines = 0;
+		Set<String> groupFiles = new HashSet<>();
+		for (int idx = 1; idx < commits.size(); idx++) {
+			RevCommit previous = commits.get(idx - 1);
+			RevCommit commit = commits.get(idx);
+			// The diffs and line counts are only computed for the enabled limits.
+			List<DiffEntry> diffs = maxChangedFiles > 0 || maxChangedLines > 0
+					? wrapper.scanDiffsBetweenTwoCommits(previous, commit, true, false)
+					: List.of();
+			Set<String> files = new HashSet<>(groupFiles);
+			addChangedFiles(diffs, files);
+			int lines = maxChangedLines > 0 ? countChangedLines(diffs) : 0;
+			if (groupCommits > 0 && exceedsLimits(groupCommits + 1, files.size(), groupLines + lines)) {
+				result.add(previous);
+				groupCommits = 0;
+				groupLines = 0;
+				groupFiles.clear();
+				files.clear();
+				addChangedFiles(diffs, files);
+			}
+			groupCommits++;
+			groupLines += lines;
+			groupFiles = files;
+			if (isCutAfter(commit)) {
+				result.add(commit);
+				groupCommits = 0;
+				groupLines = 0;
+				groupFiles = new HashSet<>();
+			}
+		}
+		if (groupCommits > 0) {
+			result.add(commits.get(commits.size() - 1));
+		}
+		LOGGER.debug("Coalesced " + (commits.size() - 1) + " commits into " + (result.size() - 1) + " steps.");
+		return result;
+	}
+
+	private void addChangedFiles(List<DiffEntry> diffs, Set<String> files) {
+		for (DiffEntry diff : diffs) {
+			files.add(diff.getChangeType() == DiffEntry.ChangeType.DELETE ? diff.getOldPath() : diff.getNewPath());
+		}
+	}
+
+	private int countChangedLines(List<DiffEntry> diffs) throws IOException {
+		var counts = wrapper.getDiffStatisticsEngine().computeTotalLineCounts(diffs);
+		return counts.getAddedLines() + counts.getRemovedLines();
+	}
+
+	private boolean exceedsLimits(int commits, int files, int lines) {
+		return (maxCommits > 0 && commits > maxCommits) || (maxChangedFiles > 0 && files > maxChangedFiles)
+				|| (maxChangedLines > 0 && lines > maxChangedLines);
+	}
+
+	private boolean isCutAfter(RevCommit commit) {
+		for (CutRule rule : cutRules) {
+			if (rule.isCutAfter(commit)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
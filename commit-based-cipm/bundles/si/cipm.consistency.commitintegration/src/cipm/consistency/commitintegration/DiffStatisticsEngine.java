@@ -0,0 +1,160 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Computes the numbers of added and removed lines for changed files directly
+ * from the edit lists of their old and new content. The files are processed in
+ * parallel, and the results are memoized per pair of old and new blob.
+ * 
+ * @author Martin Armbruster
+ */
+public class DiffStatisticsEngine {
+	private static final int MAX_MEMOIZED_PAIRS = 100000;
+	private static final int BIG_FILE_THRESHOLD = 50 * 1024 * 1024;
+	private Repository repository;
+	private DiffAlgorithm algorithm;
+	private Map<String, LineCounts> memoizedCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * The numbers of added and removed lines of a change.
+	 */
+	public static final class LineCounts {
+		private final int addedLines;
+		private final int removedLines;
+
+		private LineCounts(int addedLines, int removedLines) {
+			this.addedLines = addedLines;
+			this.removedLines = removedLines;
+		}
+
+		public int getAddedLines() {
+			return addedLines;
+		}
+
+		public int getRemovedLines() {
+			return removedLines;
+		}
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param repository the repository which contains the changed files.
+	 */
+	public DiffStatisticsEngine(Repository repository) {
+		this.repository = repository;
+		this.algorithm = DiffAlgorithm.getAlgorithm(repository.getConfig().getEnum(
+				ConfigConstants.CONFIG_DIFF_SECTION, null, ConfigConstants.CONFIG_KEY_ALGORITHM,
+				DiffAlgorithm.SupportedAlgorithm.HISTOGRAM));
+	}
+
+	/**
+	 * Computes the numbers of added and removed lines for changed files.
+	 * 
+	 * @param diffs the changed files.
+	 * @return the line counts of every changed file in the order of the given
+	 *         files.
+	 * @throws IOException if the content of a file cannot be read.
+	 */
+	public List<LineCounts> computeLineCounts(List<DiffEntry> diffs) throws IOException {
+		try {
+			return diffs.parallelStream().map(diff -> {
+				try {
+					return computeLineCounts(diff);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Computes the overall numbers of added and removed lines for changed files.
+	 * 
+	 * @param diffs the changed files.
+	 * @return the sum of the line counts of all changed files.
+	 * @throws IOException if the content of a file cannot be read.
+	 */
+	public LineCounts computeTotalLineCounts(List<DiffEntry> diffs) throws IOException {
+		int added = 0;
+		int removed = 0;
+		for (LineCounts counts : computeLineCounts(diffs)) {
+			added += counts.addedLines;
+			removed += counts.removedLines;
+		}
+		return new LineCounts(added, removed);
+	}
+
+	/**
+	 * Computes the numbers of added and removed lines for one changed file.
+	 * 
+	 * @param diff the changed file.
+	 * @return the line counts.
+	 * @throws IOException if the content of the file cannot be read.
+	 */
+	public LineCounts computeLineCounts(DiffEntry diff) throws IOException {
+		String key = diff.getOldId().name() + ":" + diff.getNewId().name();
+		LineCounts counts = memoizedCounts.get(key);
+		if (counts != null) {
+			return counts;
+		}
+		try (ObjectReader reader = repository.newObjectReader()) {
+			RawText oldText = readText(reader, diff.getOldId().toObjectId(), diff.getOldMode());
+			RawText newText = readText(reader, diff.getNewId().toObjectId(), diff.getNewMode());
+			if (oldText == null || newText == null) {
+				// Binary files have no lines.
+				counts = new LineCounts(0, 0);
+			} else {
+				EditList edits = algorithm.diff(RawTextComparator.DEFAULT, oldText, newText);
+				int added = 0;
+				int removed = 0;
+				for (Edit edit : edits) {
+					added += edit.getLengthB();
+					removed += edit.getLengthA();
+				}
+				counts = new LineCounts(added, removed);
+			}
+		}
+		if (memoizedCounts.size() >= MAX_MEMOIZED_PAIRS) {
+			memoizedCounts.clear();
+		}
+		memoizedCounts.put(key, counts);
+		return counts;
+	}
+
+	private RawText readText(ObjectReader reader, ObjectId id, FileMode mode) throws IOException {
+		if (ObjectId.zeroId().equals(id) || mode == FileMode.GITLINK) {
+			return new RawText(new byte[0]);
+		}
+		ObjectLoader loader = reader.open(id);
+		if (loader.isLarge() || loader.getSize() > BIG_FILE_THRESHOLD) {
+			return null;
+		}
+		byte[] content = loader.getCachedBytes();
+		if (RawText.isBinary(content)) {
+			return null;
+		}
+		return new RawText(content);
+	}
+}
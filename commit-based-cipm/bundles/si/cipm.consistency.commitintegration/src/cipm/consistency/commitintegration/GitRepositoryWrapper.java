@@ -4,13 +4,27 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
 import org.eclipse.jgit.api.errors.CheckoutConflictException;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRefNameException;
@@ -22,20 +36,27 @@ import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.EditList;
-import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig.AutoCRLF;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.NullOutputStream;
@@ -50,10 +71,13 @@ import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
  * @author Martin Armbruster
  */
 public class GitRepositoryWrapper {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + GitRepositoryWrapper.class.getSimpleName());
 	private Git git;
 	private RevCommit latestCommit;
 	private File rootDirectory;
 	private String defaultBranch;
+	private DiffStatisticsEngine statisticsEngine;
+	private boolean collectChangeStatistics = true;
 	
 	/**
 	 * Creates a new Git repository wrapper with a local copy in <code>rootDirectory</code>.
@@ -111,6 +135,28 @@ public class GitRepositoryWrapper {
 		git.log().setMaxCount(1).call().forEach(c -> latestCommit = c);
 	}
 	
+	/**
+	 * Returns the engine which computes the numbers of changed lines.
+	 * 
+	 * @return the engine.
+	 */
+	public DiffStatisticsEngine getDiffStatisticsEngine() {
+		if (statisticsEngine == null) {
+			statisticsEngine = new DiffStatisticsEngine(git.getRepository());
+		}
+		return statisticsEngine;
+	}
+	
+	/**
+	 * Sets if the numbers of added and removed lines are recorded in the change statistic when the differences
+	 * between two commits are computed.
+	 * 
+	 * @param collectChangeStatistics true if the numbers are recorded. false otherwise.
+	 */
+	public void setCollectChangeStatistics(boolean collectChangeStatistics) {
+		this.collectChangeStatistics = collectChangeStatistics;
+	}
+	
 	public boolean isInitialized() {
 		return git != null;
 	}
@@ -222,62 +268,79 @@ public class GitRepositoryWrapper {
 	 */
 	public List<DiffEntry> computeDiffsBetweenTwoCommits(RevCommit oldRevCommit, RevCommit newRevCommit,
 			boolean onlyChangesOnJavaFiles, boolean detectRenames) throws IncorrectObjectTypeException, IOException {
-
-		ObjectReader treeReader = git.getRepository().newObjectReader();
-		
-		AbstractTreeIterator oldParser;
-		if (oldRevCommit != null) {
-			ObjectId oldTreeId = oldRevCommit.getTree().getId();
-			CanonicalTreeParser oldTreeParser = new CanonicalTreeParser();
-			oldTreeParser.reset(treeReader, oldTreeId);
-			oldParser = oldTreeParser;
-		} else {
-			oldParser = new EmptyTreeIterator();
+		List<DiffEntry> diffs = scanDiffsBetweenTwoCommits(oldRevCommit, newRevCommit, onlyChangesOnJavaFiles,
+				detectRenames);
+		recordChangeStatistics(diffs);
+		return diffs;
+	}
+	
+	/**
+	 * Records the number of changed files and, if enabled, the numbers of added and removed lines of differences in
+	 * the global change statistic. It must only be called by the thread which propagates the changes.
+	 * 
+	 * @param diffs the differences, e. g., computed by
+	 *              {@link #scanDiffsBetweenTwoCommits(RevCommit, RevCommit, boolean, boolean)}.
+	 * @throws IOException if the content of a changed file cannot be read.
+	 */
+	public void recordChangeStatistics(List<DiffEntry> diffs) throws IOException {
+		if (collectChangeStatistics) {
+			var counts = getDiffStatisticsEngine().computeTotalLineCounts(diffs);
+			var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
+			cs.setNumberAddedLines(cs.getNumberAddedLines() + counts.getAddedLines());
+			cs.setNumberRemovedLines(cs.getNumberRemovedLines() + counts.getRemovedLines());
 		}
 		
-		ObjectId newTreeId = newRevCommit.getTree().getId();
-		CanonicalTreeParser newTreeParser = new CanonicalTreeParser();
-		newTreeParser.reset(treeReader, newTreeId);
-
-		OutputStream outputStream = NullOutputStream.INSTANCE;
-		DiffFormatter df = new DiffFormatter(outputStream) {
-			@Override
-			protected void writeAddedLine(RawText text, int line) {
-				var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
-				cs.setNumberAddedLines(cs.getNumberAddedLines() + 1);
+		EvaluationDataContainer.getGlobalContainer().getChangeStatistic().setNumberChangedJavaFiles(diffs.size());
+	}
+	
+	/**
+	 * Computes all {@link DiffEntry} between <code>oldRevCommit</code> and <code>newRevCommit</code> like
+	 * {@link #computeDiffsBetweenTwoCommits(RevCommit, RevCommit, boolean, boolean)}, but without recording any
+	 * statistics about the changes.
+	 * 
+	 * @param oldRevCommit start commit (usually an older commit).
+	 * @param newRevCommit end commit (usually a newer commit).
+	 * @param onlyChangesOnJavaFiles If the flag is true, only changes on Java files will be detected. All changes on other file types will be ignored.
+	 * @param detectRenames If the flag is true, renames on files will be detected.
+	 * @return computed {@link List} with {@link DiffEntry}.
+	 * @throws IOException if an IO operation fails.
+	 * @throws IncorrectObjectTypeException if one of the given commits is invalid.
+	 */
+	public List<DiffEntry> scanDiffsBetweenTwoCommits(RevCommit oldRevCommit, RevCommit newRevCommit,
+			boolean onlyChangesOnJavaFiles, boolean detectRenames) throws IncorrectObjectTypeException, IOException {
+		try (ObjectReader treeReader = git.getRepository().newObjectReader();
+				DiffFormatter df = new DiffFormatter(NullOutputStream.INSTANCE)) {
+			AbstractTreeIterator oldParser;
+			if (oldRevCommit != null) {
+				ObjectId oldTreeId = oldRevCommit.getTree().getId();
+				CanonicalTreeParser oldTreeParser = new CanonicalTreeParser();
+				oldTreeParser.reset(treeReader, oldTreeId);
+				oldParser = oldTreeParser;
+			} else {
+				oldParser = new EmptyTreeIterator();
 			}
 			
-			@Override
-			protected void writeRemovedLine(RawText text, int line) {
-				var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
-				cs.setNumberRemovedLines(cs.getNumberRemovedLines() + 1);
+			ObjectId newTreeId = newRevCommit.getTree().getId();
+			CanonicalTreeParser newTreeParser = new CanonicalTreeParser();
+			newTreeParser.reset(treeReader, newTreeId);
+			
+			df.setRepository(git.getRepository());
+			// Set filter to detect only changes on Java files if necessary. 
+			if (onlyChangesOnJavaFiles) {
+				TreeFilter treeFilter = PathSuffixFilter.create(".java");
+				df.setPathFilter(treeFilter);
 			}
-		};
-		df.setRepository(git.getRepository());
-		
-		// Set filter to detect only changes on Java files if necessary. 
-		if (onlyChangesOnJavaFiles) {
-			TreeFilter treeFilter = PathSuffixFilter.create(".java");
-			df.setPathFilter(treeFilter);
-		}
-		// Compute diffs between the commits.
-		List<DiffEntry> diffs = df.scan(oldParser, newTreeParser);
-		
-		// Detect renames on changed files if necessary.
-		if (detectRenames) {
-			 RenameDetector rd = new RenameDetector(git.getRepository());
-			 rd.addAll(diffs);
-			 diffs = rd.compute();
-		}
-		
-		for (DiffEntry diff : diffs) {
-			df.format(diff);
+			// Compute diffs between the commits.
+			List<DiffEntry> diffs = df.scan(oldParser, newTreeParser);
+			
+			// Detect renames on changed files if necessary.
+			if (detectRenames) {
+				RenameDetector rd = new RenameDetector(git.getRepository());
+				rd.addAll(diffs);
+				diffs = rd.compute();
+			}
+			return diffs;
 		}
-		df.close();
-		
-		EvaluationDataContainer.getGlobalContainer().getChangeStatistic().setNumberChangedJavaFiles(diffs.size());
-		
-		return diffs;
 	}
 
 	/**
@@ -388,6 +451,24 @@ public class GitRepositoryWrapper {
 		}
 	}
 
+	/**
+	 * Returns the ids of all commits which are referenced by a tag.
+	 * 
+	 * @return the commit ids. If the tags cannot be read, the error is logged and the ids read so far are returned.
+	 */
+	public Set<ObjectId> getTaggedCommitIds() {
+		Set<ObjectId> result = new HashSet<>();
+		try {
+			for (Ref tag : git.tagList().call()) {
+				Ref peeled = git.getRepository().getRefDatabase().peel(tag);
+				result.add(peeled.getPeeledObjectId() != null ? peeled.getPeeledObjectId() : peeled.getObjectId());
+			}
+		} catch (GitAPIException | IOException e) {
+			LOGGER.error("Could not read the tags.", e);
+		}
+		return result;
+	}
+
 	public RevCommit getLatestCommit() {
 		return latestCommit;
 	}
@@ -415,6 +496,181 @@ public class GitRepositoryWrapper {
 		return result;
 	}
 	
+	/**
+	 * Updates the working tree from one commit to another one by writing, deleting, and moving only the files which
+	 * differ between the two commits. Beforehand, these files are restored if they were changed since the checkout of
+	 * the first commit, and untracked files at their paths are removed unless they are kept. All other files are not
+	 * visited so that their local changes, e. g., of the preprocessing, remain. If the working tree does not represent
+	 * the first commit or the repository requires a conversion of line endings, a complete clean, which keeps the
+	 * same files, and checkout are performed instead.
+	 * 
+	 * @param oldCommit the commit which is currently checked out.
+	 * @param newCommit the commit to check out.
+	 * @param keptPathPatterns regular expressions for paths, relative to the root directory, of untracked files which
+	 *                         shall be kept, e. g., build outputs.
+	 * @throws GitAPIException if a Git operation cannot be performed.
+	 * @throws IOException if an IO operation cannot be performed.
+	 */
+	public void updateWorkingTree(RevCommit oldCommit, RevCommit newCommit, List<String> keptPathPatterns)
+			throws GitAPIException, IOException {
+		Repository repo = git.getRepository();
+		ObjectId head = repo.resolve(Constants.HEAD);
+		AutoCRLF autoCRLF = repo.getConfig().getEnum(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_KEY_AUTOCRLF, AutoCRLF.FALSE);
+		if (oldCommit == null || head == null || !head.equals(oldCommit.getId()) || autoCRLF != AutoCRLF.FALSE) {
+			performCompleteClean(keptPathPatterns);
+			checkout(newCommit.getId().getName());
+			return;
+		}
+		
+		List<DiffEntry> diffs;
+		try (DiffFormatter df = new DiffFormatter(NullOutputStream.INSTANCE)) {
+			df.setRepository(repo);
+			df.setDetectRenames(true);
+			diffs = df.scan(oldCommit.getTree(), newCommit.getTree());
+		}
+		
+		// Restore the state of the first commit for the changed paths.
+		if (!diffs.isEmpty()) {
+			StatusCommand statusCommand = git.status();
+			for (DiffEntry diff : diffs) {
+				if (!diff.getOldPath().equals(DiffEntry.DEV_NULL)) {
+					statusCommand.addPath(diff.getOldPath());
+				}
+				if (!diff.getNewPath().equals(DiffEntry.DEV_NULL)) {
+					statusCommand.addPath(diff.getNewPath());
+				}
+			}
+			Status status = statusCommand.call();
+			List<String> toRemove = new ArrayList<>(status.getUntracked());
+			toRemove.addAll(status.getIgnoredNotInIndex());
+			for (String path : toRemove) {
+				if (!isKeptPath(path, keptPathPatterns)) {
+					FileUtils.deleteQuietly(new File(rootDirectory, path));
+				}
+			}
+			Set<String> toRestore = new HashSet<>(status.getModified());
+			toRestore.addAll(status.getMissing());
+			toRestore.addAll(status.getChanged());
+			toRestore.addAll(status.getRemoved());
+			if (!toRestore.isEmpty()) {
+				git.reset().setMode(ResetType.MIXED).call();
+				CheckoutCommand restore = git.checkout();
+				toRestore.forEach(restore::addPath);
+				restore.call();
+			}
+		}
+		
+		// Apply the differences between both commits.
+		for (DiffEntry diff : diffs) {
+			switch (diff.getChangeType()) {
+			case DELETE:
+				deleteWorkingTreeFile(diff.getOldPath());
+				break;
+			case RENAME:
+				File oldFile = new File(rootDirectory, diff.getOldPath());
+				File newFile = new File(rootDirectory, diff.getNewPath());
+				if (diff.getOldId().equals(diff.getNewId()) && diff.getOldMode() == diff.getNewMode()
+						&& oldFile.isFile()) {
+					Files.createDirectories(newFile.getParentFile().toPath());
+					Files.move(oldFile.toPath(), newFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					removeEmptyParents(oldFile.getParentFile());
+				} else {
+					deleteWorkingTreeFile(diff.getOldPath());
+					writeWorkingTreeFile(diff.getNewPath(), diff.getNewId().toObjectId(), diff.getNewMode());
+				}
+				break;
+			default:
+				writeWorkingTreeFile(diff.getNewPath(), diff.getNewId().toObjectId(), diff.getNewMode());
+				break;
+			}
+		}
+		
+		// Detach the HEAD to the second commit and update the index accordingly.
+		RefUpdate headUpdate = repo.getRefDatabase().newUpdate(Constants.HEAD, true);
+		headUpdate.setNewObjectId(newCommit.getId());
+		headUpdate.forceUpdate();
+		git.reset().setMode(ResetType.MIXED).call();
+		latestCommit = newCommit;
+	}
+	
+	private boolean isKeptPath(String path, List<String> keptPathPatterns) {
+		for (String pattern : keptPathPatterns) {
+			if (!pattern.isEmpty() && path.matches(pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void writeWorkingTreeFile(String path, ObjectId blobId, FileMode mode) throws IOException {
+		writeFile(rootDirectory.toPath(), path, blobId, mode);
+	}
+	
+	private void writeFile(Path directory, String path, ObjectId blobId, FileMode mode) throws IOException {
+		if (mode == FileMode.GITLINK) {
+			return;
+		}
+		Path file = directory.resolve(path);
+		Files.createDirectories(file.getParent());
+		ObjectLoader loader = git.getRepository().open(blobId);
+		Files.deleteIfExists(file);
+		if (mode == FileMode.SYMLINK) {
+			try {
+				Files.createSymbolicLink(file, Paths.get(new String(loader.getBytes(), StandardCharsets.UTF_8)));
+				return;
+			} catch (UnsupportedOperationException | IOException e) {
+				// Symbolic links are not supported so that the link target is written as content.
+			}
+		}
+		try (OutputStream out = Files.newOutputStream(file)) {
+			loader.copyTo(out);
+		}
+		if (mode == FileMode.EXECUTABLE_FILE) {
+			file.toFile().setExecutable(true);
+		}
+	}
+	
+	private void deleteWorkingTreeFile(String path) throws IOException {
+		File file = new File(rootDirectory, path);
+		Files.deleteIfExists(file.toPath());
+		removeEmptyParents(file.getParentFile());
+	}
+	
+	private void removeEmptyParents(File directory) {
+		File current = directory;
+		while (current != null && !current.equals(rootDirectory)) {
+			String[] children = current.list();
+			if (children == null || children.length > 0 || !current.delete()) {
+				return;
+			}
+			current = current.getParentFile();
+		}
+	}
+	
+	/**
+	 * Writes all files of a commit into a directory outside of the working tree. Existing content of the directory
+	 * is removed beforehand.
+	 * 
+	 * @param commit the commit whose files are written.
+	 * @param directory the directory in which the files are written.
+	 * @throws IOException if an IO operation cannot be performed.
+	 */
+	public void materializeCommit(RevCommit commit, Path directory) throws IOException {
+		if (Files.exists(directory)) {
+			FileUtils.cleanDirectory(directory.toFile());
+		} else {
+			Files.createDirectories(directory);
+		}
+		try (TreeWalk walk = new TreeWalk(git.getRepository())) {
+			walk.addTree(commit.getTree());
+			walk.setRecursive(true);
+			while (walk.next()) {
+				writeFile(directory, walk.getPathString(), walk.getObjectId(0), walk.getFileMode(0));
+			}
+		}
+	}
+	
 	/**
 	 * Performs a complete cleaning of the git repository, i. e., all untracked and ignored files are removed,
 	 * and all changes are reset to the last commit.
@@ -438,4 +694,48 @@ public class GitRepositoryWrapper {
 		}
 		git.reset().setMode(ResetType.HARD).call();
 	}
+	
+	/**
+	 * Performs a complete cleaning of the git repository like {@link #performCompleteClean()}, but keeps the
+	 * untracked files which match one of the given patterns.
+	 * 
+	 * @param keptPathPatterns regular expressions for paths, relative to the root directory, of untracked files which
+	 *                         shall be kept, e. g., build outputs.
+	 * @throws GitAPIException if a Git operation cannot be performed.
+	 * @throws IOException if an IO operation cannot be performed.
+	 */
+	public void performCompleteClean(List<String> keptPathPatterns) throws GitAPIException, IOException {
+		if (keptPathPatterns.stream().allMatch(String::isEmpty)) {
+			performCompleteClean();
+			return;
+		}
+		Path root = rootDirectory.toPath();
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return dir.equals(root.resolve(".git")) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+				if (!isKeptPath(path, keptPathPatterns)) {
+					Files.delete(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (!dir.equals(root)) {
+					String[] children = dir.toFile().list();
+					if (children != null && children.length == 0) {
+						Files.delete(dir);
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		git.reset().setMode(ResetType.HARD).call();
+	}
 }
@@ -0,0 +1,94 @@
+package cipm.consistency.commitintegration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+/**
+ * Keeps the per-file Java models of the last parsed commit so that the next
+ * commit only requires the re-parsing of its changed Java files.
+ *
+ * @author Martin Armbruster
+ */
+public class IncrementalParsingState {
+	private ResourceSet resourceSet;
+	private String commitId;
+	private IncrementalTrivialRecovery recovery = new IncrementalTrivialRecovery();
+	private Map<Resource, List<EObject>> movedModels;
+
+	/**
+	 * Checks if the kept models represent a given commit and, thus, can be
+	 * updated incrementally.
+	 *
+	 * @param oldCommitId id of the commit on which the next propagation is based.
+	 * @return true if the models can be updated incrementally. false otherwise.
+	 */
+	public boolean isBasedOn(String oldCommitId) {
+		return resourceSet != null && commitId != null && commitId.equals(oldCommitId);
+	}
+
+	public ResourceSet getResourceSet() {
+		return resourceSet;
+	}
+
+	public void setResourceSet(ResourceSet resourceSet) {
+		this.resourceSet = resourceSet;
+	}
+
+	public String getCommitId() {
+		return commitId;
+	}
+
+	public void setCommitId(String commitId) {
+		this.commitId = commitId;
+	}
+
+	/**
+	 * Returns the recovery which keeps the stubs for the unresolved proxies in the kept models.
+	 *
+	 * @return the recovery.
+	 */
+	public IncrementalTrivialRecovery getRecovery() {
+		return recovery;
+	}
+
+	/**
+	 * Records the models of the kept Resources before they are moved into another Resource, e. g., for their
+	 * propagation, so that they are reused without copying them.
+	 */
+	public void recordModels() {
+		movedModels = new LinkedHashMap<>();
+		for (Resource resource : resourceSet.getResources()) {
+			movedModels.put(resource, new ArrayList<>(resource.getContents()));
+		}
+	}
+
+	/**
+	 * Moves the recorded models back into the kept Resources.
+	 */
+	public void restoreModels() {
+		if (movedModels != null) {
+			movedModels.forEach((resource, models) -> resource.getContents().addAll(models));
+			movedModels = null;
+		}
+	}
+
+	/**
+	 * Discards the kept models.
+	 */
+	public void reset() {
+		movedModels = null;
+		if (resourceSet != null) {
+			resourceSet.getResources().forEach(r -> r.unload());
+			resourceSet.getResources().clear();
+		}
+		resourceSet = null;
+		commitId = null;
+		recovery.reset();
+	}
+}
@@ -0,0 +1,240 @@
+package cipm.consistency.commitintegration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import jamopp.recovery.trivial.TrivialRecovery;
+
+/**
+ * A trivial recovery which keeps the stubs synthesized for earlier commits in a stub cache. After the first commit,
+ * only the proxies in re-parsed Resources are resolved and recovered. Proxies which were recovered before are
+ * redirected to their cached stubs. For the remaining proxies, the {@link TrivialRecovery} is executed on a
+ * ResourceSet which only contains the re-parsed Resources. Stubs which are not referenced by any Resource anymore are
+ * removed.
+ *
+ * @author Martin Armbruster
+ */
+public class IncrementalTrivialRecovery {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + IncrementalTrivialRecovery.class.getSimpleName());
+	private Map<URI, URI> stubByProxy = new HashMap<>();
+	private Map<Resource, Set<URI>> referrersOfStub = new HashMap<>();
+	private Map<URI, Set<Resource>> stubsOfReferrer = new HashMap<>();
+
+	/**
+	 * Recovers all Resources of a ResourceSet. The stub cache is rebuilt.
+	 *
+	 * @param resourceSet the ResourceSet.
+	 */
+	public void recoverAll(ResourceSet resourceSet) {
+		reset();
+		recover(resourceSet, new ArrayList<>(resourceSet.getResources()));
+	}
+
+	/**
+	 * Recovers the proxies within some Resources of a ResourceSet.
+	 *
+	 * @param resourceSet the ResourceSet with all Java models and the cached stubs.
+	 * @param resources   the Resources to recover, e. g., the re-parsed Resources.
+	 */
+	public void recover(ResourceSet resourceSet, Collection<Resource> resources) {
+		List<Resource> toRecover = new ArrayList<>();
+		for (Resource resource : resources) {
+			if (!referrersOfStub.containsKey(resource) && resource.getResourceSet() == resourceSet) {
+				toRecover.add(resource);
+			}
+		}
+		// 1. Resolve all proxies which refer to existing models or cached stubs.
+		List<ProxyReference> unresolved = findUnresolvedProxies(toRecover);
+		int redirected = 0;
+		for (ProxyReference proxyRef : unresolved) {
+			URI stub = stubByProxy.get(proxyRef.proxyURI);
+			if (stub != null) {
+				((InternalEObject) proxyRef.proxy).eSetProxyURI(stub);
+				redirected++;
+			}
+		}
+		if (redirected > 0) {
+			unresolved = findUnresolvedProxies(toRecover);
+		}
+
+		// 2. Synthesize stubs for the remaining proxies.
+		Set<Resource> newStubs = new LinkedHashSet<>();
+		if (!unresolved.isEmpty()) {
+			boolean isolated = toRecover.size() < resourceSet.getResources().size();
+			ResourceSet recoverySet = isolated ? new ResourceSetImpl() : resourceSet;
+			if (isolated) {
+				recoverySet.getResources().addAll(toRecover);
+			}
+			Set<Resource> before = new HashSet<>(recoverySet.getResources());
+			new TrivialRecovery(recoverySet).recover();
+			for (Resource resource : recoverySet.getResources()) {
+				if (!before.contains(resource)) {
+					newStubs.add(resource);
+				}
+			}
+			if (isolated) {
+				List<Resource> recovered = new ArrayList<>(recoverySet.getResources());
+				resourceSet.getResources().addAll(recovered);
+			}
+			for (Resource stub : newStubs) {
+				referrersOfStub.put(stub, new HashSet<>());
+			}
+			for (ProxyReference proxyRef : unresolved) {
+				EObject replacement = proxyRef.getCurrentValue();
+				if (replacement != null && !replacement.eIsProxy() && replacement.eResource() != null
+						&& referrersOfStub.containsKey(replacement.eResource())) {
+					stubByProxy.put(proxyRef.proxyURI, EcoreUtil.getURI(replacement));
+				}
+			}
+		}
+
+		// 3. Update the references to the stubs and remove the unreferenced stubs. Stubs can refer to other stubs.
+		for (Resource resource : toRecover) {
+			trackReferences(resource);
+		}
+		for (Resource stub : newStubs) {
+			trackReferences(stub);
+		}
+		collectGarbage(resourceSet);
+		LOGGER.debug("Recovered " + toRecover.size() + " resources: " + redirected + " proxies refer to cached stubs, "
+				+ newStubs.size() + " new stub resources, " + referrersOfStub.size() + " cached stub resources.");
+	}
+
+	private List<ProxyReference> findUnresolvedProxies(Collection<Resource> resources) {
+		List<ProxyReference> result = new ArrayList<>();
+		for (Resource resource : resources) {
+			Map<EObject, Collection<EStructuralFeature.Setting>> proxies = EcoreUtil.UnresolvedProxyCrossReferencer
+					.find(resource);
+			proxies.forEach((proxy, settings) -> {
+				for (EStructuralFeature.Setting setting : settings) {
+					result.add(new ProxyReference(proxy, setting));
+				}
+			});
+		}
+		return result;
+	}
+
+	private void trackReferences(Resource referrer) {
+		Set<Resource> stubs = new HashSet<>();
+		for (EObject target : EcoreUtil.ExternalCrossReferencer.find(referrer).keySet()) {
+			Resource targetResource = target.eResource();
+			if (targetResource != null && referrersOfStub.containsKey(targetResource)) {
+				stubs.add(targetResource);
+			}
+		}
+		release(referrer.getURI());
+		for (Resource stub : stubs) {
+			referrersOfStub.get(stub).add(referrer.getURI());
+		}
+		stubsOfReferrer.put(referrer.getURI(), stubs);
+	}
+
+	/**
+	 * Forgets the references of a Resource to the stubs, e. g., because the Resource is removed or re-parsed.
+	 *
+	 * @param referrer URI of the Resource.
+	 */
+	public void release(URI referrer) {
+		Set<Resource> stubs = stubsOfReferrer.remove(referrer);
+		if (stubs != null) {
+			for (Resource stub : stubs) {
+				Set<URI> referrers = referrersOfStub.get(stub);
+				if (referrers != null) {
+					referrers.remove(referrer);
+				}
+			}
+		}
+	}
+
+	private void collectGarbage(ResourceSet resourceSet) {
+		int removed = 0;
+		List<Resource> unreferenced;
+		do {
+			unreferenced = new ArrayList<>();
+			for (var entry : referrersOfStub.entrySet()) {
+				if (entry.getValue().isEmpty()) {
+					unreferenced.add(entry.getKey());
+				}
+			}
+			for (Resource stub : unreferenced) {
+				referrersOfStub.remove(stub);
+				release(stub.getURI());
+				stubByProxy.values().removeIf(uri -> uri.trimFragment().equals(stub.getURI()));
+				stub.unload();
+				resourceSet.getResources().remove(stub);
+			}
+			removed += unreferenced.size();
+		} while (!unreferenced.isEmpty());
+		if (removed > 0) {
+			LOGGER.debug("Removed " + removed + " unreferenced stub resources.");
+		}
+	}
+
+	/**
+	 * Checks if a Resource contains stubs synthesized by the recovery.
+	 *
+	 * @param resource the Resource.
+	 * @return true if the Resource is a cached stub resource.
+	 */
+	public boolean isStub(Resource resource) {
+		return referrersOfStub.containsKey(resource);
+	}
+
+	public int getNumberOfStubResources() {
+		return referrersOfStub.size();
+	}
+
+	/**
+	 * Empties the stub cache.
+	 */
+	public void reset() {
+		stubByProxy.clear();
+		referrersOfStub.clear();
+		stubsOfReferrer.clear();
+	}
+
+	/**
+	 * A proxy and the position in which it is referenced.
+	 */
+	private static class ProxyReference {
+		private EObject proxy;
+		private URI proxyURI;
+		private EStructuralFeature.Setting setting;
+		private int index = -1;
+
+		ProxyReference(EObject proxy, EStructuralFeature.Setting setting) {
+			this.proxy = proxy;
+			this.proxyURI = ((InternalEObject) proxy).eProxyURI();
+			this.setting = setting;
+			Object value = setting.get(false);
+			if (value instanceof List<?>) {
+				index = ((List<?>) value).indexOf(proxy);
+			}
+		}
+
+		EObject getCurrentValue() {
+			Object value = setting.get(false);
+			if (value instanceof List<?>) {
+				List<?> values = (List<?>) value;
+				value = index >= 0 && index < values.size() ? values.get(index) : null;
+			}
+			return value instanceof EObject ? (EObject) value : null;
+		}
+	}
+}
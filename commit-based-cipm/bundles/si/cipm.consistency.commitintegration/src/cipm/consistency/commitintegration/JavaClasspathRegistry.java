@@ -0,0 +1,191 @@
+package cipm.consistency.commitintegration;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.emftext.language.java.JavaClasspath;
+import org.emftext.language.java.LogicalJavaURIGenerator;
+import org.emftext.language.java.classifiers.ConcreteClassifier;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.JavaRoot;
+import org.emftext.language.java.containers.Module;
+import org.emftext.language.java.containers.Package;
+
+/**
+ * A layer above the global {@link JavaClasspath} which indexes the classpath entries by the Resource that contains
+ * the registered models. As a result, the entries of a Resource can be removed in time proportional to their number
+ * instead of scanning the complete classpath.
+ *
+ * <p>The logical URIs of the entries are derived from the registered models and verified against the classpath. If
+ * a registration adds more entries than could be derived, the entries of the Resource are determined once by a scan.
+ * </p>
+ *
+ * @author Martin Armbruster
+ */
+public final class JavaClasspathRegistry {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaClasspathRegistry.class.getSimpleName());
+	private static final char NESTED_CLASSIFIER_SEPARATOR = '$';
+	private static Map<URI, Set<URI>> entriesByResource = new HashMap<>();
+
+	private JavaClasspathRegistry() {
+	}
+
+	/**
+	 * Registers all Java models of a Resource in the classpath.
+	 *
+	 * @param resource the Resource.
+	 */
+	public static void register(Resource resource) {
+		Map<URI, URI> uriMap = JavaClasspath.get().getURIMap();
+		URI resourceURI = resource.getURI();
+		int sizeBefore = uriMap.size();
+		Set<URI> candidates = new LinkedHashSet<>();
+		boolean hasJavaRoot = false;
+		for (EObject obj : resource.getContents()) {
+			if (obj instanceof JavaRoot) {
+				hasJavaRoot = true;
+				JavaClasspath.get().registerJavaRoot((JavaRoot) obj, resourceURI);
+				collectCandidates((JavaRoot) obj, candidates);
+			}
+		}
+		if (!hasJavaRoot) {
+			return;
+		}
+		Set<URI> entries = entriesByResource.computeIfAbsent(resourceURI, u -> new LinkedHashSet<>());
+		int added = 0;
+		for (URI candidate : candidates) {
+			if (resourceURI.equals(uriMap.get(candidate)) && entries.add(candidate)) {
+				added++;
+			}
+		}
+		if (uriMap.size() - sizeBefore > added) {
+			LOGGER.debug("Scanning the classpath for the entries of " + resourceURI);
+			uriMap.entrySet().stream().filter(e -> resourceURI.equals(e.getValue())).map(Map.Entry::getKey)
+					.forEach(entries::add);
+		}
+	}
+
+	/**
+	 * Registers all Java models of all Resources in a ResourceSet in the classpath.
+	 *
+	 * @param resourceSet the ResourceSet.
+	 */
+	public static void registerAll(ResourceSet resourceSet) {
+		for (Resource resource : resourceSet.getResources()) {
+			register(resource);
+		}
+	}
+
+	/**
+	 * Removes all classpath entries which refer to a Resource. If the Resource was not registered by this registry,
+	 * the entries are derived from its current contents.
+	 *
+	 * @param resource the Resource.
+	 */
+	public static void unregister(Resource resource) {
+		URI resourceURI = resource.getURI();
+		Set<URI> entries = entriesByResource.remove(resourceURI);
+		if (entries == null) {
+			entries = new LinkedHashSet<>();
+			for (EObject obj : resource.getContents()) {
+				if (obj instanceof JavaRoot) {
+					collectCandidates((JavaRoot) obj, entries);
+				}
+			}
+		}
+		removeEntries(resourceURI, entries);
+	}
+
+	/**
+	 * Removes all classpath entries which were registered by this registry for a Resource.
+	 *
+	 * @param resourceURI URI of the Resource.
+	 */
+	public static void unregister(URI resourceURI) {
+		Set<URI> entries = entriesByResource.remove(resourceURI);
+		if (entries != null) {
+			removeEntries(resourceURI, entries);
+		}
+	}
+
+	private static void removeEntries(URI resourceURI, Set<URI> entries) {
+		Map<URI, URI> uriMap = JavaClasspath.get().getURIMap();
+		for (URI entry : entries) {
+			// The entry could be overridden by another Resource in the meantime.
+			if (resourceURI.equals(uriMap.get(entry))) {
+				uriMap.remove(entry);
+			}
+		}
+	}
+
+	private static void collectCandidates(JavaRoot root, Set<URI> candidates) {
+		if (root instanceof Module) {
+			candidates.add(LogicalJavaURIGenerator.getModuleURI(root.getName()));
+		} else if (root instanceof Package) {
+			candidates.add(LogicalJavaURIGenerator.getPackageURI(root.getName()));
+			if (!root.getNamespaces().isEmpty()) {
+				candidates.add(LogicalJavaURIGenerator.getPackageURI(root.getNamespacesAsString() + root.getName()));
+			}
+		} else if (root instanceof CompilationUnit) {
+			for (ConcreteClassifier classifier : root.getChildrenByType(ConcreteClassifier.class)) {
+				candidates.add(LogicalJavaURIGenerator.getJavaFileResourceURI(classifier.getQualifiedName()));
+				candidates.add(LogicalJavaURIGenerator.getJavaFileResourceURI(getNestedName(root, classifier)));
+			}
+		}
+	}
+
+	private static String getNestedName(JavaRoot root, ConcreteClassifier classifier) {
+		StringBuilder builder = new StringBuilder(classifier.getName());
+		EObject container = classifier.eContainer();
+		while (container instanceof ConcreteClassifier) {
+			builder.insert(0, NESTED_CLASSIFIER_SEPARATOR).insert(0, ((ConcreteClassifier) container).getName());
+			container = container.eContainer();
+		}
+		return root.getNamespacesAsString() + builder.toString();
+	}
+
+	/**
+	 * Returns the number of entries in the classpath.
+	 *
+	 * @return the number of entries.
+	 */
+	public static int getClasspathSize() {
+		return JavaClasspath.get().getURIMap().size();
+	}
+
+	/**
+	 * Returns the number of classpath entries which are indexed for a Resource.
+	 *
+	 * @param resourceURI URI of the Resource.
+	 * @return the number of entries.
+	 */
+	public static int getNumberOfEntries(URI resourceURI) {
+		Set<URI> entries = entriesByResource.get(resourceURI);
+		return entries != null ? entries.size() : 0;
+	}
+
+	/**
+	 * Returns the number of entries per indexed Resource.
+	 *
+	 * @return a map of the Resource URIs to their number of entries.
+	 */
+	public static Map<URI, Integer> getNumberOfEntriesPerResource() {
+		return entriesByResource.entrySet().stream()
+				.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().size()));
+	}
+
+	/**
+	 * Forgets all indexed entries without changing the classpath.
+	 */
+	public static void clear() {
+		entriesByResource.clear();
+	}
+}
@@ -0,0 +1,88 @@
+package cipm.consistency.commitintegration;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.diff.DiffEntry;
+
+/**
+ * Represents the Java files which were changed between two commits.
+ *
+ * @author Martin Armbruster
+ */
+public class JavaFileChanges {
+	private Set<Path> changedFiles = new HashSet<>();
+	private Set<Path> removedFiles = new HashSet<>();
+	private String oldCommit;
+	private String newCommit;
+
+	/**
+	 * Creates the changed Java files from the differences between two commits.
+	 *
+	 * @param rootDirectory the root directory of the checked out repository.
+	 * @param diffs         the differences between the two commits.
+	 * @return the changed Java files.
+	 */
+	public static JavaFileChanges fromDiffs(Path rootDirectory, List<DiffEntry> diffs) {
+		return fromDiffs(rootDirectory, diffs, null, null);
+	}
+
+	/**
+	 * Creates the changed Java files from the differences between two commits.
+	 *
+	 * @param rootDirectory the root directory of the checked out repository.
+	 * @param diffs         the differences between the two commits.
+	 * @param oldCommit     id of the first commit. Can be null.
+	 * @param newCommit     id of the second commit. Can be null.
+	 * @return the changed Java files.
+	 */
+	public static JavaFileChanges fromDiffs(Path rootDirectory, List<DiffEntry> diffs, String oldCommit,
+			String newCommit) {
+		JavaFileChanges changes = new JavaFileChanges();
+		changes.oldCommit = oldCommit;
+		changes.newCommit = newCommit;
+		for (DiffEntry diff : diffs) {
+			switch (diff.getChangeType()) {
+			case DELETE:
+				changes.removedFiles.add(rootDirectory.resolve(diff.getOldPath()).toAbsolutePath());
+				break;
+			case RENAME:
+				changes.removedFiles.add(rootDirectory.resolve(diff.getOldPath()).toAbsolutePath());
+				changes.changedFiles.add(rootDirectory.resolve(diff.getNewPath()).toAbsolutePath());
+				break;
+			default:
+				changes.changedFiles.add(rootDirectory.resolve(diff.getNewPath()).toAbsolutePath());
+				break;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Returns the added, modified, copied, or renamed files in their new location.
+	 *
+	 * @return the files.
+	 */
+	public Set<Path> getChangedFiles() {
+		return changedFiles;
+	}
+
+	/**
+	 * Returns the deleted files and the old location of renamed files.
+	 *
+	 * @return the files.
+	 */
+	public Set<Path> getRemovedFiles() {
+		return removedFiles;
+	}
+
+	public String getOldCommit() {
+		return oldCommit;
+	}
+
+	public String getNewCommit() {
+		return newCommit;
+	}
+}
@@ -13,13 +13,19 @@ class JavaFileSystemLayout {
 	static final String localJavaRepoDirName = "local-repo-clone";
 	static final String javaModelFileContainerDirName = "vsum-variant";
 	static final String javaModelFileName = "Java.javaxmi";
+	static final String parsedModelCacheDirName = "parsed-model-cache";
 	static final String instrumentationDirName = "instrumented";
+	static final String pipelineWorktreesDirName = "pipeline-worktrees";
+	static final String preprocessingCacheDirName = "preprocessing-cache";
 	static final String moduleConfigurationFileName = "module-configuration.properties";
 	static final String externalCallTargetPairsFileName = "external-call-target-pairs.json";
 	Path localJavaRepo;
 	Path javaModelFileContainer;
 	Path javaModelFile;
+	Path parsedModelCache;
 	Path instrumentationCopy;
+	Path pipelineWorktrees;
+	Path preprocessingCache;
 	Path moduleConfiguration;
 	Path externalCallTargetPairsFile;
 	
@@ -27,7 +33,10 @@ class JavaFileSystemLayout {
 		localJavaRepo = parent.resolve(localJavaRepoDirName)
 		javaModelFileContainer = parent.resolve(javaModelFileContainerDirName)
 		javaModelFile = javaModelFileContainer.resolve(javaModelFileName)
+		parsedModelCache = javaModelFileContainer.resolve(parsedModelCacheDirName)
 		instrumentationCopy = parent.resolve(instrumentationDirName)
+		pipelineWorktrees = parent.resolve(pipelineWorktreesDirName)
+		preprocessingCache = parent.resolve(preprocessingCacheDirName)
 		moduleConfiguration = parent.resolve(moduleConfigurationFileName);
 		externalCallTargetPairsFile = parent.resolve(externalCallTargetPairsFileName);
 	}
@@ -0,0 +1,233 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.emftext.language.java.containers.Module;
+
+/**
+ * Splits the Java models into one Resource (shard) per detected module. Models which do not belong to a module are
+ * contained in the base shard whose location is the location of the complete Java model. All shards are contained in
+ * one ResourceSet so that references between them are kept as cross-resource references.
+ *
+ * <p>The shards and the files within them are stored in a list next to the base shard. With this list, shards whose
+ * files did not change since the last propagation and do not refer to changed files can be identified.</p>
+ *
+ * @author Martin Armbruster
+ */
+public class JavaModelSharder {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaModelSharder.class.getSimpleName());
+	private static final String SHARD_SEPARATOR = "-";
+	private static final String SHARD_LIST_FILE_EXTENSION = ".shards";
+	private static final String MEMBER_PREFIX = "\t";
+	private Path target;
+	private Map<URI, Set<String>> members = new LinkedHashMap<>();
+	private Map<URI, Set<String>> previousMembers;
+	private Set<URI> changedShards = new HashSet<>();
+	private boolean allChanged;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param target the location of the complete Java model which is used for the base shard.
+	 */
+	public JavaModelSharder(Path target) {
+		this.target = target;
+		this.previousMembers = readShardList(target);
+	}
+
+	/**
+	 * Creates the shards. The models are moved from the per-file Resources into the shards.
+	 *
+	 * @param resourceSet the ResourceSet with the per-file models.
+	 * @param modules     a map of the module names to the Resources within the modules.
+	 * @param changes     the changed files. Can be null which marks all shards as changed.
+	 * @return the shards starting with the base shard.
+	 */
+	public List<Resource> createShards(ResourceSet resourceSet, Map<String, Set<Resource>> modules,
+			JavaFileChanges changes) {
+		Map<Resource, String> moduleOfResource = new HashMap<>();
+		modules.forEach((name, resources) -> resources.forEach(r -> moduleOfResource.put(r, name)));
+		ResourceSet next = new ResourceSetImpl();
+		Resource base = next.createResource(URI.createFileURI(target.toAbsolutePath().toString()));
+		Map<String, Resource> shards = new TreeMap<>();
+		members.clear();
+		members.put(base.getURI(), new TreeSet<>());
+		changedShards.clear();
+		allChanged = changes == null;
+		Set<URI> changedFiles = new HashSet<>();
+		if (changes != null) {
+			changes.getChangedFiles().forEach(f -> changedFiles.add(URI.createFileURI(f.toAbsolutePath().toString())));
+			changes.getRemovedFiles().forEach(f -> changedFiles.add(URI.createFileURI(f.toAbsolutePath().toString())));
+		}
+		for (Resource r : new ArrayList<>(resourceSet.getResources())) {
+			if (r.getContents().isEmpty()) {
+				continue;
+			}
+			String module = moduleOfResource.get(r);
+			if (module == null && r.getContents().get(0) instanceof Module
+					&& modules.containsKey(((Module) r.getContents().get(0)).getName())) {
+				module = ((Module) r.getContents().get(0)).getName();
+			}
+			Resource shard = base;
+			if (module != null) {
+				shard = shards.computeIfAbsent(module,
+						m -> next.createResource(URI.createFileURI(getShardFile(target, m).toString())));
+			}
+			members.computeIfAbsent(shard.getURI(), u -> new TreeSet<>()).add(r.getURI().toString());
+			// The references are checked before the move because the targets are identified by their file.
+			if (!allChanged && !changedShards.contains(shard.getURI())
+					&& (changedFiles.contains(r.getURI()) || refersToChangedFile(r, changedFiles))) {
+				changedShards.add(shard.getURI());
+			}
+			shard.getContents().addAll(r.getContents());
+		}
+		List<Resource> result = new ArrayList<>();
+		result.add(base);
+		result.addAll(shards.values());
+		LOGGER.debug("Created " + result.size() + " shards.");
+		return result;
+	}
+
+	private static boolean refersToChangedFile(Resource resource, Set<URI> changedFiles) {
+		TreeIterator<EObject> contents = resource.getAllContents();
+		while (contents.hasNext()) {
+			for (EObject target : contents.next().eCrossReferences()) {
+				// References into removed files remain proxies.
+				URI targetURI = target.eIsProxy() ? ((InternalEObject) target).eProxyURI().trimFragment()
+						: target.eResource() != null ? target.eResource().getURI() : null;
+				if (targetURI != null && changedFiles.contains(targetURI)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a shard needs to be propagated. This is the case if the shard is new, contains other files than in the
+	 * last propagation, contains a changed file, or refers to a changed or removed file. The references are
+	 * considered because the referenced elements can change without a change of the referencing file, e. g., if a
+	 * method is moved or another overloaded method is resolved.
+	 *
+	 * @param shard the shard.
+	 * @return true if the shard needs to be propagated.
+	 */
+	public boolean isChanged(Resource shard) {
+		Set<String> current = members.get(shard.getURI());
+		Set<String> previous = previousMembers.get(shard.getURI());
+		return allChanged || previous == null || current == null || !previous.equals(current)
+				|| changedShards.contains(shard.getURI());
+	}
+
+	/**
+	 * Returns the URIs of the shards which existed in the last propagation but do not exist anymore.
+	 *
+	 * @return the URIs.
+	 */
+	public List<URI> getRemovedShards() {
+		List<URI> result = new ArrayList<>();
+		for (URI uri : previousMembers.keySet()) {
+			if (!members.containsKey(uri)) {
+				result.add(uri);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the list of the current shards and their files next to the base shard.
+	 */
+	public void saveShardList() {
+		List<String> lines = new ArrayList<>();
+		members.forEach((uri, files) -> {
+			lines.add(uri.toString());
+			files.forEach(f -> lines.add(MEMBER_PREFIX + f));
+		});
+		try {
+			Files.createDirectories(target.toAbsolutePath().getParent());
+			Files.write(getShardListFile(target), lines, StandardCharsets.UTF_8);
+			previousMembers = new LinkedHashMap<>(members);
+		} catch (IOException e) {
+			LOGGER.error(e);
+		}
+	}
+
+	/**
+	 * Returns the locations of the shards from the last propagation.
+	 *
+	 * @param target the location of the complete Java model.
+	 * @return the locations of the shards. If no list of the shards is available, the location of the complete Java
+	 *         model is returned.
+	 */
+	public static List<URI> readShardURIs(Path target) {
+		List<URI> result = new ArrayList<>(readShardList(target).keySet());
+		if (result.isEmpty()) {
+			result.add(URI.createFileURI(target.toAbsolutePath().toString()));
+		}
+		return result;
+	}
+
+	private static Map<URI, Set<String>> readShardList(Path target) {
+		Map<URI, Set<String>> result = new LinkedHashMap<>();
+		Path listFile = getShardListFile(target);
+		if (Files.notExists(listFile)) {
+			return result;
+		}
+		try {
+			Set<String> current = null;
+			for (String line : Files.readAllLines(listFile, StandardCharsets.UTF_8)) {
+				if (line.startsWith(MEMBER_PREFIX)) {
+					if (current != null) {
+						current.add(line.substring(MEMBER_PREFIX.length()));
+					}
+				} else if (!line.isEmpty()) {
+					current = new TreeSet<>();
+					result.put(URI.createURI(line), current);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.error(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the location of the shard for a module.
+	 *
+	 * @param target the location of the complete Java model.
+	 * @param module name of the module.
+	 * @return the location of the shard.
+	 */
+	public static Path getShardFile(Path target, String module) {
+		String fileName = target.getFileName().toString();
+		int extensionIndex = fileName.lastIndexOf('.');
+		String baseName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+		String extension = extensionIndex > 0 ? fileName.substring(extensionIndex) : "";
+		return target.toAbsolutePath()
+				.resolveSibling(baseName + SHARD_SEPARATOR + module.replaceAll("[^A-Za-z0-9._-]", "_") + extension);
+	}
+
+	private static Path getShardListFile(Path target) {
+		return target.toAbsolutePath().resolveSibling(target.getFileName().toString() + SHARD_LIST_FILE_EXTENSION);
+	}
+}
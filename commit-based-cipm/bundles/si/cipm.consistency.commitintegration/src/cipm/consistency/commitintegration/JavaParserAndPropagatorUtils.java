@@ -1,24 +1,40 @@
 package cipm.consistency.commitintegration;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jgit.lib.ObjectId;
 import org.emftext.language.java.JavaClasspath;
-import org.emftext.language.java.containers.JavaRoot;
 import org.emftext.language.java.types.PrimitiveType;
 
 import cipm.consistency.commitintegration.detection.BuildFileBasedComponentDetectionStrategy;
 import cipm.consistency.commitintegration.detection.ComponentDetectionStrategy;
 import cipm.consistency.commitintegration.detection.ComponentModuleDetector;
+import cipm.consistency.commitintegration.detection.ModuleClassificationRules;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.ExecutionTimeData;
+import cipm.consistency.tools.evaluation.data.StageSpan;
 import jamopp.options.ParserOptions;
 import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
 import jamopp.recovery.trivial.TrivialRecovery;
@@ -31,8 +47,12 @@ import tools.vitruv.framework.vsum.VirtualModel;
  * @author Martin Armbruster
  */
 public final class JavaParserAndPropagatorUtils {
+	private static final String JAVA_FILE_EXTENSION = ".java";
+	private static final int CHUNKS_PER_WORKER = 4;
 	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaParserAndPropagatorUtils.class.getSimpleName());
 	private static Configuration config = new Configuration(true, new BuildFileBasedComponentDetectionStrategy());
+	private static ParsedModelCache modelCache;
+	private static LibraryModelCache libraryCache;
 
 	private JavaParserAndPropagatorUtils() {
 	}
@@ -46,7 +66,101 @@ public final class JavaParserAndPropagatorUtils {
 	 * @return the Resource with all models.
 	 */
 	public static Resource parseJavaCodeIntoOneModel(Path dir, Path target, Path modConfig) {
+		return parseJavaCodeIntoOneModel(dir, target, modConfig, null, null);
+	}
+
+	/**
+	 * Parses the Java code and creates one Resource with all models. If a parsing
+	 * state and the changed Java files are given, only the changed Java files are
+	 * re-parsed while the models of all other files are reused from the state.
+	 * 
+	 * @param dir       directory in which the Java code resides.
+	 * @param target    target file of the Resource with all models.
+	 * @param modConfig file which contains the stored module configuration.
+	 * @param state     the state with the models of the previously parsed commit.
+	 *                  Can be null which disables the incremental parsing.
+	 * @param changes   the Java files changed since the previously parsed commit.
+	 *                  Can be null which results in parsing all Java code.
+	 * @return the Resource with all models. If a parsing state is given, the
+	 *         models are moved out of the state and have to be moved back with
+	 *         {@link IncrementalParsingState#restoreModels()}.
+	 */
+	public static Resource parseJavaCodeIntoOneModel(Path dir, Path target, Path modConfig,
+			IncrementalParsingState state, JavaFileChanges changes) {
+		ResourceSet resourceSet = parseJavaCode(dir, modConfig, state, changes);
+		return mergeIntoOneModel(resourceSet, target, state);
+	}
+
+	private static ResourceSet parseJavaCode(Path dir, Path modConfig, IncrementalParsingState state,
+			JavaFileChanges changes) {
 		// 1. Parse the code.
+		ComponentModuleDetector detector = createDetector(changes);
+		ResourceSet resourceSet = parseAndRecover(dir, state, changes, detector);
+
+		// 2. Filter the resources and create modules for components.
+		detectModules(resourceSet, modConfig, detector);
+		return resourceSet;
+	}
+
+	private static Resource mergeIntoOneModel(ResourceSet resourceSet, Path target, IncrementalParsingState state) {
+		// 3. Create one resource with all Java models.
+		LOGGER.debug("Creating one resource with all Java models.");
+		ResourceSet next = new ResourceSetImpl();
+		Resource all = next.createResource(URI.createFileURI(target.toAbsolutePath().toString()));
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_MODEL_MERGE)) {
+			if (state != null) {
+				// The per-file models are kept for the next commit so that they are moved back after the propagation.
+				state.recordModels();
+			}
+			for (Resource r : new ArrayList<>(resourceSet.getResources())) {
+				all.getContents().addAll(r.getContents());
+			}
+			span.count(ExecutionTimeData.COUNTER_FILES, all.getContents().size());
+		}
+		return all;
+	}
+
+	/**
+	 * Parses the Java code and creates one Resource per detected module. If a
+	 * parsing state and the changed Java files are given, only the changed Java
+	 * files are re-parsed while the models of all other files are reused from the
+	 * state.
+	 * 
+	 * @param dir       directory in which the Java code resides.
+	 * @param modConfig file which contains the stored module configuration.
+	 * @param state     the state with the models of the previously parsed commit.
+	 *                  Can be null which disables the incremental parsing.
+	 * @param changes   the Java files changed since the previously parsed commit.
+	 *                  Can be null which results in parsing all Java code.
+	 * @param sharder   the sharder which creates the Resources.
+	 * @return the Resources starting with the Resource for models without a module. If a parsing state is given, the
+	 *         models are moved out of the state and have to be moved back with
+	 *         {@link IncrementalParsingState#restoreModels()}.
+	 */
+	public static List<Resource> parseJavaCodeIntoShards(Path dir, Path modConfig, IncrementalParsingState state,
+			JavaFileChanges changes, JavaModelSharder sharder) {
+		ComponentModuleDetector detector = createDetector(changes);
+		ResourceSet resourceSet = parseAndRecover(dir, state, changes, detector);
+		Map<String, Set<Resource>> modules = detectModules(resourceSet, modConfig, detector);
+		return mergeIntoShards(resourceSet, modules, state, changes, sharder);
+	}
+
+	private static List<Resource> mergeIntoShards(ResourceSet resourceSet, Map<String, Set<Resource>> modules,
+			IncrementalParsingState state, JavaFileChanges changes, JavaModelSharder sharder) {
+		LOGGER.debug("Creating one resource per module.");
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_MODEL_MERGE)) {
+			if (state != null) {
+				// The per-file models are kept for the next commit so that they are moved back after the propagation.
+				state.recordModels();
+			}
+			List<Resource> shards = sharder.createShards(resourceSet, modules, changes);
+			span.count(ExecutionTimeData.COUNTER_FILES, resourceSet.getResources().size());
+			return shards;
+		}
+	}
+
+	private static ResourceSet parseAndRecover(Path dir, IncrementalParsingState state, JavaFileChanges changes,
+			ComponentModuleDetector detector) {
 		ParserOptions.CREATE_LAYOUT_INFORMATION.setValue(Boolean.FALSE);
 		ParserOptions.REGISTER_LOCAL.setValue(Boolean.TRUE);
 		if (config.resolveAll) {
@@ -57,44 +171,348 @@ public final class JavaParserAndPropagatorUtils {
 			ParserOptions.RESOLVE_EVERYTHING.setValue(Boolean.FALSE);
 		}
 		
-		JaMoPPJDTSingleFileParser parser = new JaMoPPJDTSingleFileParser();
-		parser.setResourceSet(new ResourceSetImpl());
-		parser.setExclusionPatterns(CommitIntegrationSettingsContainer.getSettingsContainer()
-				.getProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS).split(";"));
-		LOGGER.debug("Parsing " + dir.toString());
-		ResourceSet resourceSet = parser.parseDirectory(dir);
+		ResourceSet resourceSet;
+		List<Resource> reparsed = null;
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_PARSE)) {
+			if (state != null && changes != null && state.getResourceSet() != null) {
+				resourceSet = state.getResourceSet();
+				LOGGER.debug("Re-parsing " + changes.getChangedFiles().size() + " changed files and removing "
+						+ changes.getRemovedFiles().size() + " files.");
+				reparsed = reparseChangedFiles(resourceSet, changes, state.getRecovery());
+				span.count(ExecutionTimeData.COUNTER_FILES, changes.getChangedFiles().size());
+			} else {
+				if (state != null) {
+					state.reset();
+				}
+				LOGGER.debug("Parsing " + dir.toString());
+				resourceSet = parseDirectory(dir);
+				if (state != null) {
+					state.setResourceSet(resourceSet);
+				}
+				span.count(ExecutionTimeData.COUNTER_FILES, resourceSet.getResources().size());
+			}
+		}
+		
+		// All post-processing steps which need the parsed models are performed in one traversal.
+		ModelVisitorPipeline pipeline = new ModelVisitorPipeline(getParsingParallelism());
+		pipeline.addVisitor(detector.createResourceVisitor(dir.toAbsolutePath()));
+		if (!config.resolveAll) {
+			pipeline.addVisitor(new PrimitiveTypeWrapper());
+		}
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_POST_PARSE_TRAVERSAL)) {
+			List<Resource> traversed = pipeline.traverse(resourceSet);
+			span.count(ExecutionTimeData.COUNTER_FILES, traversed.size());
+			span.count(ExecutionTimeData.COUNTER_EOBJECTS, pipeline.getNumberOfVisitedObjects());
+		}
 		
 		if (!config.resolveAll) {
-			// Wrap all primitive types to ensure that their wrapper classes are loaded.
-			for (var resource : new ArrayList<>(resourceSet.getResources())) {
-				resource.getAllContents().forEachRemaining(obj -> {
-					if (obj instanceof PrimitiveType) {
-						var type = (PrimitiveType) obj;
-						type.wrapPrimitiveType();
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_TRIVIAL_RECOVERY)) {
+				if (state != null && CommitIntegrationSettingsContainer.getSettingsContainer()
+						.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_RECOVERY)) {
+					if (reparsed != null) {
+						state.getRecovery().recover(resourceSet, reparsed);
+						span.count(ExecutionTimeData.COUNTER_FILES, reparsed.size());
+					} else {
+						state.getRecovery().recoverAll(resourceSet);
+						span.count(ExecutionTimeData.COUNTER_FILES, resourceSet.getResources().size());
 					}
-				});
+				} else {
+					int numberResources = resourceSet.getResources().size();
+					new TrivialRecovery(resourceSet).recover();
+					span.count(ExecutionTimeData.COUNTER_FILES, resourceSet.getResources().size() - numberResources);
+				}
 			}
-			new TrivialRecovery(resourceSet).recover();
 		}
 		
 		LOGGER.debug("Parsed " + resourceSet.getResources().size() + " files.");
+		return resourceSet;
+	}
 
-		// 2. Filter the resources and create modules for components.
+	private static ComponentModuleDetector createDetector(JavaFileChanges changes) {
 		ComponentModuleDetector detector = new ComponentModuleDetector();
 		for (var strat : config.strategies) {
 			detector.addComponentDetectionStrategy(strat);
 		}
-		detector.detectComponentsAndCreateModules(resourceSet, dir.toAbsolutePath(), modConfig);
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		detector.setHeadless(settings.getPropertyAsBoolean(SettingKeys.HEADLESS_MODULE_CLASSIFICATION));
+		detector.setParallelism(settings.getPropertyAsInteger(SettingKeys.MODULE_DETECTION_PARALLELISM, 1));
+		if (settings.getPropertyAsBoolean(SettingKeys.INCREMENTAL_MODULE_DETECTION)) {
+			// The detection depends only on the changed files and not on the parsing state. Moved files are detected
+			// again in their new location so that the removed files are not needed.
+			if (changes != null) {
+				detector.setIncrementalDetection(true, changes.getOldCommit(), changes.getNewCommit(),
+						changes.getChangedFiles());
+			} else {
+				detector.setIncrementalDetection(true, null);
+			}
+		}
+		String ruleFile = settings.getProperty(SettingKeys.MODULE_CLASSIFICATION_RULES);
+		if (ruleFile != null && !ruleFile.isBlank()) {
+			try {
+				detector.setClassificationRules(ModuleClassificationRules.load(Paths.get(ruleFile)));
+			} catch (IOException e) {
+				LOGGER.error("Could not read the classification rules from " + ruleFile, e);
+			}
+		}
+		return detector;
+	}
 
-		// 3. Create one resource with all Java models.
-		LOGGER.debug("Creating one resource with all Java models.");
-		ResourceSet next = new ResourceSetImpl();
-		Resource all = next.createResource(URI.createFileURI(target.toAbsolutePath().toString()));
-		for (Resource r : new ArrayList<>(resourceSet.getResources())) {
-			all.getContents().addAll(r.getContents());
+	private static Map<String, Set<Resource>> detectModules(ResourceSet resourceSet, Path modConfig,
+			ComponentModuleDetector detector) {
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_MODULE_DETECTION)) {
+			return detector.createModules(resourceSet, modConfig);
 		}
-		return all;
 	}
+
+	/**
+	 * Wraps all primitive types to ensure that their wrapper classes are loaded.
+	 */
+	private static class PrimitiveTypeWrapper implements ModelVisitor {
+		@Override
+		public void visit(EObject object) {
+			if (object instanceof PrimitiveType) {
+				((PrimitiveType) object).wrapPrimitiveType();
+			}
+		}
+	}
+
+	private static ResourceSet parseDirectory(Path dir) {
+		int parallelism = getParsingParallelism();
+		if (modelCache == null && parallelism <= 1) {
+			return createParser(createResourceSet()).parseDirectory(dir);
+		}
+		// The files are parsed one by one so that cached models can be reused or the files can be distributed.
+		List<Path> files = collectJavaFiles(dir);
+		ResourceSet resourceSet;
+		if (parallelism > 1) {
+			LOGGER.debug("Parsing " + files.size() + " files with " + parallelism + " workers.");
+			resourceSet = parseFilesInParallel(files, parallelism);
+		} else {
+			resourceSet = createResourceSet();
+			JaMoPPJDTSingleFileParser parser = createParser(resourceSet);
+			for (Path file : files) {
+				parseFile(parser, resourceSet, file, true);
+			}
+		}
+		if (config.resolveAll) {
+			EcoreUtil.resolveAll(resourceSet);
+		}
+		return resourceSet;
+	}
+
+	private static ResourceSet createResourceSet() {
+		return libraryCache != null ? libraryCache.createResourceSet() : new ResourceSetImpl();
+	}
+
+	private static List<Path> collectJavaFiles(Path dir) {
+		String[] exclusionPatterns = getExclusionPatterns();
+		try (var files = Files.walk(dir)) {
+			return files.filter(f -> f.getFileName().toString().endsWith(JAVA_FILE_EXTENSION))
+				.filter(Files::isRegularFile).filter(f -> !isExcluded(f, exclusionPatterns))
+				.collect(Collectors.toList());
+		} catch (IOException e) {
+			LOGGER.error(e);
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Parses files in a fork-join pool. Every worker parses its share of the files
+	 * into a worker-local ResourceSet. Afterward, all Resources are merged into one
+	 * ResourceSet.
+	 * 
+	 * @param files       the files to parse.
+	 * @param parallelism the number of workers.
+	 * @return the ResourceSet with the models of all files.
+	 */
+	private static ResourceSet parseFilesInParallel(List<Path> files, int parallelism) {
+		// The global classpath is not thread-safe. Therefore, the workers do not register their models, and
+		// references between files are resolved after the merge.
+		Boolean registerLocal = (Boolean) ParserOptions.REGISTER_LOCAL.getValue();
+		Boolean resolveEverything = (Boolean) ParserOptions.RESOLVE_EVERYTHING.getValue();
+		ResourceSet resourceSet = createResourceSet();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			ParserOptions.REGISTER_LOCAL.setValue(Boolean.FALSE);
+			ParserOptions.RESOLVE_EVERYTHING.setValue(Boolean.FALSE);
+			int chunkSize = Math.max(1, (files.size() + parallelism * CHUNKS_PER_WORKER - 1)
+					/ (parallelism * CHUNKS_PER_WORKER));
+			List<ForkJoinTask<ResourceSet>> tasks = new ArrayList<>();
+			for (int idx = 0; idx < files.size(); idx += chunkSize) {
+				List<Path> chunk = files.subList(idx, Math.min(idx + chunkSize, files.size()));
+				tasks.add(pool.submit(() -> {
+					ResourceSet workerSet = new ResourceSetImpl();
+					JaMoPPJDTSingleFileParser parser = createParser(workerSet);
+					for (Path file : chunk) {
+						parseFile(parser, workerSet, file, false);
+					}
+					return workerSet;
+				}));
+			}
+			for (var task : tasks) {
+				resourceSet.getResources().addAll(new ArrayList<>(task.join().getResources()));
+			}
+		} finally {
+			pool.shutdown();
+			ParserOptions.REGISTER_LOCAL.setValue(registerLocal);
+			ParserOptions.RESOLVE_EVERYTHING.setValue(resolveEverything);
+		}
+		JavaClasspathRegistry.registerAll(resourceSet);
+		return resourceSet;
+	}
+
+	private static int getParsingParallelism() {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		int parallelism = settings.getPropertyAsInteger(SettingKeys.PARSING_PARALLELISM, 1);
+		if (parallelism > 1 && !settings.getPropertyAsBoolean(SettingKeys.ENABLE_PARALLEL_PARSING)) {
+			LOGGER.debug("The parallel parsing is not enabled. Parsing sequentially.");
+			return 1;
+		}
+		return parallelism;
+	}
+
+	private static Resource parseFile(JaMoPPJDTSingleFileParser parser, ResourceSet resourceSet, Path file,
+			boolean registerLocal) {
+		if (modelCache == null) {
+			return parser.parseFile(file);
+		}
+		String optionsKey = getParserOptionsKey();
+		ObjectId blobId = modelCache.computeBlobId(file);
+		Resource resource = modelCache.load(resourceSet, file, blobId, optionsKey);
+		if (resource == null) {
+			resource = parser.parseFile(file);
+			if (resource != null) {
+				modelCache.store(resource, blobId, optionsKey);
+			}
+		} else if (registerLocal) {
+			JavaClasspathRegistry.register(resource);
+		}
+		return resource;
+	}
+
+	private static String getParserOptionsKey() {
+		return config.resolveAll ? "resolve-all" : "resolve-direct";
+	}
+
+	private static JaMoPPJDTSingleFileParser createParser(ResourceSet resourceSet) {
+		JaMoPPJDTSingleFileParser parser = new JaMoPPJDTSingleFileParser();
+		parser.setResourceSet(resourceSet);
+		parser.setExclusionPatterns(getExclusionPatterns());
+		return parser;
+	}
+
+	private static String[] getExclusionPatterns() {
+		return CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS).split(";");
+	}
+
+	private static boolean isExcluded(Path file, String[] exclusionPatterns) {
+		String normalizedPath = file.toAbsolutePath().toString().replace('\\', '/');
+		for (String pattern : exclusionPatterns) {
+			if (!pattern.isEmpty() && normalizedPath.matches(pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Updates the per-file models of the previously parsed commit by removing the
+	 * models of deleted files and re-parsing the changed files.
+	 * 
+	 * @param resourceSet the ResourceSet with the per-file models.
+	 * @param changes     the changed Java files.
+	 * @param recovery    the recovery which keeps the stubs referenced by the per-file models.
+	 * @return the Resources of the re-parsed files and of the kept files whose
+	 *         references into the re-parsed or removed files cannot be resolved.
+	 */
+	private static List<Resource> reparseChangedFiles(ResourceSet resourceSet, JavaFileChanges changes,
+			IncrementalTrivialRecovery recovery) {
+		// The classpath entries of the kept models are removed after every propagation so that they are restored.
+		JavaClasspathRegistry.registerAll(resourceSet);
+		for (Path removed : changes.getRemovedFiles()) {
+			removeFileResource(resourceSet, removed, recovery);
+		}
+		String[] exclusionPatterns = getExclusionPatterns();
+		JaMoPPJDTSingleFileParser parser = createParser(resourceSet);
+		List<Resource> reparsed = new ArrayList<>();
+		for (Path changed : changes.getChangedFiles()) {
+			removeFileResource(resourceSet, changed, recovery);
+			if (Files.exists(changed) && !isExcluded(changed, exclusionPatterns)) {
+				Resource resource = parseFile(parser, resourceSet, changed, true);
+				if (resource != null) {
+					reparsed.add(resource);
+				}
+			}
+		}
+		Set<URI> replaced = new HashSet<>();
+		changes.getRemovedFiles().forEach(f -> replaced.add(URI.createFileURI(f.toAbsolutePath().toString())));
+		changes.getChangedFiles().forEach(f -> replaced.add(URI.createFileURI(f.toAbsolutePath().toString())));
+		reparsed.addAll(relinkDependents(resourceSet, replaced, reparsed));
+		return reparsed;
+	}
+
+	/**
+	 * Resolves the references of the kept models into the removed and re-parsed
+	 * files again. Unloading the previous models of these files turned the
+	 * referenced objects into proxies with the URIs of the files.
+	 * 
+	 * @param resourceSet the ResourceSet with the per-file models.
+	 * @param replaced    the URIs of the removed and re-parsed files.
+	 * @param reparsed    the Resources of the re-parsed files.
+	 * @return the kept Resources with references which cannot be resolved anymore.
+	 */
+	private static List<Resource> relinkDependents(ResourceSet resourceSet, Set<URI> replaced,
+			List<Resource> reparsed) {
+		List<Resource> unresolved = new ArrayList<>();
+		if (replaced.isEmpty()) {
+			return unresolved;
+		}
+		Set<Resource> reparsedResources = new HashSet<>(reparsed);
+		int relinked = 0;
+		for (Resource resource : new ArrayList<>(resourceSet.getResources())) {
+			if (reparsedResources.contains(resource)) {
+				continue;
+			}
+			boolean isResolved = true;
+			for (var entry : EcoreUtil.ProxyCrossReferencer.find(resource).entrySet()) {
+				EObject proxy = entry.getKey();
+				URI uri = ((InternalEObject) proxy).eProxyURI().trimFragment();
+				if (!replaced.contains(uri)) {
+					continue;
+				}
+				// Removed files are not loaded again.
+				EObject target = resourceSet.getResource(uri, false) != null ? EcoreUtil.resolve(proxy, resourceSet)
+						: proxy;
+				if (target.eIsProxy()) {
+					isResolved = false;
+					continue;
+				}
+				for (EStructuralFeature.Setting setting : entry.getValue()) {
+					EcoreUtil.replace(setting, proxy, target);
+					relinked++;
+				}
+			}
+			if (!isResolved) {
+				unresolved.add(resource);
+			}
+		}
+		LOGGER.debug("Resolved " + relinked + " references into changed files. " + unresolved.size()
+				+ " files refer to removed elements.");
+		return unresolved;
+	}
+
+	private static void removeFileResource(ResourceSet resourceSet, Path file, IncrementalTrivialRecovery recovery) {
+		URI uri = URI.createFileURI(file.toAbsolutePath().toString());
+		recovery.release(uri);
+		Resource resource = resourceSet.getResource(uri, false);
+		if (resource != null) {
+			JavaClasspathRegistry.unregister(resource);
+			resource.unload();
+			resourceSet.getResources().remove(resource);
+		}
+	}
+
 	
 	/**
 	 * Sets the configuration for the Java parsing and module / component detection.
@@ -105,6 +523,24 @@ public final class JavaParserAndPropagatorUtils {
 		JavaParserAndPropagatorUtils.config = config;
 	}
 
+	/**
+	 * Sets the cache for parsed models of single Java files.
+	 * 
+	 * @param cache the cache. Can be null which disables the cache.
+	 */
+	public static void setParsedModelCache(ParsedModelCache cache) {
+		JavaParserAndPropagatorUtils.modelCache = cache;
+	}
+
+	/**
+	 * Sets the cache for the models of class files in libraries.
+	 * 
+	 * @param cache the cache. Can be null which disables the cache.
+	 */
+	public static void setLibraryModelCache(LibraryModelCache cache) {
+		JavaParserAndPropagatorUtils.libraryCache = cache;
+	}
+
 	/**
 	 * Performs an integration or change propagation of Java code into Vitruvius.
 	 * 
@@ -115,20 +551,124 @@ public final class JavaParserAndPropagatorUtils {
 	 * @param configPath file path to the module configuration.
 	 */
 	public static void parseAndPropagateJavaCode(Path dir, Path target, VirtualModel vsum, Path configPath) {
+		parseAndPropagateJavaCode(dir, target, vsum, configPath, null, null);
+	}
+
+	/**
+	 * Performs an integration or change propagation of Java code into Vitruvius.
+	 * 
+	 * @param dir        the directory with the Java code.
+	 * @param target     destination in which the complete Java model will be
+	 *                   stored.
+	 * @param vsum       the VSUM.
+	 * @param configPath file path to the module configuration.
+	 * @param state      the state with the models of the previously parsed commit.
+	 *                   Can be null which disables the incremental parsing. If it
+	 *                   does not contain the models of the previously propagated
+	 *                   commit, it has to be reset.
+	 * @param changes    the Java files changed since the previously propagated
+	 *                   commit. They are also used by the incremental module
+	 *                   detection without a state. Can be null which results in
+	 *                   parsing all Java code.
+	 */
+	public static void parseAndPropagateJavaCode(Path dir, Path target, VirtualModel vsum, Path configPath,
+			IncrementalParsingState state, JavaFileChanges changes) {
+		if (CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_MODEL_SHARDING)) {
+			parseAndPropagateJavaCodeInShards(dir, target, vsum, configPath, state, changes);
+			return;
+		}
 		// 1. Parse the Java code and create one Resource with all models.
-		Resource all = parseJavaCodeIntoOneModel(dir, target, configPath);
-		all.getContents().forEach(content -> JavaClasspath.get().registerJavaRoot((JavaRoot) content, all.getURI()));
+		boolean scoped = isScopedPropagationPossible(state, changes);
+		ResourceSet resourceSet = parseJavaCode(dir, configPath, state, changes);
+		// The unchanged compilation units are found in the per-file models before they are merged.
+		Set<String> unchangedCompilationUnits = scoped ? findUnchangedCompilationUnits(state, changes) : null;
+		Resource all = mergeIntoOneModel(resourceSet, target, state);
+		JavaClasspathRegistry.register(all);
+		LOGGER.debug("The classpath contains " + JavaClasspathRegistry.getClasspathSize() + " entries.");
 
 		// 2. Propagate the Java models.
 		LOGGER.debug("Propagating the Java models.");
-		vsum.propagateChangedState(all);
-		JavaClasspath.get().getURIMap().entrySet().stream().filter(entry -> entry.getValue() == all.getURI())
-				.map(Map.Entry::getKey).collect(Collectors.toList())
-				.forEach(u -> JavaClasspath.get().getURIMap().remove(u));
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_PROPAGATION)) {
+			var propagatedChanges = ScopedStatePropagation.propagate(unchangedCompilationUnits,
+					() -> vsum.propagateChangedState(all));
+			span.count(ExecutionTimeData.COUNTER_CHANGES, propagatedChanges.size());
+		} finally {
+			JavaClasspathRegistry.unregister(all);
+			if (state != null) {
+				state.restoreModels();
+			}
+		}
 		all.unload();
 		JavaClasspath.remove(all);
 	}
+
+	private static void parseAndPropagateJavaCodeInShards(Path dir, Path target, VirtualModel vsum, Path configPath,
+			IncrementalParsingState state, JavaFileChanges changes) {
+		// 1. Parse the Java code and create one Resource per module.
+		JavaModelSharder sharder = new JavaModelSharder(target);
+		boolean scoped = isScopedPropagationPossible(state, changes);
+		// Without the models of the previous commit, the stored shards are not known to match it.
+		JavaFileChanges shardChanges = state != null && state.getResourceSet() != null ? changes : null;
+		ComponentModuleDetector detector = createDetector(changes);
+		ResourceSet resourceSet = parseAndRecover(dir, state, changes, detector);
+		Map<String, Set<Resource>> modules = detectModules(resourceSet, configPath, detector);
+		// The unchanged compilation units are found in the per-file models before they are moved into the shards.
+		Set<String> unchangedCompilationUnits = scoped ? findUnchangedCompilationUnits(state, changes) : null;
+		List<Resource> shards = mergeIntoShards(resourceSet, modules, state, shardChanges, sharder);
+		try {
+			shards.forEach(JavaClasspathRegistry::register);
+			LOGGER.debug("The classpath contains " + JavaClasspathRegistry.getClasspathSize() + " entries.");
+
+			// 2. Propagate the changed shards and empty the removed ones.
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_PROPAGATION)) {
+				ResourceSet removedSet = new ResourceSetImpl();
+				for (URI removed : sharder.getRemovedShards()) {
+					LOGGER.debug("Propagating the removal of the shard " + removed);
+					var propagatedChanges = vsum.propagateChangedState(removedSet.createResource(removed));
+					span.count(ExecutionTimeData.COUNTER_CHANGES, propagatedChanges.size());
+				}
+				for (Resource shard : shards) {
+					if (sharder.isChanged(shard)) {
+						LOGGER.debug("Propagating the shard " + shard.getURI());
+						var propagatedChanges = ScopedStatePropagation.propagate(unchangedCompilationUnits,
+								() -> vsum.propagateChangedState(shard));
+						span.count(ExecutionTimeData.COUNTER_CHANGES, propagatedChanges.size());
+						span.count(ExecutionTimeData.COUNTER_SHARDS, 1);
+					}
+				}
+			}
+			sharder.saveShardList();
+		} finally {
+			shards.forEach(JavaClasspathRegistry::unregister);
+			if (state != null) {
+				state.restoreModels();
+			}
+			// As the kept models were moved back, unloading the shards affects only the models which are not kept.
+			for (Resource shard : shards) {
+				shard.unload();
+				JavaClasspath.remove(shard);
+			}
+		}
+	}
 	
+	private static boolean isScopedPropagationPossible(IncrementalParsingState state, JavaFileChanges changes) {
+		// The models of the unchanged files must be the ones of the previously propagated commit.
+		return state != null && changes != null && state.getResourceSet() != null
+				&& CommitIntegrationSettingsContainer.getSettingsContainer()
+						.getPropertyAsBoolean(SettingKeys.PERFORM_SCOPED_STATE_PROPAGATION);
+	}
+
+	private static Set<String> findUnchangedCompilationUnits(IncrementalParsingState state, JavaFileChanges changes) {
+		Predicate<Resource> isChanged = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_RECOVERY) ? state.getRecovery()::isStub
+						: resource -> false;
+		Set<String> unchanged = ScopedStatePropagation.findUnchangedCompilationUnits(state.getResourceSet(), changes,
+				isChanged);
+		LOGGER.debug("Excluding " + unchanged.size() + " unchanged compilation units from the propagation.");
+		return unchanged;
+	}
+
 	public static class Configuration {
 		private ComponentDetectionStrategy[] strategies;
 		private boolean resolveAll;
@@ -0,0 +1,257 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.emftext.language.java.JavaClasspath;
+
+/**
+ * A cache for the models of class files in jar files (library models). A model is identified by the SHA-256 checksum
+ * of its jar file and the path of the class file within the jar. As a result, the cache can be shared across
+ * repositories and runs which use the same libraries. If the cache is read-only, models are only loaded from it.
+ *
+ * <p>The cache is used by the ResourceSets created with {@link #createResourceSet()}. They load a library model from
+ * the cache when a proxy is resolved into the jar so that the class file is not parsed again. The ResourceSets can
+ * be used concurrently, e. g., by the parallel parsing.</p>
+ *
+ * @author Martin Armbruster
+ */
+public class LibraryModelCache {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + LibraryModelCache.class.getSimpleName());
+	private static final String ARCHIVE_SCHEME = "archive";
+	private static final String ARCHIVE_SEPARATOR = "!/";
+	private static final String JAR_FILE_EXTENSION = ".jar";
+	private static final String CLASS_FILE_EXTENSION = ".class";
+	private static final String MODEL_FILE_EXTENSION = ".xmi";
+	private Path cacheDirectory;
+	private boolean readOnly;
+	private Map<Path, JarChecksum> checksums = new ConcurrentHashMap<>();
+	private AtomicInteger hits = new AtomicInteger();
+	private AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param cacheDirectory the directory in which the library models are stored.
+	 * @param readOnly       true if no models are stored in the cache.
+	 */
+	public LibraryModelCache(Path cacheDirectory, boolean readOnly) {
+		this.cacheDirectory = cacheDirectory;
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * Creates a ResourceSet which loads the library models from this cache and stores missing models in it.
+	 *
+	 * @return the ResourceSet.
+	 */
+	public ResourceSet createResourceSet() {
+		return new CachingResourceSet();
+	}
+
+	/**
+	 * Returns the file in which the model of a class file is cached.
+	 *
+	 * @param uri URI of the Resource for the class file. It can be a logical URI which is mapped by the Java classpath.
+	 * @param resourceSet the ResourceSet in which the URI is resolved.
+	 * @return the file or null if the URI does not refer to a class file in a jar.
+	 */
+	Path getModelFile(URI uri, ResourceSet resourceSet) {
+		URI physical = normalize(uri, resourceSet);
+		if (!ARCHIVE_SCHEME.equals(physical.scheme())) {
+			return null;
+		}
+		String uriString = physical.toString();
+		int separatorIndex = uriString.indexOf(ARCHIVE_SEPARATOR);
+		if (separatorIndex < 0 || !uriString.endsWith(CLASS_FILE_EXTENSION)) {
+			return null;
+		}
+		URI jarURI = URI.createURI(uriString.substring(ARCHIVE_SCHEME.length() + 1, separatorIndex));
+		if (!jarURI.isFile() || !jarURI.toFileString().endsWith(JAR_FILE_EXTENSION)) {
+			return null;
+		}
+		String checksum = getChecksum(Paths.get(jarURI.toFileString()));
+		if (checksum == null) {
+			return null;
+		}
+		String entry = uriString.substring(separatorIndex + ARCHIVE_SEPARATOR.length());
+		return cacheDirectory.resolve(checksum).resolve(entry + MODEL_FILE_EXTENSION);
+	}
+
+	private URI normalize(URI uri, ResourceSet resourceSet) {
+		URI withoutFragment = uri.trimFragment();
+		URI mapped = JavaClasspath.get().getURIMap().get(withoutFragment);
+		if (mapped != null) {
+			return mapped;
+		}
+		return resourceSet.getURIConverter().normalize(withoutFragment);
+	}
+
+	private String getChecksum(Path jar) {
+		try {
+			long size = Files.size(jar);
+			long lastModified = Files.getLastModifiedTime(jar).toMillis();
+			JarChecksum checksum = checksums.get(jar);
+			if (checksum == null || checksum.size != size || checksum.lastModified != lastModified) {
+				checksum = new JarChecksum(computeSha256(jar), size, lastModified);
+				checksums.put(jar, checksum);
+			}
+			return checksum.sha256;
+		} catch (IOException e) {
+			LOGGER.debug("Could not compute the checksum of " + jar + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static String computeSha256(Path file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+			in.transferTo(OutputStream.nullOutputStream());
+		}
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Loads a cached library model.
+	 *
+	 * @param resourceSet the ResourceSet in which the model is loaded.
+	 * @param uri         URI of the Resource for the class file.
+	 * @param modelFile   the file of the cached model.
+	 * @return the Resource with the cached model or null if no model is cached.
+	 */
+	private Resource load(ResourceSet resourceSet, URI uri, Path modelFile) {
+		if (!Files.exists(modelFile)) {
+			return null;
+		}
+		Resource resource = new XMIResourceImpl(uri);
+		try (InputStream in = Files.newInputStream(modelFile)) {
+			resource.load(in, null);
+		} catch (IOException e) {
+			LOGGER.debug("Could not load the cached library model for " + uri + ": " + e.getMessage());
+			return null;
+		}
+		resourceSet.getResources().add(resource);
+		return resource;
+	}
+
+	/**
+	 * Stores a library model in the cache.
+	 *
+	 * @param resource  the Resource with the library model.
+	 * @param modelFile the file in which the model is stored.
+	 */
+	private void store(Resource resource, Path modelFile) {
+		if (readOnly || resource.getContents().isEmpty() || Files.exists(modelFile)) {
+			return;
+		}
+		// The library resource can differ from XMI so that the contents are temporarily moved into an XMI resource.
+		XMIResourceImpl xmiResource = new XMIResourceImpl(resource.getURI());
+		var contents = new ArrayList<EObject>(resource.getContents());
+		xmiResource.getContents().addAll(contents);
+		Map<Object, Object> options = new HashMap<>();
+		// Cross-references are stored with absolute URIs so that the model can be used by other ResourceSets.
+		options.put(XMLResource.OPTION_URI_HANDLER, new AbsoluteURIHandler());
+		try {
+			Files.createDirectories(modelFile.getParent());
+			Path tmpFile = Files.createTempFile(modelFile.getParent(), modelFile.getFileName().toString(), null);
+			try (OutputStream out = Files.newOutputStream(tmpFile)) {
+				xmiResource.save(out, options);
+			}
+			// The atomic move allows the concurrent use of the cache by multiple runs.
+			Files.move(tmpFile, modelFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.debug("Could not store the library model for " + resource.getURI() + ": " + e.getMessage());
+		} finally {
+			resource.getContents().addAll(contents);
+		}
+	}
+
+	public Path getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	public int getHits() {
+		return hits.get();
+	}
+
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * A ResourceSet which loads library models from the cache on demand.
+	 */
+	private class CachingResourceSet extends ResourceSetImpl {
+		@Override
+		protected Resource demandCreateResource(URI uri) {
+			Path modelFile = getModelFile(uri, this);
+			if (modelFile != null) {
+				Resource resource = load(this, uri, modelFile);
+				if (resource != null) {
+					hits.incrementAndGet();
+					return resource;
+				}
+			}
+			return super.demandCreateResource(uri);
+		}
+
+		@Override
+		protected void demandLoad(Resource resource) throws IOException {
+			if (resource.isLoaded()) {
+				// The Resource was loaded from the cache when it was created.
+				return;
+			}
+			super.demandLoad(resource);
+			Path modelFile = getModelFile(resource.getURI(), this);
+			if (modelFile != null) {
+				misses.incrementAndGet();
+				store(resource, modelFile);
+			}
+		}
+	}
+
+	/**
+	 * The checksum of a jar file together with the attributes for which it was computed.
+	 */
+	private static class JarChecksum {
+		private String sha256;
+		private long size;
+		private long lastModified;
+
+		JarChecksum(String sha256, long size, long lastModified) {
+			this.sha256 = sha256;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
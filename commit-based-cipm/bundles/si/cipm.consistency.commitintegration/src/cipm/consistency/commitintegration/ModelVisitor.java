@@ -0,0 +1,39 @@
+package cipm.consistency.commitintegration;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * A post-processing step for the Java models which is executed within the single traversal of a
+ * {@link ModelVisitorPipeline}.
+ * 
+ * @author Martin Armbruster
+ */
+public interface ModelVisitor {
+	/**
+	 * Visits a Resource before its contents are visited.
+	 * 
+	 * @param resource the Resource.
+	 * @return true if the contents of the Resource shall be visited. false if this visitor only needs the Resource.
+	 */
+	default boolean visitResource(Resource resource) {
+		return true;
+	}
+
+	/**
+	 * Visits an EObject within a Resource for which {@link #visitResource(Resource)} returned true.
+	 * 
+	 * @param object the EObject.
+	 */
+	default void visit(EObject object) {
+	}
+
+	/**
+	 * Checks if this visitor can visit different Resources concurrently.
+	 * 
+	 * @return true if the visitor is thread-safe.
+	 */
+	default boolean isThreadSafe() {
+		return false;
+	}
+}
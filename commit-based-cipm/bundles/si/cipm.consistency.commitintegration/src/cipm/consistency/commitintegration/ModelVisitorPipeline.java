@@ -0,0 +1,116 @@
+package cipm.consistency.commitintegration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+/**
+ * Executes multiple post-processing steps for the Java models in one traversal. Every step is registered as a
+ * {@link ModelVisitor}, and every EObject is traversed once for all visitors. If all visitors are thread-safe, the
+ * Resources can be traversed in parallel.
+ * 
+ * @author Martin Armbruster
+ */
+public class ModelVisitorPipeline {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModelVisitorPipeline.class.getSimpleName());
+	private List<ModelVisitor> visitors = new ArrayList<>();
+	private int parallelism;
+	private AtomicLong visitedObjects = new AtomicLong();
+
+	/**
+	 * Creates a new sequential pipeline.
+	 */
+	public ModelVisitorPipeline() {
+		this(1);
+	}
+
+	/**
+	 * Creates a new pipeline.
+	 * 
+	 * @param parallelism the number of threads which traverse the Resources in parallel. Values lower than two or
+	 *                    visitors which are not thread-safe result in a sequential traversal.
+	 */
+	public ModelVisitorPipeline(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Adds a visitor. The visitors are called in the order in which they are added.
+	 * 
+	 * @param visitor the visitor.
+	 * @return this pipeline.
+	 */
+	public ModelVisitorPipeline addVisitor(ModelVisitor visitor) {
+		visitors.add(visitor);
+		return this;
+	}
+
+	/**
+	 * Traverses all Resources of a ResourceSet. Resources which are added during the traversal are not visited.
+	 * 
+	 * @param resourceSet the ResourceSet.
+	 * @return the traversed Resources.
+	 */
+	public List<Resource> traverse(ResourceSet resourceSet) {
+		List<Resource> resources = new ArrayList<>(resourceSet.getResources());
+		traverse(resources);
+		return resources;
+	}
+
+	/**
+	 * Traverses Resources.
+	 * 
+	 * @param resources the Resources.
+	 */
+	public void traverse(Collection<Resource> resources) {
+		if (parallelism > 1 && visitors.stream().allMatch(ModelVisitor::isThreadSafe)) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.submit(() -> resources.parallelStream().forEach(this::traverse)).join();
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			resources.forEach(this::traverse);
+		}
+		LOGGER.debug("Traversed " + resources.size() + " resources with " + visitors.size() + " visitors.");
+	}
+
+	private void traverse(Resource resource) {
+		List<ModelVisitor> contentVisitors = new ArrayList<>(visitors.size());
+		for (ModelVisitor visitor : visitors) {
+			if (visitor.visitResource(resource)) {
+				contentVisitors.add(visitor);
+			}
+		}
+		if (contentVisitors.isEmpty()) {
+			return;
+		}
+		long count = 0;
+		var iterator = resource.getAllContents();
+		while (iterator.hasNext()) {
+			EObject obj = iterator.next();
+			for (ModelVisitor visitor : contentVisitors) {
+				visitor.visit(obj);
+			}
+			count++;
+		}
+		visitedObjects.addAndGet(count);
+	}
+
+	/**
+	 * Returns the number of EObjects which were traversed since the creation of this pipeline.
+	 * 
+	 * @return the number of EObjects.
+	 */
+	public long getNumberOfVisitedObjects() {
+		return visitedObjects.get();
+	}
+}
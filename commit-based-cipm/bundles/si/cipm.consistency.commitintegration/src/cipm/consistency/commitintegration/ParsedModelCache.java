@@ -0,0 +1,316 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAnnotation;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+/**
+ * A content-addressed cache for the parsed models of single Java files. A model
+ * is identified by the Git blob id of the file content and by a key for the
+ * parser options which were used to parse the file. As a result, identical file
+ * versions are parsed only once across commits and branches.
+ *
+ * <p>Cross-references are stored with absolute URIs so that a model can be
+ * loaded for another location of the same content, e. g., after a rename. The
+ * references depend on the models which were available when the file was
+ * parsed. References with logical classpath URIs are resolved against the
+ * classpath when the model is loaded. For the references into other Java
+ * files, the blob ids of these files are stored with the model, and the model
+ * is only reused if all of them are unchanged.</p>
+ *
+ * <p>The size of the cache is bounded. If it exceeds its maximum size, the least
+ * recently used models are removed. The usage is tracked with the modification
+ * times of the model files.</p>
+ *
+ * @author Martin Armbruster
+ */
+public class ParsedModelCache {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ParsedModelCache.class.getSimpleName());
+	/**
+	 * The default maximum size of the cache in megabytes.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1024;
+	private static final String MODEL_FILE_EXTENSION = ".xmi";
+	private static final String DEPENDENCIES_ANNOTATION = "cipm.parsedmodelcache.dependencies";
+	private static final String MISSING_DEPENDENCY = "";
+	// The cache is pruned below its maximum size so that not every stored model causes a pruning.
+	private static final double PRUNING_RATIO = 0.8;
+	private Path cacheDirectory;
+	private long maxSize;
+	private long size = -1;
+
+	/**
+	 * Creates a new instance with the default maximum size.
+	 *
+	 * @param cacheDirectory the directory in which the parsed models are stored.
+	 */
+	public ParsedModelCache(Path cacheDirectory) {
+		this(cacheDirectory, DEFAULT_MAX_SIZE * 1024L * 1024L);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param cacheDirectory the directory in which the parsed models are stored.
+	 * @param maxSize        the maximum size of the cache in bytes.
+	 */
+	public ParsedModelCache(Path cacheDirectory, long maxSize) {
+		this.cacheDirectory = cacheDirectory;
+		this.maxSize = maxSize;
+	}
+
+	public Path getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Computes the Git blob id for the content of a file.
+	 *
+	 * @param file the file.
+	 * @return the blob id or null if the file cannot be read.
+	 */
+	public ObjectId computeBlobId(Path file) {
+		try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+			return formatter.idFor(Constants.OBJ_BLOB, Files.readAllBytes(file));
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Loads a cached model into a ResourceSet. The model is not registered in the
+	 * Java classpath.
+	 *
+	 * @param resourceSet the ResourceSet in which the model is loaded.
+	 * @param file        the Java file whose model is loaded.
+	 * @param blobId      the blob id of the file content.
+	 * @param optionsKey  the key for the used parser options.
+	 * @return the Resource with the cached model or null if no model is cached or
+	 *         a Java file referenced by the model changed.
+	 */
+	public Resource load(ResourceSet resourceSet, Path file, ObjectId blobId, String optionsKey) {
+		if (blobId == null) {
+			return null;
+		}
+		Path modelFile = getModelFile(blobId, optionsKey);
+		if (!Files.exists(modelFile)) {
+			return null;
+		}
+		Resource resource = new XMIResourceImpl(URI.createFileURI(file.toAbsolutePath().toString()));
+		try (InputStream in = Files.newInputStream(modelFile)) {
+			resource.load(in, null);
+		} catch (IOException e) {
+			LOGGER.debug("Could not load the cached model for " + file + ": " + e.getMessage());
+			return null;
+		}
+		if (!hasUnchangedDependencies(resource)) {
+			LOGGER.debug("The Java files referenced by the cached model for " + file + " changed.");
+			resource.unload();
+			return null;
+		}
+		resourceSet.getResources().add(resource);
+		try {
+			// The modification time marks the model as recently used.
+			Files.setLastModifiedTime(modelFile, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			LOGGER.debug("Could not mark the cached model for " + file + " as used: " + e.getMessage());
+		}
+		return resource;
+	}
+
+	/**
+	 * Stores a parsed model in the cache.
+	 *
+	 * @param resource   the Resource with the parsed model.
+	 * @param blobId     the blob id of the parsed file content.
+	 * @param optionsKey the key for the used parser options.
+	 */
+	public void store(Resource resource, ObjectId blobId, String optionsKey) {
+		if (blobId == null || resource.getContents().isEmpty()) {
+			return;
+		}
+		Path modelFile = getModelFile(blobId, optionsKey);
+		EAnnotation dependencies = createDependencies(resource);
+		// The Java resource prints Java code so that the contents are temporarily moved into an XMI resource.
+		XMIResourceImpl xmiResource = new XMIResourceImpl(resource.getURI());
+		var contents = new ArrayList<EObject>(resource.getContents());
+		xmiResource.getContents().addAll(contents);
+		xmiResource.getContents().add(dependencies);
+		Map<Object, Object> options = new HashMap<>();
+		options.put(XMLResource.OPTION_URI_HANDLER, new AbsoluteURIHandler());
+		try {
+			Files.createDirectories(modelFile.getParent());
+			Path tmpFile = Files.createTempFile(modelFile.getParent(), blobId.getName(), null);
+			try (OutputStream out = Files.newOutputStream(tmpFile)) {
+				xmiResource.save(out, options);
+			}
+			// A model stored for other referenced files is replaced.
+			long previousSize = Files.exists(modelFile) ? Files.size(modelFile) : 0;
+			Files.move(tmpFile, modelFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			addStoredModel(Files.size(modelFile) - previousSize);
+		} catch (IOException e) {
+			LOGGER.debug("Could not store the parsed model for " + resource.getURI() + ": " + e.getMessage());
+		} finally {
+			resource.getContents().addAll(contents);
+		}
+	}
+
+	/**
+	 * Creates an annotation with the blob ids of the Java files into which a model refers.
+	 *
+	 * @param resource the Resource with the model.
+	 * @return the annotation.
+	 */
+	private EAnnotation createDependencies(Resource resource) {
+		Map<String, String> files = new TreeMap<>();
+		TreeIterator<EObject> contents = resource.getAllContents();
+		while (contents.hasNext()) {
+			for (EObject target : contents.next().eCrossReferences()) {
+				URI targetURI = target.eIsProxy() ? ((InternalEObject) target).eProxyURI().trimFragment()
+						: target.eResource() != null ? target.eResource().getURI() : null;
+				if (targetURI == null || !targetURI.isFile() || targetURI.equals(resource.getURI())) {
+					continue;
+				}
+				files.computeIfAbsent(targetURI.toString(), u -> getBlobName(targetURI));
+			}
+		}
+		EAnnotation annotation = EcoreFactory.eINSTANCE.createEAnnotation();
+		annotation.setSource(DEPENDENCIES_ANNOTATION);
+		annotation.getDetails().putAll(files);
+		return annotation;
+	}
+
+	private boolean hasUnchangedDependencies(Resource resource) {
+		EObject last = resource.getContents().isEmpty() ? null
+				: resource.getContents().get(resource.getContents().size() - 1);
+		if (!(last instanceof EAnnotation) || !DEPENDENCIES_ANNOTATION.equals(((EAnnotation) last).getSource())) {
+			// The model was stored without its dependencies.
+			return false;
+		}
+		resource.getContents().remove(last);
+		for (var entry : ((EAnnotation) last).getDetails()) {
+			if (!entry.getValue().equals(getBlobName(URI.createURI(entry.getKey())))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String getBlobName(URI fileURI) {
+		Path file = Paths.get(fileURI.toFileString());
+		ObjectId blobId = Files.isRegularFile(file) ? computeBlobId(file) : null;
+		return blobId != null ? blobId.getName() : MISSING_DEPENDENCY;
+	}
+
+	private synchronized void addStoredModel(long modelSize) throws IOException {
+		if (size < 0) {
+			// The size of the models stored by previous runs is determined once.
+			size = 0;
+			for (ModelFile model : listModelFiles()) {
+				size += model.size;
+			}
+		} else {
+			size += modelSize;
+		}
+		if (size > maxSize) {
+			prune();
+		}
+	}
+
+	/**
+	 * Removes the least recently used models until the cache is sufficiently below its maximum size.
+	 *
+	 * @throws IOException if the cache cannot be read.
+	 */
+	private void prune() throws IOException {
+		List<ModelFile> models = listModelFiles();
+		models.sort(Comparator.comparingLong(m -> m.lastUsed));
+		long targetSize = (long) (maxSize * PRUNING_RATIO);
+		size = models.stream().mapToLong(m -> m.size).sum();
+		int numberRemovedModels = 0;
+		for (ModelFile model : models) {
+			if (size <= targetSize) {
+				break;
+			}
+			if (Files.deleteIfExists(model.path)) {
+				numberRemovedModels++;
+			}
+			size -= model.size;
+		}
+		LOGGER.debug("Removed " + numberRemovedModels + " parsed models from the cache. The cache contains " + size
+				+ " bytes.");
+	}
+
+	private List<ModelFile> listModelFiles() throws IOException {
+		if (!Files.exists(cacheDirectory)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> stream = Files.walk(cacheDirectory)) {
+			List<ModelFile> result = new ArrayList<>();
+			for (Path path : stream.filter(p -> p.getFileName().toString().endsWith(MODEL_FILE_EXTENSION))
+					.collect(Collectors.toList())) {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+					result.add(new ModelFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+				} catch (IOException e) {
+					// The model was removed in the meantime.
+				}
+			}
+			return result;
+		}
+	}
+
+	private Path getModelFile(ObjectId blobId, String optionsKey) {
+		String name = blobId.getName();
+		return cacheDirectory.resolve(optionsKey).resolve(name.substring(0, 2))
+				.resolve(name.substring(2) + MODEL_FILE_EXTENSION);
+	}
+
+	/**
+	 * A stored model file.
+	 */
+	private static class ModelFile {
+		private Path path;
+		private long size;
+		private long lastUsed;
+
+		ModelFile(Path path, long size, long lastUsed) {
+			this.path = path;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
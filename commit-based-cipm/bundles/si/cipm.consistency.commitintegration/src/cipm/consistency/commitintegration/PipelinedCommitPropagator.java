@@ -0,0 +1,230 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.ExecutionTimeData;
+import cipm.consistency.tools.evaluation.data.StageSpan;
+
+/**
+ * Propagates the changes of a range of commits in a pipeline. While the changes
+ * of one commit are propagated into the VSUM, the following commits are
+ * prepared in a background thread, i. e., their differences are computed and
+ * their files are written into a separate directory and preprocessed. The
+ * number of prepared commits is bounded so that the preparation waits if the
+ * propagation falls behind. If the preparation or propagation of a commit
+ * fails, all following commits are cancelled.
+ * 
+ * Only the preparation overlaps with the propagation. The parsing of a prepared
+ * commit is performed within the propagation stage because the Java parser and
+ * the propagation share the global Java classpath. As the prepared commits are
+ * not checked out in the local repository, the pipeline does not support the
+ * incremental parsing and the targeted checkout. The
+ * {@link CommitChangePropagator} propagates the commits one after another if
+ * one of them is enabled.
+ * 
+ * @author Martin Armbruster
+ */
+public class PipelinedCommitPropagator {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + PipelinedCommitPropagator.class.getSimpleName());
+	private static final PreparedCommit END_OF_PIPELINE = new PreparedCommit(null, null, null, null, false);
+	private CommitChangePropagator propagator;
+	private BlockingQueue<PreparedCommit> preparedCommits;
+	private BlockingQueue<Path> freeWorktrees;
+
+	/**
+	 * Represents a commit whose files are written into a directory and
+	 * preprocessed.
+	 */
+	private static final class PreparedCommit {
+		private RevCommit start;
+		private RevCommit end;
+		private List<DiffEntry> diffs;
+		private Path worktree;
+		private boolean preprocessed;
+
+		private PreparedCommit(RevCommit start, RevCommit end, List<DiffEntry> diffs, Path worktree,
+				boolean preprocessed) {
+			this.start = start;
+			this.end = end;
+			this.diffs = diffs;
+			this.worktree = worktree;
+			this.preprocessed = preprocessed;
+		}
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param propagator the propagator which provides the repository and VSUM.
+	 * @param capacity   the number of prepared commits which may wait for their
+	 *                   propagation.
+	 */
+	public PipelinedCommitPropagator(CommitChangePropagator propagator, int capacity) {
+		this.propagator = propagator;
+		int boundedCapacity = Math.max(1, capacity);
+		preparedCommits = new ArrayBlockingQueue<>(boundedCapacity + 1);
+		// One worktree is propagated, the queued ones wait, and one is prepared.
+		int numberWorktrees = boundedCapacity + 2;
+		freeWorktrees = new ArrayBlockingQueue<>(numberWorktrees);
+		Path worktreeRoot = propagator.getJavaFileSystemLayout().getPipelineWorktrees();
+		for (int idx = 0; idx < numberWorktrees; idx++) {
+			freeWorktrees.add(worktreeRoot.resolve(Integer.toString(idx)));
+		}
+	}
+
+	/**
+	 * Propagates changes from a given list of commits to the VSUM.
+	 * 
+	 * @param commits the list of commits with changes to propagate. The first
+	 *                commit is the already propagated base commit.
+	 * @throws GitAPIException if there is an exception within the Git usage.
+	 * @throws IOException     if something from the repositories cannot be read.
+	 */
+	public void propagateChanges(List<RevCommit> commits) throws GitAPIException, IOException {
+		if (commits.size() < 2) {
+			return;
+		}
+		LOGGER.debug("Propagating " + (commits.size() - 1) + " commits in a pipeline.");
+		propagator.configureParsedModelCache();
+		ExecutorService preparationExecutor = Executors.newSingleThreadExecutor();
+		Future<Void> preparation = preparationExecutor.submit(() -> {
+			try {
+				prepareCommits(commits);
+			} finally {
+				try {
+					preparedCommits.put(END_OF_PIPELINE);
+				} catch (InterruptedException e) {
+					// The pipeline was cancelled so that nobody waits for the end.
+				}
+			}
+			return null;
+		});
+		RevCommit lastPropagated = null;
+		try {
+			try {
+				PreparedCommit prepared = preparedCommits.take();
+				while (prepared != END_OF_PIPELINE) {
+					if (!prepared.preprocessed) {
+						LOGGER.debug("The preprocessing of " + prepared.end.getId().getName()
+								+ " failed. Cancelling the following commits.");
+						break;
+					}
+					propagatePreparedCommit(prepared);
+					lastPropagated = prepared.end;
+					freeWorktrees.put(prepared.worktree);
+					prepared = preparedCommits.take();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				preparation.cancel(true);
+				preparationExecutor.shutdownNow();
+				preparedCommits.clear();
+			}
+			try {
+				preparation.get();
+			} catch (ExecutionException e) {
+				throw new IOException("The preparation of a commit failed.", e.getCause());
+			} catch (InterruptedException | CancellationException e) {
+				// The preparation was cancelled because the propagation stopped.
+			}
+		} finally {
+			// The last propagated commit is also checked out if the propagation of a following commit failed.
+			finishPipeline(lastPropagated);
+		}
+		LOGGER.debug("Finished propagating the commits.");
+	}
+
+	private void prepareCommits(List<RevCommit> commits) throws IOException, InterruptedException {
+		GitRepositoryWrapper wrapper = propagator.getWrapper();
+		RevCommit first = commits.get(0);
+		for (int idx = 1; idx < commits.size(); idx++) {
+			RevCommit next = commits.get(idx);
+			List<DiffEntry> diffs;
+			// The statistics are recorded by the propagating thread so that the global change statistic is not shared.
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_TREE_DIFF)) {
+				diffs = wrapper.scanDiffsBetweenTwoCommits(first, next, true, true);
+				span.count(ExecutionTimeData.COUNTER_FILES, diffs.size());
+			}
+			if (diffs.size() == 0) {
+				LOGGER.debug("No Java files changed for " + next.getId().getName()
+						+ " so that no propagation is performed.");
+				continue;
+			}
+			Path worktree = freeWorktrees.take();
+			LOGGER.debug("Preparing " + next.getId().getName() + " in " + worktree);
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_CHECKOUT)) {
+				wrapper.materializeCommit(next, worktree);
+			}
+			boolean preprocessed;
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_PREPROCESS)) {
+				preprocessed = propagator.preprocess(worktree.toFile());
+			}
+			preparedCommits.put(new PreparedCommit(first, next, diffs, worktree, preprocessed));
+			if (!preprocessed) {
+				return;
+			}
+			first = next;
+		}
+	}
+
+	private void propagatePreparedCommit(PreparedCommit prepared) throws IOException {
+		String oldId = prepared.start != null ? prepared.start.getId().getName() : null;
+		String commitId = prepared.end.getId().getName();
+		GitRepositoryWrapper wrapper = propagator.getWrapper();
+		wrapper.setCollectChangeStatistics(!CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.SKIP_CHANGE_STATISTICS));
+		var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
+		cs.setNumberAddedLines(0);
+		cs.setNumberRemovedLines(0);
+		wrapper.recordChangeStatistics(prepared.diffs);
+		cs.setOldCommit(oldId != null ? oldId : "");
+		cs.setNewCommit(commitId);
+		cs.setNumberCommits(wrapper.getAllCommitsBetweenTwoCommits(oldId, commitId).size() + 1);
+		LOGGER.debug("Propagating the prepared commit " + commitId);
+		JavaFileSystemLayout fileLayout = propagator.getJavaFileSystemLayout();
+		JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(prepared.worktree, fileLayout.getJavaModelFile(),
+				propagator.getVSUM(), fileLayout.getModuleConfiguration());
+		LOGGER.debug("Finished the propagation of " + commitId);
+	}
+
+	/**
+	 * Checks out the last propagated commit in the local repository so that
+	 * following steps, e. g., the instrumentation, find the corresponding code,
+	 * and removes the worktrees.
+	 * 
+	 * @param lastPropagated the last propagated commit. Can be null.
+	 * @throws IOException if an IO operation cannot be performed.
+	 */
+	private void finishPipeline(RevCommit lastPropagated) throws IOException {
+		if (lastPropagated != null) {
+			GitRepositoryWrapper wrapper = propagator.getWrapper();
+			try {
+				wrapper.performCompleteClean();
+				wrapper.checkout(lastPropagated.getId().getName());
+			} catch (GitAPIException e) {
+				throw new IOException(e);
+			}
+			propagator.preprocess(wrapper.getRootDirectory());
+		}
+		FileUtils.deleteQuietly(propagator.getJavaFileSystemLayout().getPipelineWorktrees().toFile());
+	}
+}
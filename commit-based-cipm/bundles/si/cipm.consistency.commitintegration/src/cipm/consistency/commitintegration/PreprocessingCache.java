@@ -0,0 +1,275 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A cache for the outputs of the preprocessing script. The declared inputs of
+ * the script, e. g., build files, are fingerprinted together with the script
+ * and the output patterns. If the outputs of a previous run with the same
+ * fingerprint are cached, they are restored instead of running the script.
+ * 
+ * <p>The size of the cache is bounded. If it exceeds its maximum size, the
+ * least recently used outputs are removed. The usage is tracked with the
+ * modification times of the completion markers. The outputs of the current run
+ * are kept even if they exceed the maximum size alone.</p>
+ * 
+ * @author Martin Armbruster
+ */
+public class PreprocessingCache {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + PreprocessingCache.class.getSimpleName());
+	private static final String GIT_DIRECTORY_NAME = ".git";
+	private static final String COMPLETION_MARKER_FILE_NAME = ".complete";
+	/**
+	 * The default maximum size of the cache in megabytes.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 2048;
+	// The cache is pruned below its maximum size so that not every stored output causes a pruning.
+	private static final double PRUNING_RATIO = 0.8;
+	private Path cacheDirectory;
+	private List<PathMatcher> inputMatchers;
+	private List<String> outputGlobs;
+	private List<PathMatcher> outputMatchers;
+	private long maxSize;
+
+	/**
+	 * Creates a new instance with the default maximum size.
+	 * 
+	 * @param cacheDirectory the directory in which the outputs are cached.
+	 * @param inputGlobs     glob patterns for the paths of the input files
+	 *                       relative to the checked out commit.
+	 * @param outputGlobs    glob patterns for the paths of the output files
+	 *                       relative to the checked out commit.
+	 */
+	public PreprocessingCache(Path cacheDirectory, List<String> inputGlobs, List<String> outputGlobs) {
+		this(cacheDirectory, inputGlobs, outputGlobs, DEFAULT_MAX_SIZE * 1024L * 1024L);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param cacheDirectory the directory in which the outputs are cached.
+	 * @param inputGlobs     glob patterns for the paths of the input files
+	 *                       relative to the checked out commit.
+	 * @param outputGlobs    glob patterns for the paths of the output files
+	 *                       relative to the checked out commit.
+	 * @param maxSize        the maximum size of the cache in bytes.
+	 */
+	public PreprocessingCache(Path cacheDirectory, List<String> inputGlobs, List<String> outputGlobs, long maxSize) {
+		this.cacheDirectory = cacheDirectory;
+		this.inputMatchers = createMatchers(inputGlobs);
+		this.outputGlobs = trim(outputGlobs);
+		this.outputMatchers = createMatchers(outputGlobs);
+		this.maxSize = maxSize;
+	}
+
+	private static List<String> trim(List<String> globs) {
+		return globs.stream().map(String::trim).filter(g -> !g.isEmpty()).collect(Collectors.toList());
+	}
+
+	private static List<PathMatcher> createMatchers(List<String> globs) {
+		return trim(globs).stream().map(g -> FileSystems.getDefault().getPathMatcher("glob:" + g))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Runs the preprocessing script or restores its cached outputs.
+	 * 
+	 * @param directory the directory which contains the checked out commit.
+	 * @param script    path to the preprocessing script.
+	 * @return true if the preprocessing was successful. false otherwise.
+	 */
+	public boolean preprocess(Path directory, Path script) {
+		String fingerprint;
+		try {
+			fingerprint = computeFingerprint(directory, script);
+		} catch (IOException e) {
+			LOGGER.debug("Could not fingerprint the preprocessing inputs: " + e.getMessage());
+			return ExternalCommandExecutionUtils.runScript(directory.toFile(), script.toString());
+		}
+		Path entry = cacheDirectory.resolve(fingerprint);
+		Path marker = entry.resolve(COMPLETION_MARKER_FILE_NAME);
+		if (Files.exists(marker)) {
+			try {
+				LOGGER.debug("Restoring the cached preprocessing outputs " + fingerprint);
+				copyOutputs(entry, directory);
+				Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+				return true;
+			} catch (IOException e) {
+				LOGGER.debug("Could not restore the cached outputs: " + e.getMessage());
+			}
+		}
+		boolean result = ExternalCommandExecutionUtils.runScript(directory.toFile(), script.toString());
+		if (result) {
+			try {
+				FileUtils.deleteQuietly(entry.toFile());
+				copyOutputs(directory, entry);
+				Files.createFile(marker);
+			} catch (IOException e) {
+				LOGGER.debug("Could not cache the preprocessing outputs: " + e.getMessage());
+				FileUtils.deleteQuietly(entry.toFile());
+				return result;
+			}
+			try {
+				prune(entry);
+			} catch (IOException e) {
+				LOGGER.debug("Could not prune the preprocessing cache: " + e.getMessage());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the least recently used outputs until the cache is sufficiently below its maximum size.
+	 * 
+	 * @param current the cache entry of the current run which is kept.
+	 * @throws IOException if the cache cannot be read.
+	 */
+	private void prune(Path current) throws IOException {
+		List<CacheEntry> entries = listEntries();
+		long size = entries.stream().mapToLong(e -> e.size).sum();
+		if (size <= maxSize) {
+			return;
+		}
+		entries.sort(Comparator.comparingLong(e -> e.lastUsed));
+		long targetSize = (long) (maxSize * PRUNING_RATIO);
+		int numberRemovedEntries = 0;
+		for (CacheEntry entry : entries) {
+			if (size <= targetSize) {
+				break;
+			}
+			if (entry.path.equals(current)) {
+				continue;
+			}
+			FileUtils.deleteQuietly(entry.path.toFile());
+			numberRemovedEntries++;
+			size -= entry.size;
+		}
+		LOGGER.debug("Removed " + numberRemovedEntries + " preprocessing outputs from the cache. The cache contains "
+				+ size + " bytes.");
+	}
+
+	private List<CacheEntry> listEntries() throws IOException {
+		List<CacheEntry> result = new ArrayList<>();
+		if (!Files.exists(cacheDirectory)) {
+			return result;
+		}
+		try (Stream<Path> stream = Files.list(cacheDirectory)) {
+			for (Path path : stream.collect(Collectors.toList())) {
+				Path marker = path.resolve(COMPLETION_MARKER_FILE_NAME);
+				if (!Files.exists(marker)) {
+					// The outputs are not completely cached yet, e. g., by a concurrent run.
+					continue;
+				}
+				try (Stream<Path> files = Files.walk(path)) {
+					long size = files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+					result.add(new CacheEntry(path, size, Files.getLastModifiedTime(marker).toMillis()));
+				} catch (IOException e) {
+					// The entry was removed in the meantime.
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the fingerprint over the content of the script, the output
+	 * patterns, and the paths and contents of all input files.
+	 * 
+	 * @param directory the directory which contains the checked out commit.
+	 * @param script    path to the preprocessing script.
+	 * @return the fingerprint.
+	 * @throws IOException if a file cannot be read.
+	 */
+	private String computeFingerprint(Path directory, Path script) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		updateDigest(digest, script);
+		for (String glob : outputGlobs) {
+			// The outputs of other patterns cannot be restored.
+			digest.update((glob + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		for (Path input : collectFiles(directory, inputMatchers)) {
+			digest.update(toRelativeString(directory, input).getBytes(StandardCharsets.UTF_8));
+			updateDigest(digest, input);
+		}
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	private void updateDigest(MessageDigest digest, Path file) throws IOException {
+		try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+			in.transferTo(OutputStream.nullOutputStream());
+		}
+	}
+
+	private void copyOutputs(Path source, Path target) throws IOException {
+		for (Path file : collectFiles(source, outputMatchers)) {
+			Path targetFile = target.resolve(source.relativize(file));
+			Files.createDirectories(targetFile.getParent());
+			Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Collects all files below a directory whose relative paths match one of the
+	 * given matchers. The files are sorted by their relative paths.
+	 */
+	private List<Path> collectFiles(Path directory, List<PathMatcher> matchers) throws IOException {
+		if (matchers.isEmpty()) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(f -> !directory.relativize(f).startsWith(GIT_DIRECTORY_NAME))
+					.filter(Files::isRegularFile)
+					.filter(f -> matchers.stream().anyMatch(m -> m.matches(directory.relativize(f))))
+					.sorted((f1, f2) -> toRelativeString(directory, f1).compareTo(toRelativeString(directory, f2)))
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static String toRelativeString(Path directory, Path file) {
+		return directory.relativize(file).toString().replace('\\', '/');
+	}
+
+	/**
+	 * A cache entry with the outputs of one fingerprint.
+	 */
+	private static class CacheEntry {
+		private Path path;
+		private long size;
+		private long lastUsed;
+
+		CacheEntry(Path path, long size, long lastUsed) {
+			this.path = path;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
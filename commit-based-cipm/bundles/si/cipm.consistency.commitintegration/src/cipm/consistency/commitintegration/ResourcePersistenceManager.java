@@ -0,0 +1,253 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+/**
+ * Manages the saving of model Resources which are modified outside of the change propagation, e. g., the
+ * instrumentation model when its action instrumentation points are deactivated.
+ *
+ * <p>Without the deferred mode, every save request immediately saves the Resource. In the deferred mode, Resources are
+ * tracked with EMF's modification tracking so that unmodified Resources are never saved. Save requests are collected
+ * and coalesced so that every Resource is saved at most once per commit. Saves performed by others, e. g., by the
+ * V-SUM after a change propagation, reset the modification so that they are not repeated. {@link #flushAsync()}
+ * copies the collected Resources on the calling thread and serializes the copies on a background thread. Therefore,
+ * the models can be modified afterward, and such modifications are saved by a later flush. The serialization is
+ * completed by {@link #flush()} at the end of a commit. Files are written into a temporary file, forced to the disk,
+ * and moved to their location so that a completed flush is durable.</p>
+ *
+ * @author Martin Armbruster
+ */
+public final class ResourcePersistenceManager {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ResourcePersistenceManager.class.getSimpleName());
+	private static final ResourcePersistenceManager GLOBAL_MANAGER = new ResourcePersistenceManager();
+	private final Set<Resource> pendingResources = new LinkedHashSet<>();
+	private ExecutorService executor;
+	private Future<List<Resource>> runningFlush;
+	private boolean deferred;
+
+	private ResourcePersistenceManager() {
+	}
+
+	public static ResourcePersistenceManager getGlobalManager() {
+		return GLOBAL_MANAGER;
+	}
+
+	/**
+	 * Sets if save requests are deferred until the next flush.
+	 *
+	 * @param deferred true if the saves are deferred. false if they are performed immediately.
+	 */
+	public synchronized void setDeferred(boolean deferred) {
+		this.deferred = deferred;
+	}
+
+	/**
+	 * Starts tracking the modifications of a Resource in the deferred mode so that it is only saved if it is modified
+	 * afterward.
+	 *
+	 * @param resource the Resource.
+	 */
+	public synchronized void track(Resource resource) {
+		if (deferred && !resource.isTrackingModification()) {
+			resource.setTrackingModification(true);
+		}
+	}
+
+	/**
+	 * Requests to save a Resource. In the deferred mode, a Resource which was not tracked before is considered to be
+	 * modified.
+	 *
+	 * @param resource the Resource.
+	 * @throws IOException if the Resource is immediately saved and the saving fails.
+	 */
+	public void requestSave(Resource resource) throws IOException {
+		synchronized (this) {
+			if (deferred) {
+				if (!resource.isTrackingModification()) {
+					resource.setTrackingModification(true);
+					resource.setModified(true);
+				}
+				pendingResources.add(resource);
+				return;
+			}
+		}
+		resource.save(null);
+	}
+
+	/**
+	 * Starts to save all requested Resources on a background thread. The modified Resources are copied on the calling
+	 * thread so that the background thread does not access the models.
+	 */
+	public synchronized void flushAsync() {
+		if (pendingResources.isEmpty()) {
+			return;
+		}
+		List<DetachedResource> toSave = new ArrayList<>();
+		for (Resource resource : pendingResources) {
+			if (resource.isModified()) {
+				toSave.add(new DetachedResource(resource));
+				// The flag is reset here so that a later modification causes another save.
+				resource.setModified(false);
+			}
+		}
+		int numberRequested = pendingResources.size();
+		pendingResources.clear();
+		Future<List<Resource>> previousFlush = runningFlush;
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "cipm-resource-persistence");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		runningFlush = executor.submit(() -> {
+			List<Resource> failed = new ArrayList<>();
+			if (previousFlush != null) {
+				failed.addAll(previousFlush.get());
+			}
+			int numberSaved = 0;
+			for (DetachedResource detached : toSave) {
+				try {
+					save(detached.copy, detached.saveOptions);
+					numberSaved++;
+				} catch (IOException | RuntimeException e) {
+					LOGGER.error("Could not save " + detached.copy.getURI(), e);
+					failed.add(detached.original);
+				}
+			}
+			LOGGER.debug("Saved " + numberSaved + " of " + numberRequested + " requested Resources.");
+			return failed;
+		});
+	}
+
+	/**
+	 * Saves all requested Resources and waits until they are written.
+	 *
+	 * @throws IOException if a Resource cannot be saved. The Resource is marked as modified and requested again.
+	 */
+	public void flush() throws IOException {
+		Future<List<Resource>> flush;
+		synchronized (this) {
+			flushAsync();
+			flush = runningFlush;
+			runningFlush = null;
+		}
+		if (flush == null) {
+			return;
+		}
+		List<Resource> failed;
+		try {
+			failed = flush.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		if (!failed.isEmpty()) {
+			synchronized (this) {
+				failed.forEach(resource -> resource.setModified(true));
+				pendingResources.addAll(failed);
+			}
+			throw new IOException("Could not save " + failed.size() + " Resources.");
+		}
+	}
+
+	/**
+	 * Discards all requested saves, e. g., because the models are reloaded. A running flush is completed.
+	 */
+	public void discard() {
+		Future<List<Resource>> flush;
+		synchronized (this) {
+			pendingResources.clear();
+			flush = runningFlush;
+			runningFlush = null;
+		}
+		if (flush != null) {
+			try {
+				flush.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				LOGGER.error(e.getCause());
+			}
+		}
+	}
+
+	private static void save(Resource resource, Map<?, ?> saveOptions) throws IOException {
+		if (!resource.getURI().isFile()) {
+			resource.save(saveOptions);
+			return;
+		}
+		Path target = Paths.get(resource.getURI().toFileString()).toAbsolutePath();
+		Files.createDirectories(target.getParent());
+		Path tmpFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), null);
+		try {
+			try (OutputStream out = Files.newOutputStream(tmpFile)) {
+				resource.save(out, saveOptions);
+			}
+			try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+			Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
+	}
+
+	/**
+	 * A copy of a Resource which is not contained in a ResourceSet. References to objects in other Resources still
+	 * point to the original objects so that they are saved with the same URIs.
+	 */
+	private static class DetachedResource {
+		private Resource original;
+		private Resource copy;
+		private Map<?, ?> saveOptions;
+
+		DetachedResource(Resource original) {
+			this.original = original;
+			Resource.Factory factory = original.getResourceSet() != null
+					? original.getResourceSet().getResourceFactoryRegistry().getFactory(original.getURI())
+					: Resource.Factory.Registry.INSTANCE.getFactory(original.getURI());
+			copy = factory != null ? factory.createResource(original.getURI()) : new XMIResourceImpl(original.getURI());
+			EcoreUtil.Copier copier = new EcoreUtil.Copier();
+			copy.getContents().addAll(copier.copyAll(original.getContents()));
+			copier.copyReferences();
+			if (original instanceof XMLResource && copy instanceof XMLResource) {
+				// The IDs are kept so that the saved files do not differ from the files of the original Resources.
+				for (Map.Entry<EObject, EObject> entry : copier.entrySet()) {
+					String id = ((XMLResource) original).getID(entry.getKey());
+					if (id != null) {
+						((XMLResource) copy).setID(entry.getValue(), id);
+					}
+				}
+			}
+			// Only save(Map) applies the default save options, e. g., for the binary encoding, on its own.
+			saveOptions = new HashMap<>(original.getDefaultSaveOptions());
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package cipm.consistency.commitintegration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.emftext.language.java.containers.CompilationUnit;
+
+import cipm.consistency.domains.java.AdjustedJavaDomain;
+import tools.vitruv.domains.provider.java.AdjustedJavaDomainProvider;
+
+/**
+ * A utility class for state-based propagations of Java models which are restricted to the changed compilation units.
+ * The compilation units of unchanged Java files are excluded from the comparison between the new and stored state
+ * unless they are added or removed. Packages, modules, and the compilation units created by a recovery are always
+ * compared.
+ *
+ * @author Martin Armbruster
+ */
+public final class ScopedStatePropagation {
+	private ScopedStatePropagation() {
+	}
+
+	/**
+	 * Determines the compilation units which did not change since the previously propagated commit. A compilation
+	 * unit is unchanged if its Java file did not change and it does not reference a changed compilation unit.
+	 *
+	 * @param resourceSet the ResourceSet with the models of all Java files of the current commit.
+	 * @param changes     the Java files changed since the previously propagated commit.
+	 * @param isChanged   checks if a Resource which is not a Java file changed, e. g., because it was created by a
+	 *                    recovery.
+	 * @return the names of the unchanged compilation units.
+	 */
+	public static Set<String> findUnchangedCompilationUnits(ResourceSet resourceSet, JavaFileChanges changes,
+			Predicate<Resource> isChanged) {
+		Set<Resource> unchangedResources = new HashSet<>();
+		Set<String> changedNames = new HashSet<>();
+		for (Resource resource : resourceSet.getResources()) {
+			CompilationUnit cu = getCompilationUnit(resource);
+			if (cu == null) {
+				continue;
+			}
+			if (resource.getURI().isFile() && !changes.getChangedFiles().contains(toPath(resource))) {
+				unchangedResources.add(resource);
+			} else if (resource.getURI().isFile() || isChanged.test(resource)) {
+				changedNames.add(cu.getName());
+			}
+		}
+		Set<String> result = new HashSet<>();
+		for (Resource resource : unchangedResources) {
+			CompilationUnit cu = getCompilationUnit(resource);
+			// A compilation unit with the same name as a changed one cannot be distinguished in the stored state.
+			if (!changedNames.contains(cu.getName()) && !referencesChangedResource(cu, unchangedResources, isChanged)) {
+				result.add(cu.getName());
+			}
+		}
+		return result;
+	}
+
+	private static boolean referencesChangedResource(CompilationUnit cu, Set<Resource> unchangedResources,
+			Predicate<Resource> isChanged) {
+		TreeIterator<EObject> contents = cu.eAllContents();
+		while (contents.hasNext()) {
+			for (EObject target : contents.next().eCrossReferences()) {
+				Resource targetResource = target.eResource();
+				if (targetResource == null || targetResource == cu.eResource()
+						|| unchangedResources.contains(targetResource)) {
+					continue;
+				}
+				if (targetResource.getURI().isFile() && getCompilationUnit(targetResource) != null
+						|| isChanged.test(targetResource)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static CompilationUnit getCompilationUnit(Resource resource) {
+		if (!resource.getContents().isEmpty() && resource.getContents().get(0) instanceof CompilationUnit) {
+			return (CompilationUnit) resource.getContents().get(0);
+		}
+		return null;
+	}
+
+	private static Path toPath(Resource resource) {
+		return Paths.get(resource.getURI().toFileString()).toAbsolutePath();
+	}
+
+	/**
+	 * Performs a state-based propagation in which unchanged compilation units are not compared.
+	 *
+	 * @param <T>                       type of the propagation result.
+	 * @param unchangedCompilationUnits names of the unchanged compilation units.
+	 * @param propagation               the propagation, e. g., a call of propagateChangedState of the V-SUM.
+	 * @return the result of the propagation.
+	 */
+	public static <T> T propagate(Set<String> unchangedCompilationUnits, Supplier<T> propagation) {
+		AdjustedJavaDomain domain = new AdjustedJavaDomainProvider().getDomain();
+		domain.setUnchangedCompilationUnits(unchangedCompilationUnits);
+		try {
+			return propagation.get();
+		} finally {
+			domain.setUnchangedCompilationUnits(null);
+		}
+	}
+}
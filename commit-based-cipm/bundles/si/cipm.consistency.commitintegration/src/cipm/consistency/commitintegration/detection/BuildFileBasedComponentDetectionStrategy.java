@@ -1,45 +1,124 @@
 package cipm.consistency.commitintegration.detection;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.log4j.Logger;
 import org.eclipse.emf.ecore.resource.Resource;
 
 /**
  * A component discovery strategy which considers build and deployment
- * configuration files.
+ * configuration files. The build files are indexed once per detection, and the
+ * detected module is memoized per directory.
  * 
  * @author Martin Armbruster
  */
 public class BuildFileBasedComponentDetectionStrategy implements ComponentDetectionStrategy {
+	private static final Logger LOGGER = Logger
+			.getLogger("cipm." + BuildFileBasedComponentDetectionStrategy.class.getSimpleName());
 	private static final String MAVEN_POM_FILE_NAME = "pom.xml";
 	private static final String GRADLE_BUILD_FILE_NAME = "build.gradle";
 	private static final String DOCKERFILE_FILE_NAME = "Dockerfile";
+	private static final DetectedModule NO_MODULE = new DetectedModule(null, null);
+	private BuildFileIndex index;
+	private Path indexedContainer;
+	private Map<Path, DetectedModule> modulePerDirectory = new ConcurrentHashMap<>();
+
+	@Override
+	public void prepareDetection(Path container) {
+		modulePerDirectory.clear();
+		indexedContainer = container;
+		try {
+			index = new BuildFileIndex(container,
+					Set.of(MAVEN_POM_FILE_NAME, GRADLE_BUILD_FILE_NAME, DOCKERFILE_FILE_NAME));
+		} catch (IOException e) {
+			LOGGER.error("Could not index the build files. They are checked per directory.", e);
+			index = null;
+		}
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public Collection<Path> getDetectionInputs() {
+		// Without the index, the build files are unknown.
+		return index != null ? index.getFiles() : null;
+	}
 
 	@Override
 	public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
-		Path parent = file.getParent();
+		DetectedModule module = findModule(file.getParent(), container);
+		if (module != NO_MODULE) {
+			candidate.addModuleClassifier(module.state, module.name, res);
+		}
+	}
+
+	private DetectedModule findModule(Path start, Path container) {
 		// Beginning with the Java file, the file system hierarchy is searched upwards
-		// until the container directory is reached.
-		while (container.compareTo(parent) != 0) {
-			boolean buildFileExistence = checkSiblingExistence(parent, MAVEN_POM_FILE_NAME)
-					|| checkSiblingExistence(parent, GRADLE_BUILD_FILE_NAME);
-			boolean dockerFileExistence = checkSiblingExistence(parent, DOCKERFILE_FILE_NAME);
+		// until the container directory is reached. All visited directories share
+		// the found module.
+		boolean memoize = container.equals(indexedContainer);
+		List<Path> visited = new ArrayList<>();
+		Path parent = start;
+		DetectedModule result = null;
+		while (result == null) {
+			if (parent == null || container.compareTo(parent) == 0) {
+				result = NO_MODULE;
+				break;
+			}
+			result = memoize ? modulePerDirectory.get(parent) : null;
+			if (result != null) {
+				break;
+			}
+			visited.add(parent);
+			Path buildDir = parent.getParent();
+			boolean buildFileExistence = exists(buildDir, MAVEN_POM_FILE_NAME, container)
+					|| exists(buildDir, GRADLE_BUILD_FILE_NAME, container);
 			if (buildFileExistence) {
-				String modName = parent.getParent().getFileName().toString();
-				if (dockerFileExistence) {
-					candidate.addModuleClassifier(ModuleState.MICROSERVICE_COMPONENT, modName, res);
+				String modName = buildDir.getFileName().toString();
+				if (exists(buildDir, DOCKERFILE_FILE_NAME, container)) {
+					result = new DetectedModule(modName, ModuleState.MICROSERVICE_COMPONENT);
 				} else {
-					candidate.addModuleClassifier(ModuleState.COMPONENT_CANDIDATE, modName, res);
+					result = new DetectedModule(modName, ModuleState.COMPONENT_CANDIDATE);
 				}
-				return;
 			}
-			parent = parent.getParent();
+			parent = buildDir;
+		}
+		if (memoize) {
+			for (Path dir : visited) {
+				modulePerDirectory.put(dir, result);
+			}
 		}
+		return result;
 	}
 
-	private boolean checkSiblingExistence(Path file, String siblingName) {
-		Path sibling = file.resolveSibling(siblingName);
-		return Files.exists(sibling);
+	private boolean exists(Path dir, String fileName, Path container) {
+		if (index != null && container.equals(indexedContainer)) {
+			return index.contains(dir.toAbsolutePath(), fileName);
+		}
+		return Files.exists(dir.resolve(fileName));
+	}
+
+	/**
+	 * The module detected for a directory.
+	 */
+	private static class DetectedModule {
+		private String name;
+		private ModuleState state;
+
+		DetectedModule(String name, ModuleState state) {
+			this.name = name;
+			this.state = state;
+		}
 	}
 }
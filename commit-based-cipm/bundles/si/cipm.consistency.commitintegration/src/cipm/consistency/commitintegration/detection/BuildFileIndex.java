@@ -0,0 +1,86 @@
+package cipm.consistency.commitintegration.detection;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An index of the directories which contain build or deployment configuration files. The index is created by a single
+ * walk of a directory tree so that the existence of the files does not need to be checked per Java file.
+ * 
+ * @author Martin Armbruster
+ */
+public class BuildFileIndex {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + BuildFileIndex.class.getSimpleName());
+	private static final String GIT_DIRECTORY_NAME = ".git";
+	private Map<Path, Set<String>> filesPerDirectory = new HashMap<>();
+
+	/**
+	 * Creates the index for a directory tree.
+	 * 
+	 * @param root       the root of the directory tree.
+	 * @param fileNames  names of the indexed files.
+	 * @throws IOException if the directory tree cannot be walked.
+	 */
+	public BuildFileIndex(Path root, Set<String> fileNames) throws IOException {
+		long start = System.currentTimeMillis();
+		Files.walkFileTree(root.toAbsolutePath(), new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return dir.getFileName() != null && dir.getFileName().toString().equals(GIT_DIRECTORY_NAME)
+						? FileVisitResult.SKIP_SUBTREE
+						: FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				String name = file.getFileName().toString();
+				if (fileNames.contains(name)) {
+					filesPerDirectory.computeIfAbsent(file.getParent(), d -> new HashSet<>()).add(name);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		LOGGER.debug("Indexed " + filesPerDirectory.size() + " directories with build files in "
+				+ (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Checks if a directory contains a file.
+	 * 
+	 * @param dir      the absolute path of the directory.
+	 * @param fileName name of the file.
+	 * @return true if the directory contains the file.
+	 */
+	public boolean contains(Path dir, String fileName) {
+		Set<String> files = filesPerDirectory.get(dir);
+		return files != null && files.contains(fileName);
+	}
+
+	/**
+	 * Returns all indexed files.
+	 * 
+	 * @return the absolute paths of the files.
+	 */
+	public List<Path> getFiles() {
+		List<Path> result = new ArrayList<>();
+		filesPerDirectory.forEach((dir, files) -> files.forEach(f -> result.add(dir.resolve(f))));
+		return result;
+	}
+}
@@ -1,6 +1,7 @@
 package cipm.consistency.commitintegration.detection;
 
 import java.nio.file.Path;
+import java.util.Collection;
 
 import org.eclipse.emf.ecore.resource.Resource;
 
@@ -21,4 +22,36 @@ public interface ComponentDetectionStrategy {
 	 * @param candidate the storage of the module candidates.
 	 */
 	public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate);
+
+	/**
+	 * Prepares the detection for the Java files in a container, e. g., by indexing the container. It is called once
+	 * before the components of the Java files are detected.
+	 * 
+	 * @param container path to the repository which contains the complete project
+	 *                  and source code.
+	 */
+	default void prepareDetection(Path container) {
+	}
+
+	/**
+	 * Checks if this strategy can detect the components of multiple Java models concurrently.
+	 * 
+	 * @return true if the strategy is thread-safe.
+	 */
+	default boolean isThreadSafe() {
+		return false;
+	}
+
+	/**
+	 * Returns the files besides the Java files on which the detection depends, e. g., build files. If one of these
+	 * files is added or removed, the components of the Java files in its directory tree are detected again instead of
+	 * reusing the components detected for the previous commit. It is called after {@link #prepareDetection(Path)}.
+	 * 
+	 * By default, the inputs are unknown. Strategies override this method if they know their inputs.
+	 * 
+	 * @return the absolute paths of the files or null if they are unknown so that no detection result can be reused.
+	 */
+	default Collection<Path> getDetectionInputs() {
+		return null;
+	}
 }
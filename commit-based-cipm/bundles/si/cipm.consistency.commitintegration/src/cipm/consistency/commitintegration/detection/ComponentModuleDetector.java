@@ -3,12 +3,19 @@ package cipm.consistency.commitintegration.detection;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -18,6 +25,7 @@ import org.emftext.language.java.classifiers.ConcreteClassifier;
 import org.emftext.language.java.containers.CompilationUnit;
 import org.emftext.language.java.containers.Origin;
 
+import cipm.consistency.commitintegration.ModelVisitor;
 import tools.vitruv.framework.userinteraction.InternalUserInteractor;
 import tools.vitruv.framework.userinteraction.UserInteractionFactory;
 
@@ -28,12 +36,90 @@ import tools.vitruv.framework.userinteraction.UserInteractionFactory;
  * @author Martin Armbruster
  */
 public final class ComponentModuleDetector {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ComponentModuleDetector.class.getSimpleName());
+	private static final ModuleState DEFAULT_HEADLESS_STATE = ModuleState.REGULAR_COMPONENT;
+	private static final String ASSIGNMENT_FILE_NAME = "module-assignment.properties";
 	private Set<ComponentDetectionStrategy> strategies = new HashSet<>();
+	private ModuleClassificationRules rules = new ModuleClassificationRules();
+	private boolean headless;
+	private InternalUserInteractor userInteractor;
+	private ModuleCandidates candidate;
+	private Set<Resource> visitedResources = ConcurrentHashMap.newKeySet();
+	private Map<Resource, Path> visitedJavaFiles = new ConcurrentHashMap<>();
+	private Path repositoryDir;
+	private Map<Resource, Path> javaFiles = new LinkedHashMap<>();
+	private int parallelism = 1;
+	private boolean incremental;
+	private Set<Path> changedFiles;
+	private String previousCommit;
+	private String commit;
 
 	public void addComponentDetectionStrategy(ComponentDetectionStrategy strategy) {
 		strategies.add(strategy);
 	}
 
+	/**
+	 * Sets the rules which classify modules before a developer is asked.
+	 * 
+	 * @param rules the rules.
+	 */
+	public void setClassificationRules(ModuleClassificationRules rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Sets the number of threads which detect the components of the Java files in parallel. Only thread-safe
+	 * strategies are executed in parallel.
+	 * 
+	 * @param parallelism the number of threads. Values lower than two disable the parallel detection.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets if the modules found for the Java files of the previous commit are reused. In this case, the detection
+	 * results are stored next to the module configuration. For the next commit, only the changed Java files and the
+	 * Java files below directories in which a build file was added or removed are passed to the strategies.
+	 * 
+	 * @param incremental  true if the previous detection results are reused.
+	 * @param changedFiles absolute paths of the files changed since the previous commit. Can be null if the changes
+	 *                     are unknown so that the components of all Java files are detected.
+	 */
+	public void setIncrementalDetection(boolean incremental, Collection<Path> changedFiles) {
+		setIncrementalDetection(incremental, null, null, changedFiles);
+	}
+
+	/**
+	 * Sets if the modules found for the Java files of the previous commit are reused. In contrast to
+	 * {@link #setIncrementalDetection(boolean, Collection)}, the stored results are only reused if they were found for
+	 * the given previous commit.
+	 * 
+	 * @param incremental    true if the previous detection results are reused.
+	 * @param previousCommit id of the commit against which the changed files were determined. Can be null.
+	 * @param commit         id of the commit whose Java files are detected. It is stored with the results. Can be
+	 *                       null.
+	 * @param changedFiles   absolute paths of the files changed since the previous commit. Can be null if the
+	 *                       changes are unknown so that the components of all Java files are detected.
+	 */
+	public void setIncrementalDetection(boolean incremental, String previousCommit, String commit,
+			Collection<Path> changedFiles) {
+		this.incremental = incremental;
+		this.previousCommit = previousCommit;
+		this.commit = commit;
+		this.changedFiles = changedFiles != null ? new HashSet<>(changedFiles) : null;
+	}
+
+	/**
+	 * Sets if the modules are classified without any interaction. In this case, the remaining component candidates
+	 * are classified by the default of the rules, and the decisions are logged.
+	 * 
+	 * @param headless true for a classification without interaction.
+	 */
+	public void setHeadless(boolean headless) {
+		this.headless = headless;
+	}
+
 	/**
 	 * Detects the components and creates a module for every component.
 	 * 
@@ -41,33 +127,99 @@ public final class ComponentModuleDetector {
 	 * @param dir         path to the repository which contains the complete project
 	 *                    and source code.
 	 * @param configPath  path to the module configuration.
+	 * @return a map of the names of the created modules to the Resources within the modules.
 	 */
-	public void detectComponentsAndCreateModules(ResourceSet resourceSet, Path dir, Path configPath) {
-		ModuleConfiguration config = new ModuleConfiguration(configPath);
-		ModuleCandidates candidate = new ModuleCandidates();
-		for (Resource resource : resourceSet.getResources()) {
-			if (resource.getContents().isEmpty()) {
-				continue;
-			}
-			EObject root = resource.getContents().get(0);
-			if (root instanceof org.emftext.language.java.containers.Module) {
-				// Existing modules are removed because all modules will represent a component.
-				resource.getContents().clear();
-			} else if (root instanceof org.emftext.language.java.containers.Package) {
-				// The module for package models are newly set at a later point in time.
-				((org.emftext.language.java.containers.Package) root).setModule(null);
-			} else if (root instanceof CompilationUnit) {
-				if (resource.getURI().isFile()) {
-					// Find the Java file for the compilation unit.
-					Path file = Paths.get(resource.getURI().toFileString()).toAbsolutePath();
-					// Detect the component for the Java file / model.
-					strategies.forEach(s -> s.detectComponent(resource, file, dir, candidate));
-				}
+	public Map<String, Set<Resource>> detectComponentsAndCreateModules(ResourceSet resourceSet, Path dir,
+			Path configPath) {
+		createResourceVisitor(dir);
+		return createModules(resourceSet, configPath);
+	}
+
+	/**
+	 * Creates a visitor which finds the Java files of the visited Resources. The visitor only needs the Resources
+	 * and not their contents, and it can visit Resources concurrently. Afterward, the modules are created with
+	 * {@link #createModules(ResourceSet, Path)}. Resources which are added after the traversal, e. g., by a recovery,
+	 * are visited during the creation. The models are only changed during the creation.
+	 * 
+	 * @param dir path to the repository which contains the complete project and source code.
+	 * @return the visitor.
+	 */
+	public ModelVisitor createResourceVisitor(Path dir) {
+		candidate = new ModuleCandidates();
+		visitedResources.clear();
+		visitedJavaFiles.clear();
+		javaFiles.clear();
+		repositoryDir = dir;
+		strategies.forEach(s -> s.prepareDetection(dir));
+		return new ModelVisitor() {
+			@Override
+			public boolean visitResource(Resource resource) {
+				recordResource(resource);
+				return false;
 			}
+
+			@Override
+			public boolean isThreadSafe() {
+				return true;
+			}
+		};
+	}
+
+	private void recordResource(Resource resource) {
+		if (!visitedResources.add(resource) || resource.getContents().isEmpty()) {
+			return;
 		}
-		InternalUserInteractor userInteractor = UserInteractionFactory.instance.createDialogUserInteractor();
-		// Apply the stored configuration on the found modules.
+		if (resource.getContents().get(0) instanceof CompilationUnit && resource.getURI().isFile()) {
+			visitedJavaFiles.put(resource, Paths.get(resource.getURI().toFileString()).toAbsolutePath());
+		}
+	}
+
+	private void detectComponent(Resource resource) {
+		recordResource(resource);
+		if (resource.getContents().isEmpty()) {
+			return;
+		}
+		EObject root = resource.getContents().get(0);
+		if (root instanceof org.emftext.language.java.containers.Module) {
+			// Existing modules are removed because all modules will represent a component.
+			resource.getContents().clear();
+		} else if (root instanceof org.emftext.language.java.containers.Package) {
+			// The module for package models are newly set at a later point in time.
+			((org.emftext.language.java.containers.Package) root).setModule(null);
+		} else if (root instanceof CompilationUnit) {
+			Path file = visitedJavaFiles.get(resource);
+			if (file != null) {
+				// The component of the Java file is detected afterward in the order of the Resources.
+				javaFiles.put(resource, file);
+			}
+		}
+	}
+
+	/**
+	 * Creates the modules for the components which were detected by the last visitor created with
+	 * {@link #createResourceVisitor(Path)}.
+	 * 
+	 * @param resourceSet the ResourceSet which includes all Java models.
+	 * @param configPath  path to the module configuration.
+	 * @return a map of the names of the created modules to the Resources within the modules.
+	 */
+	public Map<String, Set<Resource>> createModules(ResourceSet resourceSet, Path configPath) {
+		for (Resource resource : new ArrayList<>(resourceSet.getResources())) {
+			detectComponent(resource);
+		}
+		detectComponentsOfJavaFiles(configPath.resolveSibling(ASSIGNMENT_FILE_NAME));
+		ModuleConfiguration config = new ModuleConfiguration(configPath);
+		// Apply the classification rules on the found modules.
 		var modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE));
+		modCandidates.forEach((k, v) -> {
+			ModuleState ruleState = rules.classify(k);
+			if (ruleState != null) {
+				LOGGER.debug("Classified the module " + k + " as " + ruleState + " by a rule.");
+				candidate.updateState(ModuleState.COMPONENT_CANDIDATE, ruleState, k);
+			}
+		});
+		// Apply the stored configuration on the found modules.
+		modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE));
 		// Decide the state for component candidates.
 		modCandidates.forEach((k, v) -> {
 			if (config.getModuleClassification().containsKey(k)) {
@@ -77,66 +229,235 @@ public final class ComponentModuleDetector {
 		});
 		modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.PART_OF_COMPONENT));
 		// Merge modules which are part of other modules.
+		Map<String, String> mergedModules = new HashMap<>();
 		modCandidates.forEach((k, v) -> {
-			if (config.getSubModuleMapping().containsKey(k)) {
+			List<String> components = getComponentNames();
+			String otherMod = rules.findParent(k, components);
+			if (otherMod == null) {
+				otherMod = config.getSubModuleMapping().get(k);
+			}
+			if (otherMod == null) {
+				otherMod = rules.getDefaultParent(components);
+			}
+			if (otherMod != null) {
 				candidate.removeModule(ModuleState.PART_OF_COMPONENT, k);
-				String otherMod = config.getSubModuleMapping().get(k);
 				candidate.getModulesInState(candidate.getStateOfModule(otherMod)).get(otherMod).addAll(v);
+				mergedModules.put(k, otherMod);
 			}
 		});
 		// The configuration is reset to the current state to exclude removed modules.
 		config.clear();
+		mergedModules.forEach((k, v) -> {
+			config.getModuleClassification().put(k, ModuleState.PART_OF_COMPONENT);
+			config.getSubModuleMapping().put(k, v);
+		});
 		updateConfig(config, candidate, ModuleState.MICROSERVICE_COMPONENT);
 		updateConfig(config, candidate, ModuleState.REGULAR_COMPONENT);
 		updateConfig(config, candidate, ModuleState.NO_COMPONENT);
-		// Ask the developer to decide the type of the remaining component candidates.
+		// Decide the type of the remaining component candidates.
 		modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE));
 		modCandidates.forEach((k, v) -> {
-			int r = userInteractor.getSingleSelectionDialogBuilder()
-					.message("Detected the potential component / module"
-							+ k + ". Which type of a component is it?")
-					.choices(List.of("Microservice component", "Regular component",
-							"Part of another component", "No component"))
-					.startInteraction();
-			ModuleState newState;
-			if (r == 0) {
-				newState = ModuleState.MICROSERVICE_COMPONENT;
-			} else if (r == 1) {
-				newState = ModuleState.REGULAR_COMPONENT;
-			} else if (r == 2) {
-				newState = ModuleState.PART_OF_COMPONENT;
-			} else {
-				newState = ModuleState.NO_COMPONENT;
-			}
+			ModuleState newState = headless ? decideStateHeadless(k) : askForState(k);
 			candidate.updateState(ModuleState.COMPONENT_CANDIDATE, newState, k);
 			config.getModuleClassification().put(k, newState);
 		});
-		// Ask the developer to decide which module is part of which other module.
+		// Decide which module is part of which other module.
 		modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.PART_OF_COMPONENT));
 		modCandidates.forEach((k, v) -> {
-			ArrayList<String> allPossibleModules = new ArrayList<>();
-			allPossibleModules.addAll(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT).keySet());
-			int mscSize = allPossibleModules.size();
-			allPossibleModules.addAll(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT).keySet());
-			int r = userInteractor.getSingleSelectionDialogBuilder()
-					.message("The component / module candidate "
-							+ k + " is part of which component / module?")
-					.choices(allPossibleModules).startInteraction();
-			String newMod = allPossibleModules.get(r);
 			candidate.removeModule(ModuleState.PART_OF_COMPONENT, k);
-			ModuleState stateToUse;
-			if (r < mscSize) {
-				stateToUse = ModuleState.MICROSERVICE_COMPONENT;
-			} else {
-				stateToUse = ModuleState.REGULAR_COMPONENT;
+			String newMod = headless ? decideParentHeadless(k) : askForParent(k);
+			if (newMod == null) {
+				LOGGER.debug("There is no component for the module " + k + ". It is classified as "
+						+ ModuleState.NO_COMPONENT);
+				candidate.getModulesInState(ModuleState.NO_COMPONENT).put(k, v);
+				config.getModuleClassification().put(k, ModuleState.NO_COMPONENT);
+				return;
 			}
-			candidate.getModulesInState(stateToUse).get(newMod).addAll(v);
+			candidate.getModulesInState(candidate.getStateOfModule(newMod)).get(newMod).addAll(v);
+			config.getModuleClassification().put(k, ModuleState.PART_OF_COMPONENT);
 			config.getSubModuleMapping().put(k, newMod);
 		});
 		config.save();
 		// At last, create the modules.
 		createModules(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT), resourceSet, Origin.FILE);
 		createModules(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT), resourceSet, Origin.ARCHIVE);
+		Map<String, Set<Resource>> modules = new HashMap<>();
+		modules.putAll(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT));
+		modules.putAll(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT));
+		return modules;
+	}
+
+	private void detectComponentsOfJavaFiles(Path assignmentPath) {
+		ModuleAssignment current = null;
+		Map<Resource, Path> filesToDetect = javaFiles;
+		if (incremental) {
+			current = createAssignment(assignmentPath);
+			current.setCommitId(commit);
+			ModuleAssignment previous = changedFiles != null ? ModuleAssignment.load(assignmentPath) : null;
+			if (previous != null && !Objects.equals(previous.getCommitId(), previousCommit)) {
+				LOGGER.debug("The stored modules were found for another commit than " + previousCommit);
+			} else if (previous != null && current.isComplete()
+					&& previous.getStrategies().equals(current.getStrategies())) {
+				filesToDetect = reuseAssignment(previous, current);
+			}
+		}
+		// Detect the component for every remaining Java file / model.
+		List<ComponentDetectionStrategy> parallelStrategies = new ArrayList<>();
+		final Map<Resource, Path> files = filesToDetect;
+		for (ComponentDetectionStrategy strategy : strategies) {
+			if (parallelism > 1 && strategy.isThreadSafe()) {
+				parallelStrategies.add(strategy);
+			} else {
+				files.forEach((resource, file) -> strategy.detectComponent(resource, file, repositoryDir,
+						candidate));
+			}
+		}
+		if (!parallelStrategies.isEmpty()) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.submit(() -> files.entrySet().parallelStream().forEach(entry -> parallelStrategies
+						.forEach(s -> s.detectComponent(entry.getKey(), entry.getValue(), repositoryDir, candidate))))
+						.join();
+			} finally {
+				pool.shutdown();
+			}
+		}
+		if (current != null) {
+			storeAssignment(current);
+		}
+		javaFiles.clear();
+		visitedJavaFiles.clear();
+	}
+
+	private ModuleAssignment createAssignment(Path assignmentPath) {
+		ModuleAssignment assignment = new ModuleAssignment(assignmentPath);
+		for (ComponentDetectionStrategy strategy : strategies) {
+			assignment.getStrategies().add(strategy.getClass().getName());
+			Collection<Path> inputs = strategy.getDetectionInputs();
+			if (inputs == null) {
+				assignment.markIncomplete();
+			} else {
+				assignment.getInputs().addAll(ModuleAssignment.relativize(repositoryDir, inputs));
+			}
+		}
+		return assignment;
+	}
+
+	/**
+	 * Adds the modules of the previous commit for the unchanged Java files to the candidates.
+	 * 
+	 * @param previous the assignment of the previous commit.
+	 * @param current  the assignment of the current commit.
+	 * @return the Java files whose components need to be detected.
+	 */
+	private Map<Resource, Path> reuseAssignment(ModuleAssignment previous, ModuleAssignment current) {
+		// Added or removed inputs invalidate the results for all Java files in their directory trees.
+		List<String> invalidatedDirs = new ArrayList<>();
+		Set<String> changedInputs = new HashSet<>(previous.getInputs());
+		changedInputs.addAll(current.getInputs());
+		for (String input : changedInputs) {
+			if (!previous.getInputs().contains(input) || !current.getInputs().contains(input)) {
+				int separatorIndex = input.lastIndexOf('/');
+				invalidatedDirs.add(separatorIndex < 0 ? "" : input.substring(0, separatorIndex + 1));
+			}
+		}
+		Map<Resource, Path> filesToDetect = new LinkedHashMap<>();
+		javaFiles.forEach((resource, file) -> {
+			String relativeFile = ModuleAssignment.relativize(repositoryDir, file);
+			List<ModuleAssignment.AssignedModule> modules = previous.getModules(relativeFile);
+			if (modules == null || changedFiles.contains(file)
+					|| invalidatedDirs.stream().anyMatch(relativeFile::startsWith)) {
+				filesToDetect.put(resource, file);
+			} else {
+				modules.forEach(m -> candidate.addModuleClassifier(m.getState(), m.getName(), resource));
+			}
+		});
+		LOGGER.debug("Reused the modules of " + (javaFiles.size() - filesToDetect.size()) + " Java files. "
+				+ filesToDetect.size() + " Java files are detected again.");
+		return filesToDetect;
+	}
+
+	private void storeAssignment(ModuleAssignment assignment) {
+		// At this point, the candidates only contain the modules found by the strategies.
+		for (ModuleState state : ModuleState.values()) {
+			candidate.getModulesInState(state).forEach((module, resources) -> resources.forEach(resource -> {
+				Path file = javaFiles.get(resource);
+				if (file != null) {
+					assignment.addModule(ModuleAssignment.relativize(repositoryDir, file), state, module);
+				}
+			}));
+		}
+		javaFiles.values().forEach(file -> assignment.addFile(ModuleAssignment.relativize(repositoryDir, file)));
+		assignment.save();
+	}
+
+	private List<String> getComponentNames() {
+		List<String> result = new ArrayList<>();
+		result.addAll(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT).keySet());
+		result.addAll(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT).keySet());
+		return result;
+	}
+
+	private ModuleState decideStateHeadless(String module) {
+		ModuleState state = rules.getDefaultState() != null ? rules.getDefaultState() : DEFAULT_HEADLESS_STATE;
+		LOGGER.info("Classified the module " + module + " as " + state + " without interaction.");
+		return state;
+	}
+
+	private ModuleState askForState(String module) {
+		int r = getUserInteractor().getSingleSelectionDialogBuilder()
+				.message("Detected the potential component / module"
+						+ module + ". Which type of a component is it?")
+				.choices(List.of("Microservice component", "Regular component",
+						"Part of another component", "No component"))
+				.startInteraction();
+		if (r == 0) {
+			return ModuleState.MICROSERVICE_COMPONENT;
+		} else if (r == 1) {
+			return ModuleState.REGULAR_COMPONENT;
+		} else if (r == 2) {
+			return ModuleState.PART_OF_COMPONENT;
+		}
+		return ModuleState.NO_COMPONENT;
+	}
+
+	private String decideParentHeadless(String module) {
+		// Without a default, the component with the longest common name prefix is chosen.
+		String parent = null;
+		int longestPrefix = -1;
+		List<String> components = getComponentNames();
+		components.sort(null);
+		for (String component : components) {
+			int prefix = StringUtils.indexOfDifference(module, component);
+			prefix = prefix < 0 ? module.length() : prefix;
+			if (prefix > longestPrefix) {
+				longestPrefix = prefix;
+				parent = component;
+			}
+		}
+		if (parent != null) {
+			LOGGER.info("Assigned the module " + module + " to " + parent + " without interaction.");
+		}
+		return parent;
+	}
+
+	private String askForParent(String module) {
+		List<String> allPossibleModules = getComponentNames();
+		if (allPossibleModules.isEmpty()) {
+			return null;
+		}
+		int r = getUserInteractor().getSingleSelectionDialogBuilder()
+				.message("The component / module candidate "
+						+ module + " is part of which component / module?")
+				.choices(allPossibleModules).startInteraction();
+		return allPossibleModules.get(r);
+	}
+
+	private InternalUserInteractor getUserInteractor() {
+		if (userInteractor == null) {
+			userInteractor = UserInteractionFactory.instance.createDialogUserInteractor();
+		}
+		return userInteractor;
 	}
 
 	private void updateConfig(ModuleConfiguration config, ModuleCandidates candidates, ModuleState state) {
@@ -0,0 +1,248 @@
+package cipm.consistency.commitintegration.detection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Stores the modules which the component detection strategies found for every Java file of a commit so that they can
+ * be reused for the unchanged Java files of the next commit. Besides, it stores the strategies and the files on which
+ * the detection depends, e. g., the build files, and the commit for which the modules were found. All paths are
+ * relative to the repository.
+ *
+ * @author Martin Armbruster
+ */
+public class ModuleAssignment {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModuleAssignment.class.getSimpleName());
+	private static final String FILE_PREFIX = "file:";
+	private static final String INPUT_PREFIX = "input:";
+	private static final String STRATEGIES_KEY = "strategies";
+	private static final String COMMIT_KEY = "commit";
+	private static final String LIST_SEPARATOR = ";";
+	private static final String STATE_SEPARATOR = "/";
+	private Path assignmentPath;
+	private Map<String, List<AssignedModule>> modulesPerFile = new HashMap<>();
+	private Set<String> inputs = new HashSet<>();
+	private Set<String> strategies = new HashSet<>();
+	private String commitId;
+	private boolean complete = true;
+
+	/**
+	 * Creates a new empty instance.
+	 *
+	 * @param assignmentPath path to a file in which the assignment is stored.
+	 */
+	public ModuleAssignment(Path assignmentPath) {
+		this.assignmentPath = assignmentPath;
+	}
+
+	/**
+	 * Loads a stored assignment.
+	 *
+	 * @param assignmentPath path to the file with the assignment.
+	 * @return the assignment or null if no assignment is stored or it cannot be read.
+	 */
+	public static ModuleAssignment load(Path assignmentPath) {
+		if (!Files.exists(assignmentPath)) {
+			return null;
+		}
+		ModuleAssignment result = new ModuleAssignment(assignmentPath);
+		Properties p = new Properties();
+		try (BufferedReader reader = Files.newBufferedReader(assignmentPath)) {
+			p.load(reader);
+			for (String key : p.stringPropertyNames()) {
+				String val = p.getProperty(key);
+				if (key.equals(STRATEGIES_KEY)) {
+					result.strategies.addAll(split(val));
+				} else if (key.equals(COMMIT_KEY)) {
+					result.commitId = val;
+				} else if (key.startsWith(INPUT_PREFIX)) {
+					result.inputs.add(key.substring(INPUT_PREFIX.length()));
+				} else if (key.startsWith(FILE_PREFIX)) {
+					List<AssignedModule> modules = new ArrayList<>();
+					for (String entry : split(val)) {
+						String[] parts = entry.split(STATE_SEPARATOR, 2);
+						modules.add(new AssignedModule(ModuleState.valueOf(parts[0]), parts[1]));
+					}
+					result.modulesPerFile.put(key.substring(FILE_PREFIX.length()), modules);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Could not read the module assignment from " + assignmentPath + ": " + e.getMessage());
+			return null;
+		}
+		return result;
+	}
+
+	private static List<String> split(String value) {
+		List<String> result = new ArrayList<>();
+		for (String part : value.split(LIST_SEPARATOR)) {
+			if (!part.isEmpty()) {
+				result.add(part);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the modules assigned to a Java file.
+	 *
+	 * @param file the relative path of the Java file.
+	 * @return the modules or null if no assignment exists for the file.
+	 */
+	public List<AssignedModule> getModules(String file) {
+		return modulesPerFile.get(file);
+	}
+
+	/**
+	 * Assigns a module to a Java file.
+	 *
+	 * @param file   the relative path of the Java file.
+	 * @param state  the state of the module as found by the strategies.
+	 * @param module name of the module.
+	 */
+	public void addModule(String file, ModuleState state, String module) {
+		modulesPerFile.computeIfAbsent(file, f -> new ArrayList<>()).add(new AssignedModule(state, module));
+	}
+
+	/**
+	 * Records a Java file for which no strategy found a module.
+	 *
+	 * @param file the relative path of the Java file.
+	 */
+	public void addFile(String file) {
+		modulesPerFile.computeIfAbsent(file, f -> new ArrayList<>());
+	}
+
+	/**
+	 * Returns the files besides the Java files on which the detection depends.
+	 *
+	 * @return the relative paths of the files.
+	 */
+	public Set<String> getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * Returns the names of the strategies which found the modules.
+	 *
+	 * @return the names.
+	 */
+	public Set<String> getStrategies() {
+		return strategies;
+	}
+
+	/**
+	 * Returns the commit for which the modules were found.
+	 *
+	 * @return the commit id or null if it is unknown.
+	 */
+	public String getCommitId() {
+		return commitId;
+	}
+
+	public void setCommitId(String commitId) {
+		this.commitId = commitId;
+	}
+
+	/**
+	 * Checks if the inputs of all strategies are known. Otherwise, the assignment cannot be reused.
+	 *
+	 * @return true if the inputs are complete.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Marks that the inputs of at least one strategy are unknown.
+	 */
+	public void markIncomplete() {
+		this.complete = false;
+	}
+
+	/**
+	 * Stores the assignment. Incomplete assignments are removed instead.
+	 */
+	public void save() {
+		try {
+			if (!complete) {
+				Files.deleteIfExists(assignmentPath);
+				return;
+			}
+			Properties p = new Properties();
+			p.setProperty(STRATEGIES_KEY, String.join(LIST_SEPARATOR, strategies));
+			if (commitId != null) {
+				p.setProperty(COMMIT_KEY, commitId);
+			}
+			inputs.forEach(i -> p.setProperty(INPUT_PREFIX + i, ""));
+			modulesPerFile.forEach((k, v) -> {
+				List<String> entries = new ArrayList<>();
+				v.forEach(m -> entries.add(m.state.name() + STATE_SEPARATOR + m.name));
+				p.setProperty(FILE_PREFIX + k, String.join(LIST_SEPARATOR, entries));
+			});
+			try (BufferedWriter writer = Files.newBufferedWriter(assignmentPath)) {
+				p.store(writer, null);
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not store the module assignment in " + assignmentPath + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Converts paths into the form in which they are stored.
+	 *
+	 * @param root  the root directory of the repository.
+	 * @param files the absolute paths.
+	 * @return the relative paths.
+	 */
+	public static Set<String> relativize(Path root, Collection<Path> files) {
+		Set<String> result = new HashSet<>();
+		files.forEach(f -> result.add(relativize(root, f)));
+		return result;
+	}
+
+	/**
+	 * Converts a path into the form in which it is stored.
+	 *
+	 * @param root the root directory of the repository.
+	 * @param file the absolute path.
+	 * @return the relative path with / as separator.
+	 */
+	public static String relativize(Path root, Path file) {
+		return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+	}
+
+	/**
+	 * A module which was found for a Java file.
+	 */
+	public static class AssignedModule {
+		private ModuleState state;
+		private String name;
+
+		AssignedModule(ModuleState state, String name) {
+			this.state = state;
+			this.name = name;
+		}
+
+		public ModuleState getState() {
+			return state;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+}
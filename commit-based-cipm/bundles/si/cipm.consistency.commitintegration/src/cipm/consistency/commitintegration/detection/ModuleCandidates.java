@@ -30,7 +30,7 @@ public class ModuleCandidates {
 	 * @param moduleName name of the module.
 	 * @param cu         Resource with the classifier in the module.
 	 */
-	public void addModuleClassifier(ModuleState state, String moduleName, Resource cu) {
+	public synchronized void addModuleClassifier(ModuleState state, String moduleName, Resource cu) {
 		Map<String, Set<Resource>> classMap = getModulesInState(state);
 		Set<Resource> classSet;
 		if (classMap.containsKey(moduleName)) {
@@ -0,0 +1,196 @@
+package cipm.consistency.commitintegration.detection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Declarative rules for the classification of modules which are evaluated before a developer is asked. The rules are
+ * read from a file in which every line contains one rule. Empty lines and lines starting with # are ignored. The first
+ * matching rule is applied.
+ *
+ * <pre>
+ * glob:*-service = MICROSERVICE_COMPONENT
+ * regex:.*\.tests? = NO_COMPONENT
+ * glob:webui-* = PART_OF_COMPONENT/webui
+ * default = REGULAR_COMPONENT
+ * default.parent = core
+ * </pre>
+ *
+ * <p>A rule consists of a glob or regular expression for the module name and the state of the module. For modules
+ * which are part of another module, the other module follows after a /. The default state is applied to component
+ * candidates without a matching rule, and the default parent to modules which are part of an unknown module.</p>
+ *
+ * @author Martin Armbruster
+ */
+public class ModuleClassificationRules {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModuleClassificationRules.class.getSimpleName());
+	private static final String COMMENT_PREFIX = "#";
+	private static final String ASSIGNMENT = "=";
+	private static final String PARENT_SEPARATOR = "/";
+	private static final String GLOB_PREFIX = "glob:";
+	private static final String REGEX_PREFIX = "regex:";
+	private static final String DEFAULT_KEY = "default";
+	private static final String DEFAULT_PARENT_KEY = "default.parent";
+	private List<Rule> rules = new ArrayList<>();
+	private ModuleState defaultState;
+	private String defaultParent;
+
+	/**
+	 * Creates an instance without rules and defaults.
+	 */
+	public ModuleClassificationRules() {
+	}
+
+	/**
+	 * Reads the rules from a file.
+	 *
+	 * @param ruleFile the file with the rules.
+	 * @return the read rules.
+	 * @throws IOException if the file cannot be read.
+	 * @throws IllegalArgumentException if a rule is invalid.
+	 */
+	public static ModuleClassificationRules load(Path ruleFile) throws IOException {
+		ModuleClassificationRules result = new ModuleClassificationRules();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(ruleFile, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith(COMMENT_PREFIX)) {
+				continue;
+			}
+			int assignmentIndex = trimmed.lastIndexOf(ASSIGNMENT);
+			if (assignmentIndex < 0) {
+				throw new IllegalArgumentException(ruleFile + ":" + lineNumber + ": Missing " + ASSIGNMENT);
+			}
+			String key = trimmed.substring(0, assignmentIndex).trim();
+			String value = trimmed.substring(assignmentIndex + 1).trim();
+			if (key.equals(DEFAULT_KEY)) {
+				result.defaultState = ModuleState.valueOf(value);
+				if (result.defaultState == ModuleState.COMPONENT_CANDIDATE) {
+					throw new IllegalArgumentException(ruleFile + ":" + lineNumber
+							+ ": The default cannot classify a module as candidate.");
+				}
+			} else if (key.equals(DEFAULT_PARENT_KEY)) {
+				result.defaultParent = value;
+			} else {
+				result.rules.add(parseRule(key, value, ruleFile + ":" + lineNumber));
+			}
+		}
+		LOGGER.debug("Loaded " + result.rules.size() + " classification rules from " + ruleFile);
+		return result;
+	}
+
+	private static Rule parseRule(String key, String value, String location) {
+		Rule rule = new Rule();
+		if (key.startsWith(GLOB_PREFIX)) {
+			rule.pattern = Pattern.compile(convertGlob(key.substring(GLOB_PREFIX.length())));
+		} else if (key.startsWith(REGEX_PREFIX)) {
+			rule.pattern = Pattern.compile(key.substring(REGEX_PREFIX.length()));
+		} else {
+			throw new IllegalArgumentException(location + ": The pattern must start with " + GLOB_PREFIX + " or "
+					+ REGEX_PREFIX);
+		}
+		String[] parts = value.split(PARENT_SEPARATOR, 2);
+		rule.state = ModuleState.valueOf(parts[0].trim());
+		if (rule.state == ModuleState.COMPONENT_CANDIDATE) {
+			throw new IllegalArgumentException(location + ": A rule cannot classify a module as candidate.");
+		}
+		if (parts.length > 1) {
+			rule.parent = parts[1].trim();
+		}
+		return rule;
+	}
+
+	private static String convertGlob(String glob) {
+		// Module names are no paths so that * and ? match every character.
+		StringBuilder regex = new StringBuilder();
+		StringBuilder literal = new StringBuilder();
+		for (char c : glob.toCharArray()) {
+			if (c == '*' || c == '?') {
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '*' ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if (literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return regex.toString();
+	}
+
+	/**
+	 * Classifies a module with the first matching rule.
+	 *
+	 * @param module name of the module.
+	 * @return the state of the module or null if no rule matches.
+	 */
+	public ModuleState classify(String module) {
+		Rule rule = findRule(module);
+		return rule != null ? rule.state : null;
+	}
+
+	/**
+	 * Determines the module which contains another module with the first matching rule.
+	 *
+	 * @param module     name of the module which is part of another module.
+	 * @param components names of all modules which represent components.
+	 * @return the containing module or null if no matching rule names one of the components.
+	 */
+	public String findParent(String module, Collection<String> components) {
+		Rule rule = findRule(module);
+		if (rule != null && rule.parent != null && components.contains(rule.parent)) {
+			return rule.parent;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the default for the module which contains other modules.
+	 *
+	 * @param components names of all modules which represent components.
+	 * @return the default module or null if no default is set or it is not one of the components.
+	 */
+	public String getDefaultParent(Collection<String> components) {
+		return defaultParent != null && components.contains(defaultParent) ? defaultParent : null;
+	}
+
+	private Rule findRule(String module) {
+		for (Rule rule : rules) {
+			if (rule.pattern.matcher(module).matches()) {
+				LOGGER.debug("The module " + module + " matches the rule " + rule.pattern);
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the state for component candidates without a matching rule.
+	 *
+	 * @return the state or null if no default is set.
+	 */
+	public ModuleState getDefaultState() {
+		return defaultState;
+	}
+
+	/**
+	 * A single rule.
+	 */
+	private static class Rule {
+		private Pattern pattern;
+		private ModuleState state;
+		private String parent;
+	}
+}
@@ -2,62 +2,180 @@ package cipm.consistency.commitintegration.detection;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 import org.eclipse.emf.ecore.resource.Resource;
 import org.emftext.language.java.containers.CompilationUnit;
 
 /**
  * A component detection strategy in which sets of packages are mapped to components.
- * 
+ *
+ * <p>Mappings whose regular expression consists of a literal prefix followed by an arbitrary suffix are compiled into
+ * a prefix tree so that a package name is matched in one pass. Other mappings are evaluated as regular expressions.</p>
+ *
  * @author Martin Armbruster
  */
 public abstract class PackageBasedComponentDetectionStrategy implements ComponentDetectionStrategy {
+	private static final String ARBITRARY_SUFFIX = ".*";
+	private static final String RELUCTANT_ARBITRARY_SUFFIX = ".*?";
+	private static final String REGEX_META_CHARACTERS = "\\.[]{}()<>*+-=!?^$|";
+
 	private static final class PackageModuleMapping {
-		private String packageRegex;
+		private int position;
+		private Pattern packagePattern;
 		private String moduleName;
 		private ModuleState moduleClassification;
-		
-		private PackageModuleMapping(String packageRegex, String moduleName, ModuleState moduleClassification) {
-			this.packageRegex = packageRegex;
+
+		private PackageModuleMapping(int position, String packageRegex, String moduleName,
+				ModuleState moduleClassification) {
+			this.position = position;
+			this.packagePattern = Pattern.compile(packageRegex);
 			this.moduleName = moduleName;
 			this.moduleClassification = moduleClassification;
 		}
 	}
-	
-	private ArrayList<PackageModuleMapping> mappings = new ArrayList<>();
-	
+
+	/**
+	 * A node of the prefix tree.
+	 */
+	private static final class PrefixNode {
+		private Map<Character, PrefixNode> children = new HashMap<>();
+		// Mappings which match every package name with the prefix of this node.
+		private List<PackageModuleMapping> prefixMappings = new ArrayList<>();
+		// Mappings which only match the package name equal to the prefix of this node.
+		private List<PackageModuleMapping> exactMappings = new ArrayList<>();
+	}
+
+	private PrefixNode prefixTree = new PrefixNode();
+	private ArrayList<PackageModuleMapping> regexMappings = new ArrayList<>();
+	private int numberOfMappings;
+
 	protected PackageBasedComponentDetectionStrategy() {
 		this.initializeMappings();
 	}
-	
+
 	/**
 	 * Initializes the mapping of packages to modules / components.
 	 */
 	protected abstract void initializeMappings();
-	
+
 	/**
 	 * Adds a mapping.
-	 * 
+	 *
 	 * @param packageRegex a regular expression which identifies the packages for a module / component.
 	 * @param moduleName the name of the module / component.
 	 * @param moduleClassification the type of the module / component.
 	 */
 	protected void addPackageModuleMapping(String packageRegex, String moduleName, ModuleState moduleClassification) {
-		mappings.add(new PackageModuleMapping(packageRegex, moduleName, moduleClassification));
+		PackageModuleMapping mapping = new PackageModuleMapping(numberOfMappings++, packageRegex, moduleName,
+				moduleClassification);
+		boolean isPrefix = false;
+		String literal;
+		if (packageRegex.endsWith(RELUCTANT_ARBITRARY_SUFFIX)) {
+			isPrefix = true;
+			literal = unescapeLiteral(
+					packageRegex.substring(0, packageRegex.length() - RELUCTANT_ARBITRARY_SUFFIX.length()));
+		} else if (packageRegex.endsWith(ARBITRARY_SUFFIX)) {
+			isPrefix = true;
+			literal = unescapeLiteral(packageRegex.substring(0, packageRegex.length() - ARBITRARY_SUFFIX.length()));
+		} else {
+			literal = unescapeLiteral(packageRegex);
+		}
+		if (literal == null) {
+			regexMappings.add(mapping);
+			return;
+		}
+		PrefixNode node = prefixTree;
+		for (char c : literal.toCharArray()) {
+			node = node.children.computeIfAbsent(c, k -> new PrefixNode());
+		}
+		if (isPrefix) {
+			node.prefixMappings.add(mapping);
+		} else {
+			node.exactMappings.add(mapping);
+		}
 	}
-	
+
+	/**
+	 * Converts a regular expression without quantifiers and character classes into the literal it matches.
+	 *
+	 * @param regex the regular expression.
+	 * @return the literal or null if the regular expression matches more than one literal.
+	 */
+	private static String unescapeLiteral(String regex) {
+		StringBuilder literal = new StringBuilder();
+		for (int idx = 0; idx < regex.length(); idx++) {
+			char c = regex.charAt(idx);
+			if (c == '\\') {
+				if (idx + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(idx + 1))) {
+					return null;
+				}
+				idx++;
+				literal.append(regex.charAt(idx));
+			} else if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+				return null;
+			} else {
+				literal.append(c);
+			}
+		}
+		return literal.toString();
+	}
+
 	@Override
 	public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
 		if (!res.getContents().isEmpty()) {
 			if (res.getContents().get(0) instanceof CompilationUnit) {
 				var cu = (CompilationUnit) res.getContents().get(0);
 				var packName = cu.getClassifiers().get(0).getPackage().getNamespacesAsString();
-				mappings.forEach(map -> {
-					if (packName.matches(map.packageRegex)) {
-						candidate.addModuleClassifier(map.moduleClassification, map.moduleName, res);
-					}
-				});
+				for (PackageModuleMapping map : findMappings(packName)) {
+					candidate.addModuleClassifier(map.moduleClassification, map.moduleName, res);
+				}
+			}
+		}
+	}
+
+	@Override
+	public Collection<Path> getDetectionInputs() {
+		// The components only depend on the packages declared in the Java files.
+		return List.of();
+	}
+
+	/**
+	 * Finds the modules / components whose mappings match a package.
+	 *
+	 * @param packageName the name of the package.
+	 * @return the names of the modules / components in the order in which their mappings were added.
+	 */
+	public List<String> findModules(String packageName) {
+		List<String> result = new ArrayList<>();
+		findMappings(packageName).forEach(map -> result.add(map.moduleName));
+		return result;
+	}
+
+	private List<PackageModuleMapping> findMappings(String packName) {
+		// The mappings are returned in the order in which they were added.
+		TreeSet<PackageModuleMapping> result = new TreeSet<>((m1, m2) -> Integer.compare(m1.position, m2.position));
+		PrefixNode node = prefixTree;
+		result.addAll(node.prefixMappings);
+		for (int idx = 0; idx < packName.length() && node != null; idx++) {
+			node = node.children.get(packName.charAt(idx));
+			if (node != null) {
+				result.addAll(node.prefixMappings);
+			}
+		}
+		if (node != null) {
+			result.addAll(node.exactMappings);
+		}
+		for (PackageModuleMapping map : regexMappings) {
+			if (map.packagePattern.matcher(packName).matches()) {
+				result.add(map);
 			}
 		}
+		return new ArrayList<>(result);
 	}
 }
@@ -5,7 +5,7 @@ import tools.vitruv.framework.correspondence.CorrespondenceModel
 import tools.vitruv.framework.userinteraction.UserInteractor
 import tools.vitruv.framework.change.echange.EChange
 import tools.vitruv.framework.propagation.ResourceAccess
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex
 import org.palladiosimulator.pcm.seff.ResourceDemandingSEFF
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModelPackage
@@ -37,9 +37,9 @@ class Java2ImChangePropagationSpecification extends ExtendedJava2PcmMethodBodyCh
 	private def executeJava2ImTransformation(CorrespondenceModel correspondenceModel,
 		UserInteractor userInteracting, Method newMethod) {
 		
-		val correspondingSEFFs = CorrespondenceModelUtil.getCorrespondingEObjects(
+		val correspondingSEFFs = CorrespondenceIndex.getCorrespondingEObjects(
 			correspondenceModel, newMethod, ResourceDemandingSEFF)
-		val im = CorrespondenceModelUtil.getCorrespondingEObjects(correspondenceModel,
+		val im = CorrespondenceIndex.getCorrespondingEObjects(correspondenceModel,
 			InstrumentationModelPackage.Literals.INSTRUMENTATION_MODEL, InstrumentationModel).last
 		
 		if (!correspondingSEFFs.empty) {
@@ -29,9 +29,24 @@ public class ExternalCallEmptyTargetFiller {
 	private CorrespondenceModel cm;
 	private Repository repository;
 	private Path collectionFile;
+	private RepositorySaver saver;
 
 	/**
-	 * Creates a new instance.
+	 * Saves the PCM repository after the targets were filled.
+	 */
+	@FunctionalInterface
+	public interface RepositorySaver {
+		/**
+		 * Saves the repository.
+		 * 
+		 * @param repository the repository.
+		 * @throws IOException if the repository cannot be saved.
+		 */
+		void save(Repository repository) throws IOException;
+	}
+
+	/**
+	 * Creates a new instance which saves the repository immediately.
 	 * 
 	 * @param cModel     the current correspondence model.
 	 * @param repo       the PCM repository to check.
@@ -39,9 +54,24 @@ public class ExternalCallEmptyTargetFiller {
 	 *                   targets.
 	 */
 	public ExternalCallEmptyTargetFiller(CorrespondenceModel cModel, Repository repo, Path collection) {
+		this(cModel, repo, collection, r -> r.eResource().save(null));
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param cModel     the current correspondence model.
+	 * @param repo       the PCM repository to check.
+	 * @param collection path to a collection of all external calls and their
+	 *                   targets.
+	 * @param saver      saves the repository, e. g., deferred.
+	 */
+	public ExternalCallEmptyTargetFiller(CorrespondenceModel cModel, Repository repo, Path collection,
+			RepositorySaver saver) {
 		this.cm = cModel;
 		this.repository = repo;
 		this.collectionFile = collection;
+		this.saver = saver;
 	}
 
 	/**
@@ -70,7 +100,7 @@ public class ExternalCallEmptyTargetFiller {
 		}
 		ExternalCallCallTargetPairCollectorReaderWriter.write(pairs, collectionFile);
 		try {
-			repository.eResource().save(null);
+			saver.save(repository);
 		} catch (IOException e) {
 		}
 	}
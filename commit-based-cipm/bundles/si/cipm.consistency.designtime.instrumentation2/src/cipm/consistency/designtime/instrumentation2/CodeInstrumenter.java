@@ -2,6 +2,7 @@ package cipm.consistency.designtime.instrumentation2;
 
 import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -22,8 +23,10 @@ import cipm.consistency.base.models.instrumentation.InstrumentationModel.Instrum
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.ServiceInstrumentationPoint;
 import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitoringEnvironmentModelGenerator;
 import cipm.consistency.designtime.instrumentation2.instrumenter.ServiceInstrumentationPointInstrumenter;
+import cipm.consistency.tools.evaluation.data.ExecutionTimeData;
+import cipm.consistency.tools.evaluation.data.StageSpan;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 
 /**
  * An instrumenter for the source code based on the instrumentation points in
@@ -39,11 +42,21 @@ public final class CodeInstrumenter {
 
 	public static Resource instrument(InstrumentationModel im, CorrespondenceModel cm, Resource javaModel, Path output,
 			Path input, boolean adaptive) {
+		return instrument(im, cm, List.of(javaModel), output, input, adaptive);
+	}
+
+	public static Resource instrument(InstrumentationModel im, CorrespondenceModel cm, List<Resource> javaModels,
+			Path output, Path input, boolean adaptive) {
 		LOGGER.debug("Executing the " + (adaptive ? "adaptive" : "full") + " instrumentation.");
 		LOGGER.debug("Copying the Java model.");
 		ResourceSet targetSet = new ResourceSetImpl();
-		Resource copy = targetSet.createResource(javaModel.getURI());
-		copy.getContents().addAll(EcoreUtil.copyAll(javaModel.getContents()));
+		Resource copy = targetSet.createResource(javaModels.get(0).getURI());
+		// All parts of the Java model are copied together to keep the references between them.
+		EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		for (Resource javaModel : javaModels) {
+			copy.getContents().addAll(copier.copyAll(javaModel.getContents()));
+		}
+		copier.copyReferences();
 
 		LOGGER.debug("Generating the minimal monitoring environment.");
 		MinimalMonitoringEnvironmentModelGenerator gen = new MinimalMonitoringEnvironmentModelGenerator(copy);
@@ -51,7 +64,7 @@ public final class CodeInstrumenter {
 
 		for (ServiceInstrumentationPoint sip : im.getPoints()) {
 			LOGGER.debug("Instrumenting the service " + sip.getService().getDescribedService__SEFF().getEntityName());
-			Method service = CorrespondenceModelUtil.getCorrespondingEObjects(cm, sip.getService(), Method.class)
+			Method service = CorrespondenceIndex.getCorrespondingEObjects(cm, sip.getService(), Method.class)
 					.iterator().next();
 			Method copiedService = findCopiedEObject(targetSet, service);
 			ActionStatementMapping statementMap = createActionStatementMapping(targetSet, sip, cm);
@@ -59,8 +72,12 @@ public final class CodeInstrumenter {
 		}
 
 		LOGGER.debug("Saving the instrumented code.");
-		ModelSaverInRepositoryCopy.saveModels(targetSet, copy, output, input, gen);
-		LOGGER.debug("Finished the instrumentation.");
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_MODEL_PRINTING)) {
+			ModelSaverInRepositoryCopy.saveModels(targetSet, copy, output, input, gen);
+		}
+		CorrespondenceIndex index = CorrespondenceIndex.get(cm);
+		LOGGER.debug("Finished the instrumentation. Correspondence lookups: " + index.getHits() + " hits, "
+				+ index.getMisses() + " misses.");
 
 		return copy;
 	}
@@ -69,7 +86,7 @@ public final class CodeInstrumenter {
 			ServiceInstrumentationPoint sip, CorrespondenceModel cm) {
 		ActionStatementMapping statementMap = new ActionStatementMapping();
 		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
-			Set<Statement> correspondingStatements = CorrespondenceModelUtil.getCorrespondingEObjects(cm,
+			Set<Statement> correspondingStatements = CorrespondenceIndex.getCorrespondingEObjects(cm,
 					aip.getAction(), Statement.class);
 			Statement firstStatement;
 			if (aip.getType() == InstrumentationType.INTERNAL || aip.getType() == InstrumentationType.INTERNAL_CALL) {
@@ -0,0 +1,174 @@
+package cipm.consistency.vsum;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.ActionInstrumentationPoint;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModelPackage;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.ServiceInstrumentationPoint;
+
+/**
+ * Keeps the activation of all action instrumentation points of an instrumentation model as a bit set. Every action
+ * instrumentation point gets an ordinal which does not change as long as the point is contained in the model. The
+ * ordinals of removed points are reused for added points so that the bit set does not grow with every replaced point.
+ *
+ * <p>The bit set mirrors the active attribute of the points because the consistency preservation rules and the
+ * instrumentation read and write the attribute. It is updated by listening to the model so that the deactivation of
+ * all points only touches the active ones and the check for active points does not visit the model.</p>
+ *
+ * @author Martin Armbruster
+ */
+public class ActionInstrumentationPointActivation {
+	private final InstrumentationModel im;
+	private final List<ActionInstrumentationPoint> points = new ArrayList<>();
+	private final Map<ActionInstrumentationPoint, Integer> ordinals = new HashMap<>();
+	private final BitSet activePoints = new BitSet();
+	private final BitSet freeOrdinals = new BitSet();
+	private final ActivationListener listener = new ActivationListener();
+
+	/**
+	 * Creates a new instance and starts listening to the instrumentation model.
+	 *
+	 * @param im the instrumentation model.
+	 */
+	public ActionInstrumentationPointActivation(InstrumentationModel im) {
+		this.im = im;
+		for (ServiceInstrumentationPoint sip : im.getPoints()) {
+			sip.getActionInstrumentationPoints().forEach(this::register);
+		}
+		im.eAdapters().add(listener);
+	}
+
+	private void register(ActionInstrumentationPoint aip) {
+		Integer ordinal = ordinals.get(aip);
+		if (ordinal == null) {
+			ordinal = freeOrdinals.nextSetBit(0);
+			if (ordinal >= 0) {
+				freeOrdinals.clear(ordinal);
+				points.set(ordinal, aip);
+			} else {
+				ordinal = points.size();
+				points.add(aip);
+			}
+			ordinals.put(aip, ordinal);
+		}
+		activePoints.set(ordinal, aip.isActive());
+	}
+
+	private void unregister(ActionInstrumentationPoint aip) {
+		Integer ordinal = ordinals.remove(aip);
+		if (ordinal != null) {
+			// The slot is kept for the next added point so that the ordinals of the other points do not change.
+			points.set(ordinal, null);
+			activePoints.clear(ordinal);
+			freeOrdinals.set(ordinal);
+		}
+	}
+
+	/**
+	 * Deactivates all action instrumentation points.
+	 *
+	 * @return the number of points which were active before.
+	 */
+	public int deactivateAll() {
+		BitSet toDeactivate = (BitSet) activePoints.clone();
+		for (int idx = toDeactivate.nextSetBit(0); idx >= 0; idx = toDeactivate.nextSetBit(idx + 1)) {
+			points.get(idx).setActive(false);
+		}
+		activePoints.clear();
+		return toDeactivate.cardinality();
+	}
+
+	/**
+	 * Checks if at least one action instrumentation point is active.
+	 *
+	 * @return true if a point is active.
+	 */
+	public boolean hasActivePoints() {
+		return !activePoints.isEmpty();
+	}
+
+	public int getNumberOfActivePoints() {
+		return activePoints.cardinality();
+	}
+
+	public int getNumberOfPoints() {
+		return ordinals.size();
+	}
+
+	/**
+	 * Returns the number of ordinals, including the free ones of removed points.
+	 *
+	 * @return the number of ordinals.
+	 */
+	public int getNumberOfOrdinals() {
+		return points.size();
+	}
+
+	/**
+	 * Stops listening to the instrumentation model.
+	 */
+	public void dispose() {
+		im.eAdapters().remove(listener);
+	}
+
+	/**
+	 * Updates the bit set for changed active attributes and added or removed points.
+	 */
+	private class ActivationListener extends EContentAdapter {
+		@Override
+		public void notifyChanged(Notification notification) {
+			super.notifyChanged(notification);
+			if (notification.isTouch()) {
+				return;
+			}
+			Object feature = notification.getFeature();
+			if (notification.getNotifier() instanceof ActionInstrumentationPoint
+					&& notification.getFeatureID(ActionInstrumentationPoint.class)
+						== InstrumentationModelPackage.ACTION_INSTRUMENTATION_POINT__ACTIVE) {
+				ActionInstrumentationPoint aip = (ActionInstrumentationPoint) notification.getNotifier();
+				if (ordinals.containsKey(aip)) {
+					activePoints.set(ordinals.get(aip), aip.isActive());
+				}
+				return;
+			}
+			if (!(feature instanceof EReference) || !((EReference) feature).isContainment()) {
+				return;
+			}
+			switch (notification.getEventType()) {
+				case Notification.ADD:
+				case Notification.ADD_MANY:
+				case Notification.REMOVE:
+				case Notification.REMOVE_MANY:
+				case Notification.SET:
+				case Notification.UNSET:
+					collectPoints(notification.getOldValue()).forEach(aip -> unregister(aip));
+					collectPoints(notification.getNewValue()).forEach(aip -> register(aip));
+					break;
+				default:
+					break;
+			}
+		}
+
+		private List<ActionInstrumentationPoint> collectPoints(Object value) {
+			List<ActionInstrumentationPoint> result = new ArrayList<>();
+			if (value instanceof Collection<?>) {
+				((Collection<?>) value).forEach(v -> result.addAll(collectPoints(v)));
+			} else if (value instanceof ActionInstrumentationPoint) {
+				result.add((ActionInstrumentationPoint) value);
+			} else if (value instanceof ServiceInstrumentationPoint) {
+				result.addAll(((ServiceInstrumentationPoint) value).getActionInstrumentationPoints());
+			}
+			return result;
+		}
+	}
+}
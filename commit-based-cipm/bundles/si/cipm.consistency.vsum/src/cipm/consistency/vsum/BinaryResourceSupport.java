@@ -0,0 +1,278 @@
+package cipm.consistency.vsum;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+import cipm.consistency.commitintegration.JavaFileSystemLayout;
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+
+/**
+ * Support for storing the models of the {@link FileLayout} in EMF's binary resource encoding instead of XMI. The
+ * binary encoding can be selected per model file. Models are loaded in both formats because the format is detected
+ * from the content of a file.
+ *
+ * @author Martin Armbruster
+ */
+public final class BinaryResourceSupport {
+	// Names of the models in the file layout. The Java model includes all of its shards.
+	public static final String JAVA_MODEL = "java";
+	public static final String PCM_REPOSITORY = "repository";
+	public static final String PCM_SYSTEM = "system";
+	public static final String PCM_ALLOCATION = "allocation";
+	public static final String PCM_USAGE_MODEL = "usagemodel";
+	public static final String PCM_RESOURCE_ENVIRONMENT = "resourceenvironment";
+	public static final String INSTRUMENTATION_MODEL = "im";
+	private static final Logger LOGGER = Logger.getLogger("cipm." + BinaryResourceSupport.class.getSimpleName());
+	// Signature at the start of every file in EMF's binary resource encoding.
+	private static final byte[] BINARY_SIGNATURE = { (byte) 137, 'e', 'm', 'f', '\n', '\r', 26, '\n' };
+
+	private BinaryResourceSupport() {
+	}
+
+	/**
+	 * Returns the model files of a file layout.
+	 *
+	 * @param files the file layout.
+	 * @return a map of the model names to the model files.
+	 */
+	public static Map<String, Path> getModelFiles(FileLayout files) {
+		Map<String, Path> result = new LinkedHashMap<>();
+		result.put(JAVA_MODEL, getJavaModelFile(files));
+		result.put(PCM_REPOSITORY, files.getPcmRepositoryPath());
+		result.put(PCM_SYSTEM, files.getPcmSystemPath());
+		result.put(PCM_ALLOCATION, files.getPcmAllocationPath());
+		result.put(PCM_USAGE_MODEL, files.getPcmUsageModelPath());
+		result.put(PCM_RESOURCE_ENVIRONMENT, files.getPcmResourceEnvironmentPath());
+		result.put(INSTRUMENTATION_MODEL, files.getImPath());
+		return result;
+	}
+
+	private static Path getJavaModelFile(FileLayout files) {
+		return new JavaFileSystemLayout(files.getJavaPath().toAbsolutePath()).getJavaModelFile();
+	}
+
+	/**
+	 * Returns the names of the models which are stored in the binary encoding according to the settings.
+	 *
+	 * @return the names.
+	 */
+	public static Set<String> getSelectedModels() {
+		String value = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.BINARY_RESOURCE_MODELS);
+		if (value == null) {
+			return Set.of();
+		}
+		return Arrays.stream(value.split(";")).map(String::trim).filter(s -> !s.isEmpty())
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Registers a format-detecting resource factory for the file extensions of the selected models in the global
+	 * registry.
+	 * Resources created by this factory are saved in the binary encoding if they belong to a selected model.
+	 *
+	 * @param files          the file layout.
+	 * @param selectedModels names of the models which are stored in the binary encoding.
+	 * @return the registered factory.
+	 */
+	public static Resource.Factory install(FileLayout files, Set<String> selectedModels) {
+		FormatDetectingResourceFactory factory = new FormatDetectingResourceFactory(
+				createSelection(files, selectedModels));
+		registerFactory(Resource.Factory.Registry.INSTANCE, files, selectedModels, factory);
+		LOGGER.debug("Storing the models " + selectedModels + " in the binary encoding.");
+		return factory;
+	}
+
+	/**
+	 * Registers a format-detecting resource factory in the local registry of a ResourceSet, e. g., of the V-SUM, and
+	 * configures its already loaded resources so that they are saved in the selected format.
+	 *
+	 * @param resourceSet    the ResourceSet.
+	 * @param files          the file layout.
+	 * @param selectedModels names of the models which are stored in the binary encoding.
+	 */
+	public static void configure(ResourceSet resourceSet, FileLayout files, Set<String> selectedModels) {
+		Selection selection = createSelection(files, selectedModels);
+		FormatDetectingResourceFactory factory = new FormatDetectingResourceFactory(selection);
+		registerFactory(resourceSet.getResourceFactoryRegistry(), files, selectedModels, factory);
+		for (Resource resource : resourceSet.getResources()) {
+			if (resource instanceof XMLResource) {
+				setBinary((XMLResource) resource, selection.isBinary(resource.getURI()));
+			}
+		}
+	}
+
+	private static void registerFactory(Resource.Factory.Registry registry, FileLayout files,
+			Set<String> selectedModels, Resource.Factory factory) {
+		// The factory is only registered for the selected models to keep the factories of other models.
+		Map<String, Path> modelFiles = getModelFiles(files);
+		for (String name : selectedModels) {
+			Path file = modelFiles.get(name);
+			if (file != null) {
+				registry.getExtensionToFactoryMap().put(getFileExtension(file), factory);
+			}
+		}
+	}
+
+	private static Selection createSelection(FileLayout files, Set<String> selectedModels) {
+		Map<String, Path> modelFiles = getModelFiles(files);
+		List<URI> binaryURIs = new ArrayList<>();
+		URI javaModelContainer = null;
+		for (String name : selectedModels) {
+			Path file = modelFiles.get(name);
+			if (file == null) {
+				LOGGER.debug("Unknown model " + name + " for the binary encoding.");
+			} else if (name.equals(JAVA_MODEL)) {
+				javaModelContainer = URI.createFileURI(file.toAbsolutePath().getParent().toString());
+			} else {
+				binaryURIs.add(URI.createFileURI(file.toAbsolutePath().toString()));
+			}
+		}
+		return new Selection(binaryURIs, javaModelContainer,
+				getFileExtension(modelFiles.get(JAVA_MODEL)));
+	}
+
+	private static String getFileExtension(Path file) {
+		String name = file.getFileName().toString();
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Sets the format in which a resource is saved.
+	 *
+	 * @param resource the resource.
+	 * @param binary   true for the binary encoding. false for XMI.
+	 */
+	public static void setBinary(XMLResource resource, boolean binary) {
+		@SuppressWarnings("unchecked")
+		Map<Object, Object> options = (Map<Object, Object>) resource.getDefaultSaveOptions();
+		if (binary) {
+			options.put(XMLResource.OPTION_BINARY, Boolean.TRUE);
+		} else {
+			options.remove(XMLResource.OPTION_BINARY);
+		}
+	}
+
+	/**
+	 * Checks if a stream starts with the signature of the binary encoding. The stream is reset afterward.
+	 *
+	 * @param in the stream which must support marks.
+	 * @return true if the stream contains the binary encoding.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	static boolean isBinary(InputStream in) throws IOException {
+		in.mark(BINARY_SIGNATURE.length);
+		try {
+			return isBinary(in.readNBytes(BINARY_SIGNATURE.length));
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Checks if the content of a file starts with the signature of the binary encoding.
+	 *
+	 * @param content the content or at least its start.
+	 * @return true if the content is in the binary encoding.
+	 */
+	public static boolean isBinary(byte[] content) {
+		return content.length >= BINARY_SIGNATURE.length
+				&& Arrays.equals(content, 0, BINARY_SIGNATURE.length, BINARY_SIGNATURE, 0, BINARY_SIGNATURE.length);
+	}
+
+	/**
+	 * Checks if a file starts with the signature of the binary encoding.
+	 *
+	 * @param file the file.
+	 * @return true if the file is in the binary encoding.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static boolean isBinary(Path file) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			return isBinary(in);
+		}
+	}
+
+	/**
+	 * Determines which resources are saved in the binary encoding.
+	 */
+	private static class Selection {
+		private List<URI> binaryURIs;
+		private URI javaModelContainer;
+		private String javaModelExtension;
+
+		Selection(List<URI> binaryURIs, URI javaModelContainer, String javaModelExtension) {
+			this.binaryURIs = binaryURIs;
+			this.javaModelContainer = javaModelContainer;
+			this.javaModelExtension = javaModelExtension;
+		}
+
+		boolean isBinary(URI uri) {
+			if (binaryURIs.contains(uri)) {
+				return true;
+			}
+			// The Java model can be split into multiple shards next to each other.
+			return javaModelContainer != null && javaModelExtension.equals(uri.fileExtension())
+					&& javaModelContainer.equals(uri.trimSegments(1));
+		}
+	}
+
+	/**
+	 * A factory for XMI resources which detect the format of a file during loading.
+	 */
+	private static class FormatDetectingResourceFactory extends XMIResourceFactoryImpl {
+		private Selection selection;
+
+		FormatDetectingResourceFactory(Selection selection) {
+			this.selection = selection;
+		}
+
+		@Override
+		public Resource createResource(URI uri) {
+			FormatDetectingResource resource = new FormatDetectingResource(uri);
+			setBinary(resource, selection.isBinary(uri));
+			return resource;
+		}
+	}
+
+	/**
+	 * An XMI resource which loads files in XMI and in the binary encoding.
+	 */
+	static class FormatDetectingResource extends XMIResourceImpl {
+		FormatDetectingResource(URI uri) {
+			super(uri);
+		}
+
+		@Override
+		protected void doLoad(InputStream inputStream, Map<?, ?> options) throws IOException {
+			BufferedInputStream in = new BufferedInputStream(inputStream);
+			Map<Object, Object> loadOptions = options != null ? new HashMap<>(options) : new HashMap<>();
+			if (isBinary(in)) {
+				loadOptions.put(OPTION_BINARY, Boolean.TRUE);
+			} else {
+				loadOptions.remove(OPTION_BINARY);
+			}
+			super.doLoad(in, loadOptions);
+		}
+	}
+}
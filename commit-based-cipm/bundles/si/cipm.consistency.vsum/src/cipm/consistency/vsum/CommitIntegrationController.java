@@ -23,11 +23,16 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 
 import cipm.consistency.commitintegration.CommitChangePropagator;
 import cipm.consistency.commitintegration.ExternalCommandExecutionUtils;
+import cipm.consistency.commitintegration.JavaModelSharder;
+import cipm.consistency.commitintegration.ResourcePersistenceManager;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
 import cipm.consistency.cpr.javapcm.additional.validation.ExternalCallEmptyTargetFiller;
 import cipm.consistency.designtime.instrumentation2.CodeInstrumenter;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.ExecutionTimeData;
+import cipm.consistency.tools.evaluation.data.StageSpan;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.framework.propagation.ChangePropagationSpecification;
 
 /**
@@ -37,8 +42,12 @@ import tools.vitruv.framework.propagation.ChangePropagationSpecification;
  */
 public class CommitIntegrationController {
 	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitIntegrationController.class.getSimpleName());
+	private Path rootPath;
+	private String repositoryPath;
+	private ChangePropagationSpecification javaPCMSpecification;
 	private VSUMFacade facade;
 	private CommitChangePropagator prop;
+	private ActionInstrumentationPointActivation activation;
 	private Resource instrumentedModel;
 	
 	/**
@@ -54,10 +63,23 @@ public class CommitIntegrationController {
 	public CommitIntegrationController(Path rootPath, String repositoryPath, Path settingsPath,
 			ChangePropagationSpecification javaPCMSpecification) throws IOException, GitAPIException {
 		CommitIntegrationSettingsContainer.initialize(settingsPath);
+		this.rootPath = rootPath;
+		this.repositoryPath = repositoryPath;
+		this.javaPCMSpecification = javaPCMSpecification;
+		setUp();
+	}
+	
+	private void setUp() throws IOException, GitAPIException {
 		facade = new VSUMFacade(rootPath, javaPCMSpecification);
 		prop = new CommitChangePropagator(repositoryPath,
 				facade.getFileLayout().getJavaPath().toString(), facade.getVSUM());
 		prop.initialize();
+		ResourcePersistenceManager persistence = ResourcePersistenceManager.getGlobalManager();
+		persistence.setDeferred(CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_DEFERRED_SAVING));
+		persistence.track(facade.getInstrumentationModel().eResource());
+		persistence.track(facade.getPCMWrapper().getRepository().eResource());
+		activation = new ActionInstrumentationPointActivation(facade.getInstrumentationModel());
 	}
 	
 	/**
@@ -101,15 +123,25 @@ public class CommitIntegrationController {
 		Path insDir = this.prop.getJavaFileSystemLayout().getInstrumentationCopy();
 		removeInstrumentationDirectory(insDir);
 		
-		// Deactivate all action instrumentation points.
-		this.facade.getInstrumentationModel().getPoints().forEach(sip -> 
-			sip.getActionInstrumentationPoints().forEach(aip -> aip.setActive(false)));
-		this.facade.getInstrumentationModel().eResource().save(null);
+		// Deactivate all action instrumentation points. The model is only saved if a point was active.
+		if (activation.deactivateAll() > 0) {
+			ResourcePersistenceManager.getGlobalManager().requestSave(
+					this.facade.getInstrumentationModel().eResource());
+		}
+		
+		// Cached correspondences of the previous commit can keep its removed models alive.
+		CorrespondenceIndex.get(facade.getVSUM().getCorrespondenceModel()).clear();
 		
 		long fineTimer = System.currentTimeMillis();
 		
 		// Propagate the changes.
-		boolean result = prop.propagateChanges(oldCommit, newCommit);
+		boolean result;
+		try {
+			result = prop.propagateChanges(oldCommit, newCommit);
+		} catch (IOException | GitAPIException | RuntimeException e) {
+			rollBack(oldCommit, newCommit, e);
+			throw e;
+		}
 		
 		fineTimer = System.currentTimeMillis() - fineTimer;
 		EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
@@ -120,15 +152,16 @@ public class CommitIntegrationController {
 			ExternalCallEmptyTargetFiller filler = new ExternalCallEmptyTargetFiller(
 					facade.getVSUM().getCorrespondenceModel(),
 					facade.getPCMWrapper().getRepository(),
-					prop.getJavaFileSystemLayout().getExternalCallTargetPairsFile());
-			filler.fillExternalCalls();
-			
-			boolean hasChangedIM = false;
-			for (var sip : this.facade.getInstrumentationModel().getPoints()) {
-				for (var aip : sip.getActionInstrumentationPoints()) {
-					hasChangedIM |= aip.isActive();
-				}
+					prop.getJavaFileSystemLayout().getExternalCallTargetPairsFile(),
+					// In the deferred mode, an unmodified repository is not saved.
+					repo -> ResourcePersistenceManager.getGlobalManager().requestSave(repo.eResource()));
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_EXTERNAL_CALL_FILLING)) {
+				filler.fillExternalCalls();
 			}
+			// The requested Resources are copied and saved in the background while the code is instrumented.
+			ResourcePersistenceManager.getGlobalManager().flushAsync();
+			
+			boolean hasChangedIM = activation.hasActivePoints();
 			if (!hasChangedIM) {
 				LOGGER.debug("No instrumentation points changed.");
 			}
@@ -139,7 +172,10 @@ public class CommitIntegrationController {
 			// shall be performed.
 			if (hasChangedIM || fullInstrumentation) {
 				fineTimer = System.currentTimeMillis();
-				Resource insModel = performInstrumentation(insDir, fullInstrumentation);
+				Resource insModel;
+				try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_INSTRUMENTATION)) {
+					insModel = performInstrumentation(insDir, fullInstrumentation);
+				}
 				fineTimer = System.currentTimeMillis() - fineTimer;
 				EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
 						.setInstrumentationTime(fineTimer);
@@ -148,11 +184,66 @@ public class CommitIntegrationController {
 				}
 			}
 		}
+		ResourcePersistenceManager.getGlobalManager().flush();
+		if (result) {
+			storeSnapshot(newCommit);
+		}
 		overallTimer = System.currentTimeMillis() - overallTimer;
 		EvaluationDataContainer.getGlobalContainer().getExecutionTimes().setOverallTime(overallTimer);
 		return result;
 	}
 
+	private void storeSnapshot(String commit) {
+		VSUMSnapshotStore store = facade.getSnapshotStore();
+		if (store == null) {
+			return;
+		}
+		try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_SNAPSHOT)) {
+			store.create(commit, facade.getFileLayout());
+		} catch (IOException e) {
+			LOGGER.error("Could not store the snapshot for the commit " + commit, e);
+		}
+	}
+	
+	private void rollBack(String oldCommit, String newCommit, Exception cause) {
+		if (oldCommit == null) {
+			return;
+		}
+		try {
+			if (restoreSnapshot(oldCommit)) {
+				LOGGER.debug("Rolled back the failed propagation of " + newCommit + " to the state after "
+						+ oldCommit);
+			}
+		} catch (IOException | GitAPIException | RuntimeException e) {
+			cause.addSuppressed(e);
+		}
+	}
+	
+	/**
+	 * Restores the state after a propagated commit from the snapshot store given by the settings. The V-SUM and the
+	 * change propagator are reloaded afterward so that references to the previous instances are outdated.
+	 * 
+	 * @param commit the propagated commit.
+	 * @return true if the state was restored. false if no snapshot exists for the commit.
+	 * @throws IOException if the snapshot cannot be restored.
+	 * @throws GitAPIException if the reloading of the repository fails.
+	 */
+	@SuppressWarnings("restriction")
+	public boolean restoreSnapshot(String commit) throws IOException, GitAPIException {
+		VSUMSnapshotStore store = facade.getSnapshotStore();
+		if (store == null || !store.contains(commit)) {
+			return false;
+		}
+		ResourcePersistenceManager.getGlobalManager().discard();
+		activation.dispose();
+		facade.getVSUM().dispose();
+		prop.shutdown();
+		instrumentedModel = null;
+		store.restore(commit, facade.getFileLayout());
+		setUp();
+		return true;
+	}
+
 	/**
 	 * Removes potentially available instrumented code and performs a new instrumentation.
 	 * 
@@ -178,11 +269,11 @@ public class CommitIntegrationController {
 	
 	@SuppressWarnings("restriction")
 	private Resource performInstrumentation(Path instrumentationDirectory, boolean performFullInstrumentation) {
-		Resource javaModel = getJavaModelResource();
+		List<Resource> javaModels = getJavaModelResources();
 		return CodeInstrumenter.instrument(
 			this.facade.getInstrumentationModel(),
 			this.facade.getVSUM().getCorrespondenceModel(),
-			javaModel, instrumentationDirectory,
+			javaModels, instrumentationDirectory,
 			this.prop.getJavaFileSystemLayout().getLocalJavaRepo(), !performFullInstrumentation);
 	}
 
@@ -194,19 +285,25 @@ public class CommitIntegrationController {
 	public void compileAndDeployInstrumentedCode() throws IOException {
 		Path instrumentationCodeDir = this.prop.getJavaFileSystemLayout().getInstrumentationCopy();
 		if (Files.exists(instrumentationCodeDir)) {
-			boolean compilationResult = compileInstrumentedCode(instrumentationCodeDir);
+			boolean compilationResult;
+			try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_COMPILATION)) {
+				compilationResult = compileInstrumentedCode(instrumentationCodeDir);
+			}
 			if (compilationResult) {
 				Path deployPath = Paths.get(CommitIntegrationSettingsContainer.getSettingsContainer()
 						.getProperty(SettingKeys.DEPLOYMENT_PATH));
-				var result = copyArtifacts(instrumentationCodeDir, deployPath);
-				LOGGER.debug("Removing the monitoring classes.");
-				result.forEach(p -> {
-					try {
-						removeMonitoringClasses(p);
-					} catch (IOException e) {
-						LOGGER.error(e);
-					}
-				});
+				try (StageSpan span = ExecutionTimeData.startGlobalStage(ExecutionTimeData.STAGE_DEPLOYMENT)) {
+					var result = copyArtifacts(instrumentationCodeDir, deployPath);
+					span.count(ExecutionTimeData.COUNTER_FILES, result.size());
+					LOGGER.debug("Removing the monitoring classes.");
+					result.forEach(p -> {
+						try {
+							removeMonitoringClasses(p);
+						} catch (IOException e) {
+							LOGGER.error(e);
+						}
+					});
+				}
 			} else {
 				LOGGER.debug("Could not compile the instrumented code.");
 			}
@@ -312,8 +409,18 @@ public class CommitIntegrationController {
 	 */
 	@SuppressWarnings("restriction")
 	public void shutdown() {
+		try {
+			ResourcePersistenceManager.getGlobalManager().flush();
+		} catch (IOException e) {
+			LOGGER.error(e);
+		}
 		facade.getVSUM().dispose();
 		prop.shutdown();
+		if (CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.UPDATE_VSUM_SNAPSHOT)) {
+			// The next run starts with the state after the propagated commits.
+			facade.createSnapshot();
+		}
 	}
 	
 	@SuppressWarnings("restriction")
@@ -323,6 +430,28 @@ public class CommitIntegrationController {
 				.getResource();
 	}
 	
+	/**
+	 * Returns all Resources of the Java model. If the Java model is split into one Resource per module, these
+	 * Resources are returned. Otherwise, the list only contains the Resource with the complete Java model.
+	 * 
+	 * @return the Resources.
+	 */
+	@SuppressWarnings("restriction")
+	public List<Resource> getJavaModelResources() {
+		if (!CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_MODEL_SHARDING)) {
+			return List.of(getJavaModelResource());
+		}
+		List<Resource> result = new ArrayList<>();
+		for (URI uri : JavaModelSharder.readShardURIs(prop.getJavaFileSystemLayout().getJavaModelFile())) {
+			var modelInstance = this.facade.getVSUM().getModelInstance(uri);
+			if (modelInstance != null) {
+				result.add(modelInstance.getResource());
+			}
+		}
+		return result;
+	}
+	
 	public Resource getLastInstrumentedModelResource() {
 		return this.instrumentedModel;
 	}
@@ -0,0 +1,277 @@
+package cipm.consistency.vsum;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
+/**
+ * A long-running daemon which keeps one {@link CommitIntegrationController} with its V-SUM and local repository in
+ * memory and propagates new commits as they arrive. Requests are accepted from three sources: the daemon watches the
+ * refs of a local (bare) repository, reads request files from a spool directory, and listens on a local socket. A
+ * request is a single line which is either <code>fetch</code> to fetch and propagate all new commits or
+ * <code>propagate &lt;old commit&gt; &lt;new commit&gt;</code>. All requests are processed one after the other. As the
+ * daemon does not evaluate the propagations, the global evaluation data are reset for every propagation so that they
+ * do not grow while the daemon runs.
+ *
+ * @author Martin Armbruster
+ */
+public class CommitIntegrationDaemon {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitIntegrationDaemon.class.getSimpleName());
+	private static final String FETCH_REQUEST = "fetch";
+	private static final String PROPAGATE_REQUEST = "propagate";
+	private static final String STOP_REQUEST = "stop";
+	private static final String REQUEST_FILE_EXTENSION = ".request";
+	private CommitIntegrationController controller;
+	private String watchedRepository;
+	private Path spoolDirectory;
+	private int port;
+	private long pollInterval;
+	private BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+	private ScheduledExecutorService watcher;
+	private Thread worker;
+	private Thread listener;
+	private ServerSocket serverSocket;
+	private Map<String, String> lastRefs = new HashMap<>();
+	private volatile boolean running;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param controller the controller which propagates the changes. It must be initialized with the watched
+	 *                   repository as remote repository.
+	 * @param watchedRepository path to the local repository whose refs are watched. Can be null if no repository
+	 *                          shall be watched.
+	 * @param spoolDirectory the directory from which request files (*.request) are read. Can be null if no spool
+	 *                       directory shall be used.
+	 * @param port the port on which the daemon listens on the loopback interface. Values lower than one disable the
+	 *             socket.
+	 * @param pollInterval the interval in milliseconds in which the repository and spool directory are checked.
+	 */
+	public CommitIntegrationDaemon(CommitIntegrationController controller, String watchedRepository,
+			Path spoolDirectory, int port, long pollInterval) {
+		this.controller = controller;
+		this.watchedRepository = watchedRepository;
+		this.spoolDirectory = spoolDirectory;
+		this.port = port;
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * Starts the daemon. Changes which arrived while the daemon was not running are propagated first.
+	 *
+	 * @throws IOException if the spool directory cannot be created or the socket cannot be opened.
+	 */
+	public synchronized void start() throws IOException {
+		if (running) {
+			return;
+		}
+		running = true;
+		if (spoolDirectory != null) {
+			Files.createDirectories(spoolDirectory);
+		}
+		if (watchedRepository != null) {
+			lastRefs = readRefs();
+			requests.add(FETCH_REQUEST);
+		}
+		worker = new Thread(this::processRequests, "cipm-daemon-worker");
+		worker.start();
+		watcher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "cipm-daemon-watcher"));
+		watcher.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+		if (port > 0) {
+			serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+			listener = new Thread(this::listen, "cipm-daemon-listener");
+			listener.start();
+		}
+		LOGGER.debug("Started the daemon.");
+	}
+
+	/**
+	 * Adds a request to the queue of this daemon.
+	 *
+	 * @param request the request.
+	 * @return true if the request is valid and was queued. false otherwise.
+	 */
+	public boolean submit(String request) {
+		String trimmed = request.trim();
+		String[] parts = trimmed.split("\\s+");
+		boolean valid = parts.length == 1 && (parts[0].equals(FETCH_REQUEST) || parts[0].equals(STOP_REQUEST))
+				|| parts.length == 3 && parts[0].equals(PROPAGATE_REQUEST);
+		if (!running || !valid) {
+			LOGGER.debug("Rejected the request: " + trimmed);
+			return false;
+		}
+		requests.add(trimmed);
+		return true;
+	}
+
+	private void poll() {
+		try {
+			if (watchedRepository != null) {
+				Map<String, String> refs = readRefs();
+				if (!refs.equals(lastRefs)) {
+					LOGGER.debug("Detected updated refs in " + watchedRepository);
+					lastRefs = refs;
+					submit(FETCH_REQUEST);
+				}
+			}
+			if (spoolDirectory != null) {
+				readSpoolDirectory();
+			}
+		} catch (IOException | GitAPIException e) {
+			LOGGER.error(e);
+		}
+	}
+
+	private Map<String, String> readRefs() throws GitAPIException {
+		return Git.lsRemoteRepository().setRemote(watchedRepository).setHeads(true).call().stream()
+				.collect(Collectors.toMap(Ref::getName, r -> r.getObjectId().getName()));
+	}
+
+	private void readSpoolDirectory() throws IOException {
+		List<Path> files;
+		try (Stream<Path> stream = Files.list(spoolDirectory)) {
+			files = stream.filter(p -> p.getFileName().toString().endsWith(REQUEST_FILE_EXTENSION)).sorted()
+					.collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				if (!line.isBlank()) {
+					submit(line);
+				}
+			}
+			Files.delete(file);
+		}
+	}
+
+	private void listen() {
+		while (running) {
+			try (Socket socket = serverSocket.accept();
+					BufferedReader reader = new BufferedReader(
+							new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+					PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+				String line = reader.readLine();
+				writer.println(line != null && submit(line) ? "queued" : "rejected");
+			} catch (IOException e) {
+				if (running) {
+					LOGGER.error(e);
+				}
+			}
+		}
+	}
+
+	private void processRequests() {
+		while (running) {
+			String request;
+			try {
+				request = requests.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			String[] parts = request.split("\\s+");
+			if (parts[0].equals(STOP_REQUEST)) {
+				new Thread(this::stop, "cipm-daemon-stop").start();
+				return;
+			}
+			long timer = System.currentTimeMillis();
+			try {
+				if (parts[0].equals(FETCH_REQUEST)) {
+					propagateNewCommits();
+				} else {
+					propagateChanges(parts[1], parts[2]);
+				}
+			} catch (IOException | GitAPIException | RuntimeException e) {
+				LOGGER.error("The request " + request + " failed.", e);
+			}
+			timer = System.currentTimeMillis() - timer;
+			LOGGER.debug("Processed the request " + request + " in " + timer + " ms.");
+		}
+	}
+
+	private void propagateNewCommits() throws IOException, GitAPIException {
+		List<RevCommit> commits = controller.getCommitChangePropagator().fetchNewCommits();
+		if (commits.isEmpty()) {
+			return;
+		}
+		// The local repository already points to the last fetched commit. Therefore, a commit which is not propagated
+		// is skipped, and the next commit is propagated from the last propagated commit as in
+		// CommitChangePropagator.propagateChanges(List).
+		RevCommit first = commits.get(0);
+		for (int idx = 1; idx < commits.size() && running; idx++) {
+			RevCommit next = commits.get(idx);
+			boolean result = propagateChanges(first.getName(), next.getName());
+			if (result) {
+				first = next;
+			} else {
+				LOGGER.debug("Could not propagate the changes of " + next.getName());
+			}
+		}
+	}
+
+	private boolean propagateChanges(String oldCommit, String newCommit) throws IOException, GitAPIException {
+		EvaluationDataContainer.setGlobalContainer(new EvaluationDataContainer());
+		return controller.propagateChanges(oldCommit, newCommit);
+	}
+
+	/**
+	 * Stops the daemon. A propagation in progress is finished before the worker terminates. The controller is not
+	 * shut down.
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		watcher.shutdownNow();
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				LOGGER.error(e);
+			}
+		}
+		requests.clear();
+		requests.add(STOP_REQUEST);
+		LOGGER.debug("Stopped the daemon.");
+	}
+
+	/**
+	 * Waits until the daemon has processed its last request.
+	 *
+	 * @throws InterruptedException if the waiting thread is interrupted.
+	 */
+	public void awaitTermination() throws InterruptedException {
+		if (worker != null) {
+			worker.join();
+		}
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+}
@@ -12,6 +12,7 @@ import org.eclipse.xtend.lib.annotations.Accessors
 @Accessors
 class FileLayout {
 	static final String vsumDirName = "vsum";
+	static final String correspondencesFileName = "correspondences.correspondence";
 	static final String pcmDirName = "pcm";
 	static final String pcmRepositoryFileName = "Repository.repository";
 	static final String pcmSystemFileName = "System.system";
@@ -24,6 +25,7 @@ class FileLayout {
 	static final String commitsFileName = ".commits";
 	Path rootPath;
 	Path vsumPath;
+	URI correspondencesURI;
 	Path pcmRepositoryPath;
 	URI pcmRepositoryURI;
 	Path pcmSystemPath;
@@ -42,6 +44,7 @@ class FileLayout {
 	new(Path rootDir) {
 		rootPath = rootDir;
 		vsumPath = rootDir.resolve(vsumDirName);
+		correspondencesURI = URI.createFileURI(vsumPath.resolve(correspondencesFileName).toAbsolutePath().toString());
 		var pcm = rootDir.resolve(pcmDirName);
 		pcmRepositoryPath = pcm.resolve(pcmRepositoryFileName).toAbsolutePath();
 		pcmRepositoryURI = URI.createFileURI(pcmRepositoryPath.toString());
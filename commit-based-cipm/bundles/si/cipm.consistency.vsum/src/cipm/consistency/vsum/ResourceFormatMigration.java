@@ -0,0 +1,112 @@
+package cipm.consistency.vsum;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+/**
+ * A tool for the migration of the model files in a {@link FileLayout} between XMI and EMF's binary resource encoding.
+ * The V-SUM must not be in use during the migration.
+ *
+ * @author Martin Armbruster
+ */
+public final class ResourceFormatMigration {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ResourceFormatMigration.class.getSimpleName());
+
+	private ResourceFormatMigration() {
+	}
+
+	/**
+	 * Migrates the files of models to a format.
+	 *
+	 * @param files    the file layout.
+	 * @param models   names of the models to migrate (see {@link BinaryResourceSupport#getModelFiles(FileLayout)}).
+	 * @param toBinary true for the migration to the binary encoding. false for the migration to XMI.
+	 * @return the migrated files.
+	 * @throws IOException if a file cannot be loaded or saved.
+	 */
+	public static List<Path> migrate(FileLayout files, Set<String> models, boolean toBinary) throws IOException {
+		Map<String, Path> modelFiles = BinaryResourceSupport.getModelFiles(files);
+		List<Path> toMigrate = new ArrayList<>();
+		for (String model : models) {
+			Path file = modelFiles.get(model);
+			if (file == null) {
+				continue;
+			}
+			if (model.equals(BinaryResourceSupport.JAVA_MODEL)) {
+				toMigrate.addAll(findJavaModelFiles(file));
+			} else if (Files.exists(file)) {
+				toMigrate.add(file);
+			}
+		}
+		// All files are loaded into one ResourceSet so that references between them are kept.
+		ResourceSet resourceSet = new ResourceSetImpl();
+		List<Resource> resources = new ArrayList<>();
+		for (Path file : toMigrate) {
+			resources.add(load(resourceSet, file));
+		}
+		for (Resource resource : resources) {
+			BinaryResourceSupport.setBinary((XMLResource) resource, toBinary);
+			resource.save(null);
+			LOGGER.debug("Migrated " + resource.getURI() + " to " + (toBinary ? "the binary encoding." : "XMI."));
+		}
+		resources.forEach(Resource::unload);
+		return toMigrate;
+	}
+
+	/**
+	 * Converts a single model file to a format.
+	 *
+	 * @param file     the file.
+	 * @param toBinary true for the conversion to the binary encoding. false for the conversion to XMI.
+	 * @throws IOException if the file cannot be loaded or saved.
+	 */
+	public static void convert(Path file, boolean toBinary) throws IOException {
+		Resource resource = load(new ResourceSetImpl(), file);
+		BinaryResourceSupport.setBinary((XMLResource) resource, toBinary);
+		resource.save(null);
+		resource.unload();
+	}
+
+	/**
+	 * Loads a model file in any format.
+	 *
+	 * @param resourceSet the ResourceSet in which the model is loaded.
+	 * @param file        the model file.
+	 * @return the Resource with the loaded model.
+	 * @throws IOException if the file cannot be loaded.
+	 */
+	public static Resource load(ResourceSet resourceSet, Path file) throws IOException {
+		Resource resource = new BinaryResourceSupport.FormatDetectingResource(
+				URI.createFileURI(file.toAbsolutePath().toString()));
+		resourceSet.getResources().add(resource);
+		resource.load(null);
+		return resource;
+	}
+
+	private static List<Path> findJavaModelFiles(Path javaModelFile) throws IOException {
+		Path container = javaModelFile.toAbsolutePath().getParent();
+		if (Files.notExists(container)) {
+			return new ArrayList<>();
+		}
+		String fileName = javaModelFile.getFileName().toString();
+		String extension = fileName.substring(fileName.lastIndexOf('.'));
+		try (Stream<Path> stream = Files.list(container)) {
+			return stream.filter(Files::isRegularFile).filter(p -> p.getFileName().toString().endsWith(extension))
+					.sorted().collect(Collectors.toList());
+		}
+	}
+}
@@ -3,7 +3,10 @@ package cipm.consistency.vsum;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
 
+import org.apache.log4j.Logger;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.palladiosimulator.pcm.allocation.Allocation;
 import org.palladiosimulator.pcm.allocation.AllocationFactory;
@@ -22,6 +25,7 @@ import cipm.consistency.base.models.instrumentation.InstrumentationModel.Instrum
 import cipm.consistency.base.shared.FileBackedModelUtil;
 import cipm.consistency.base.shared.pcm.InMemoryPCM;
 import cipm.consistency.base.shared.pcm.LocalFilesystemPCM;
+import cipm.consistency.commitintegration.ScopedStatePropagation;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
 import tools.vitruv.domains.provider.im.InstrumentationModelDomainProvider;
@@ -29,6 +33,7 @@ import tools.vitruv.domains.provider.java.AdjustedJavaDomainProvider;
 import cipm.consistency.domains.pcm.ExtendedPcmDomain;
 import tools.vitruv.domains.provider.pcm.ExtendedPcmDomainProvider;
 import mir.reactions.imUpdate.ImUpdateChangePropagationSpecification;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.extensions.dslsruntime.reactions.helper.ReactionsCorrespondenceHelper;
 import tools.vitruv.framework.propagation.ChangePropagationSpecification;
 import tools.vitruv.framework.userinteraction.UserInteractionFactory;
@@ -42,6 +47,7 @@ import tools.vitruv.framework.vsum.internal.InternalVirtualModel;
  */
 @SuppressWarnings("restriction")
 public class VSUMFacade {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + VSUMFacade.class.getSimpleName());
 	private FileLayout files;
 	private InternalVirtualModel vsum;
 	private LocalFilesystemPCM filePCM;
@@ -55,6 +61,18 @@ public class VSUMFacade {
 	
 	private void setUp(ChangePropagationSpecification javaPCMSpecification) {
 		boolean isVSUMExistent = Files.exists(files.getVsumPath());
+		Path snapshot = getSnapshotPath();
+		if (!isVSUMExistent && snapshot != null && Files.exists(snapshot)) {
+			try {
+				isVSUMExistent = VSUMSnapshot.restore(snapshot, files);
+			} catch (IOException e) {
+				LOGGER.error("Could not restore the snapshot " + snapshot + ". The V-SUM is initialized.", e);
+			}
+		}
+		Set<String> binaryModels = BinaryResourceSupport.getSelectedModels();
+		if (!binaryModels.isEmpty()) {
+			BinaryResourceSupport.install(files, binaryModels);
+		}
 		ExtendedPcmDomain pcmDomain = new ExtendedPcmDomainProvider().getDomain();
 		pcmDomain.enableTransitiveChangePropagation();
 		var vsumBuilder = new VirtualModelBuilder().withDomain(new AdjustedJavaDomainProvider().getDomain())
@@ -91,6 +109,10 @@ public class VSUMFacade {
 			pcm.setUsageModel((UsageModel) resource.getContents().get(0));
 			resource = vsum.getModelInstance(files.getImURI()).getResource();
 			imm = (InstrumentationModel) resource.getContents().get(0);
+			if (!binaryModels.isEmpty()) {
+				BinaryResourceSupport.configure(resource.getResourceSet(), files, binaryModels);
+			}
+			observeCorrespondences();
 		} else {
 			pcm.setRepository(RepositoryFactory.eINSTANCE.createRepository());
 			pcm.setSystem(SystemFactory.eINSTANCE.createSystem());
@@ -117,10 +139,82 @@ public class VSUMFacade {
 				vsum.dispose();
 			} catch (IOException e) {
 			}
+			if (snapshot != null && !Files.exists(snapshot)) {
+				// The initialized V-SUM is stored so that later runs do not need to initialize it again.
+				createSnapshot(snapshot);
+			}
 			setUp(javaPCMSpecification);
 		}
 	}
 	
+	/**
+	 * Lets the correspondence index listen to the correspondences so that it caches the lookups from the first
+	 * propagation on. The correspondence model does not provide its Resource. Therefore, it is looked up in the
+	 * ResourceSet of the V-SUM by its location in the storage folder. If the V-SUM does not contain it, the index
+	 * starts listening with the first added correspondence.
+	 */
+	private void observeCorrespondences() {
+		Resource resource = imm.eResource().getResourceSet().getResource(files.getCorrespondencesURI(), false);
+		if (resource != null) {
+			CorrespondenceIndex.observe(vsum.getCorrespondenceModel(), resource);
+		} else {
+			LOGGER.debug("The V-SUM does not contain the correspondences " + files.getCorrespondencesURI() + ".");
+		}
+	}
+
+	private static Path getSnapshotPath() {
+		String snapshot = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.VSUM_SNAPSHOT_PATH);
+		return snapshot != null && !snapshot.isBlank() ? Paths.get(snapshot).toAbsolutePath() : null;
+	}
+
+	/**
+	 * Stores the current state of the V-SUM in the snapshot file given by the settings. The V-SUM must be disposed
+	 * before.
+	 * 
+	 * @return true if the snapshot was created.
+	 */
+	public boolean createSnapshot() {
+		Path snapshot = getSnapshotPath();
+		return snapshot != null && createSnapshot(snapshot);
+	}
+
+	/**
+	 * Returns the store for the snapshots per commit given by the settings.
+	 *
+	 * @return the store or null if no store is configured.
+	 */
+	public VSUMSnapshotStore getSnapshotStore() {
+		String store = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.VSUM_SNAPSHOT_STORE_PATH);
+		return store != null && !store.isBlank() ? new VSUMSnapshotStore(Paths.get(store)) : null;
+	}
+
+	private boolean createSnapshot(Path snapshot) {
+		try {
+			VSUMSnapshot.create(files, snapshot);
+			return true;
+		} catch (IOException e) {
+			LOGGER.error("Could not create the snapshot " + snapshot, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Propagates the new state of a Java model in which only the changed compilation units are compared with the
+	 * stored state.
+	 * 
+	 * @param newState                  the Resource with the new state.
+	 * @param unchangedCompilationUnits names of the unchanged compilation units, e. g., determined by
+	 *                                  {@link ScopedStatePropagation#findUnchangedCompilationUnits}. If it is null,
+	 *                                  the complete state is compared.
+	 * @return the number of propagated changes.
+	 */
+	public int propagateScopedState(Resource newState, Set<String> unchangedCompilationUnits) {
+		return ScopedStatePropagation.propagate(unchangedCompilationUnits, () -> vsum.propagateChangedState(newState))
+				.size();
+	}
+
 	public InternalVirtualModel getVSUM() {
 		return vsum;
 	}
@@ -0,0 +1,205 @@
+package cipm.consistency.vsum;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+
+import cipm.consistency.commitintegration.JavaFileSystemLayout;
+
+/**
+ * A snapshot of the complete state of a {@link FileLayout} in a single file: the V-SUM folder with the correspondence
+ * model and UUID tables, the PCM, the instrumentation model, the Java model, and the propagated commits. Restoring a
+ * snapshot replaces the initialization of the V-SUM so that short-lived runs start with the stored state.
+ *
+ * <p>The snapshot is a zip file whose entries are stored without compression. Its central directory serves as index so
+ * that the entries are read directly from their positions. Absolute file URIs of the root directory within XMI files
+ * are adapted if a snapshot is restored into another root directory. Files in EMF's binary encoding cannot be adapted
+ * so that such snapshots can only be restored into the same root directory.</p>
+ *
+ * @author Martin Armbruster
+ */
+public final class VSUMSnapshot {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + VSUMSnapshot.class.getSimpleName());
+	private static final String INDEX_ENTRY_NAME = "snapshot.properties";
+	private static final String ROOT_URI_KEY = "root";
+	private static final String BINARY_ENTRIES_KEY = "binary";
+	private static final String ENTRY_SEPARATOR = ";";
+
+	private VSUMSnapshot() {
+	}
+
+	/**
+	 * Returns the files and directories of a file layout which belong to a snapshot.
+	 *
+	 * @param files the file layout.
+	 * @return the absolute paths of the files and directories.
+	 */
+	static List<Path> getSnapshotContents(FileLayout files) {
+		List<Path> result = new ArrayList<>();
+		result.add(files.getVsumPath().toAbsolutePath());
+		result.add(files.getPcmRepositoryPath().getParent());
+		result.add(files.getImPath().getParent());
+		result.add(files.getCommitsPath().toAbsolutePath());
+		result.add(files.getJavaPath().toAbsolutePath());
+		return result;
+	}
+
+	static Set<Path> getExcludedPaths(FileLayout files) {
+		// The repository clone and the caches are restored or rebuilt on demand.
+		JavaFileSystemLayout javaLayout = new JavaFileSystemLayout(files.getJavaPath().toAbsolutePath());
+		return Set.of(javaLayout.getLocalJavaRepo(), javaLayout.getParsedModelCache(),
+				javaLayout.getInstrumentationCopy(), javaLayout.getPipelineWorktrees(),
+				javaLayout.getPreprocessingCache());
+	}
+
+	/**
+	 * Stores the state of a file layout in a snapshot. The V-SUM must not be in use.
+	 *
+	 * @param files    the file layout.
+	 * @param snapshot path to the snapshot file. An existing snapshot is replaced.
+	 * @throws IOException if a file cannot be read or the snapshot cannot be written.
+	 */
+	public static void create(FileLayout files, Path snapshot) throws IOException {
+		long start = System.currentTimeMillis();
+		Path root = files.getRootPath().toAbsolutePath();
+		Set<Path> excluded = getExcludedPaths(files);
+		List<Path> toStore = new ArrayList<>();
+		for (Path content : getSnapshotContents(files)) {
+			if (!Files.exists(content)) {
+				continue;
+			}
+			try (Stream<Path> stream = Files.walk(content)) {
+				toStore.addAll(stream.filter(p -> excluded.stream().noneMatch(p::startsWith))
+						.filter(Files::isRegularFile).collect(Collectors.toList()));
+			}
+		}
+		List<String> binaryEntries = new ArrayList<>();
+		Files.createDirectories(snapshot.toAbsolutePath().getParent());
+		Path tmpFile = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(),
+				null);
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(tmpFile))) {
+			for (Path file : toStore) {
+				String name = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+				byte[] content = Files.readAllBytes(file);
+				if (BinaryResourceSupport.isBinary(content)) {
+					binaryEntries.add(name);
+				}
+				writeEntry(out, name, content);
+			}
+			Properties index = new Properties();
+			index.setProperty(ROOT_URI_KEY, getRootURI(root));
+			index.setProperty(BINARY_ENTRIES_KEY, String.join(ENTRY_SEPARATOR, binaryEntries));
+			ByteArrayOutputStream indexContent = new ByteArrayOutputStream();
+			index.store(indexContent, null);
+			writeEntry(out, INDEX_ENTRY_NAME, indexContent.toByteArray());
+		}
+		Files.move(tmpFile, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOGGER.debug("Created the snapshot " + snapshot + " with " + toStore.size() + " files in "
+				+ (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private static void writeEntry(ZipOutputStream out, String name, byte[] content) throws IOException {
+		// Stored entries can be read without inflating them.
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(content.length);
+		entry.setCompressedSize(content.length);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		entry.setCrc(crc.getValue());
+		out.putNextEntry(entry);
+		out.write(content);
+		out.closeEntry();
+	}
+
+	/**
+	 * Restores the state of a file layout from a snapshot. Existing files of the file layout are overwritten.
+	 *
+	 * @param snapshot path to the snapshot file.
+	 * @param files    the file layout.
+	 * @return true if the snapshot was restored. false if the snapshot cannot be restored into the root directory of
+	 *         the file layout.
+	 * @throws IOException if the snapshot cannot be read or a file cannot be written.
+	 */
+	public static boolean restore(Path snapshot, FileLayout files) throws IOException {
+		long start = System.currentTimeMillis();
+		Path root = files.getRootPath().toAbsolutePath();
+		try (ZipFile zip = new ZipFile(snapshot.toFile())) {
+			ZipEntry indexEntry = zip.getEntry(INDEX_ENTRY_NAME);
+			if (indexEntry == null) {
+				LOGGER.error("The snapshot " + snapshot + " has no index.");
+				return false;
+			}
+			Properties index = new Properties();
+			try (InputStream in = zip.getInputStream(indexEntry)) {
+				index.load(in);
+			}
+			String oldRootURI = index.getProperty(ROOT_URI_KEY);
+			String newRootURI = getRootURI(root);
+			boolean relocate = !newRootURI.equals(oldRootURI);
+			if (relocate && !index.getProperty(BINARY_ENTRIES_KEY, "").isEmpty()) {
+				LOGGER.error("The snapshot " + snapshot + " contains files in the binary encoding and cannot be "
+						+ "restored into " + root + " because it was created for " + oldRootURI);
+				return false;
+			}
+			int numberFiles = 0;
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory() || entry.getName().equals(INDEX_ENTRY_NAME)) {
+					continue;
+				}
+				Path target = root.resolve(entry.getName()).normalize();
+				if (!target.startsWith(root)) {
+					throw new IOException("The snapshot entry " + entry.getName() + " is outside of " + root);
+				}
+				Files.createDirectories(target.getParent());
+				try (InputStream in = new BufferedInputStream(zip.getInputStream(entry))) {
+					if (relocate) {
+						String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+						content = content.replace(oldRootURI, newRootURI);
+						copy(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), target);
+					} else {
+						copy(in, target);
+					}
+				}
+				numberFiles++;
+			}
+			LOGGER.debug("Restored " + numberFiles + " files from the snapshot " + snapshot + " in "
+					+ (System.currentTimeMillis() - start) + " ms.");
+		}
+		return true;
+	}
+
+	private static void copy(InputStream in, Path target) throws IOException {
+		try (OutputStream out = Files.newOutputStream(target)) {
+			in.transferTo(out);
+		}
+	}
+
+	private static String getRootURI(Path root) {
+		// The trailing separator avoids replacing the URIs of other directories with the same prefix.
+		return URI.createFileURI(root.toString()).toString() + "/";
+	}
+}
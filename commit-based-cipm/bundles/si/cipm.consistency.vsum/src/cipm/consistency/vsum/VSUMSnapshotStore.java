@@ -0,0 +1,363 @@
+package cipm.consistency.vsum;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A store for snapshots of the state of a {@link FileLayout}, e. g., one snapshot per propagated commit. In contrast
+ * to {@link VSUMSnapshot}, the snapshots share unchanged files.
+ *
+ * <p>Every file is stored once under the hash of its content. A snapshot consists of a manifest which maps the paths
+ * of the files to their hashes, sizes, and modification times. The store remembers the snapshot with which the file
+ * layout was synchronized last. Files whose size and modification time equal the ones in this snapshot are regarded
+ * as unchanged so that only the changed files are read when a snapshot is created, and only the files which differ
+ * between the snapshots are written when a snapshot is restored. As a file can be rewritten with the same size within
+ * the granularity of the modification times, this does not apply to files which were modified shortly before the
+ * snapshot was stored. They are hashed or written again.</p>
+ *
+ * <p>The stored files are never linked into the file layout because EMF overwrites model files in place.</p>
+ *
+ * @author Martin Armbruster
+ */
+public class VSUMSnapshotStore {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + VSUMSnapshotStore.class.getSimpleName());
+	private static final String OBJECTS_DIR_NAME = "objects";
+	private static final String SNAPSHOTS_DIR_NAME = "snapshots";
+	private static final String MANIFEST_SUFFIX = ".properties";
+	private static final String HEAD_FILE_NAME = "HEAD";
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final String ENTRY_SEPARATOR = ";";
+	private static final Pattern SNAPSHOT_ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+	// Coarsest granularity of the modification times of the supported file systems.
+	private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+	private Path storePath;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param storePath path to the directory of the store. It must not be located within a directory of the file
+	 *                  layout.
+	 */
+	public VSUMSnapshotStore(Path storePath) {
+		this.storePath = storePath.toAbsolutePath();
+	}
+
+	/**
+	 * Checks if a snapshot exists.
+	 *
+	 * @param id the identifier of the snapshot, e. g., a commit hash.
+	 * @return true if the snapshot exists.
+	 */
+	public boolean contains(String id) {
+		return Files.exists(getManifestPath(id));
+	}
+
+	/**
+	 * Returns the identifiers of all snapshots.
+	 *
+	 * @return the identifiers.
+	 * @throws IOException if the store cannot be read.
+	 */
+	public List<String> getSnapshots() throws IOException {
+		Path snapshots = storePath.resolve(SNAPSHOTS_DIR_NAME);
+		if (!Files.exists(snapshots)) {
+			return List.of();
+		}
+		try (Stream<Path> stream = Files.list(snapshots)) {
+			return stream.map(p -> p.getFileName().toString()).filter(n -> n.endsWith(MANIFEST_SUFFIX))
+					.map(n -> n.substring(0, n.length() - MANIFEST_SUFFIX.length())).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Stores the current state of a file layout as snapshot. An existing snapshot with the same identifier is
+	 * replaced. The V-SUM must have saved all models.
+	 *
+	 * @param id    the identifier of the snapshot.
+	 * @param files the file layout.
+	 * @throws IOException if a file cannot be read or stored.
+	 */
+	public void create(String id, FileLayout files) throws IOException {
+		long start = System.currentTimeMillis();
+		Path root = files.getRootPath().toAbsolutePath();
+		Map<String, StoredFile> head = loadHead();
+		long headTime = getHeadTime();
+		Map<String, StoredFile> manifest = new HashMap<>();
+		int numberStoredFiles = 0;
+		for (Path file : listFiles(files)) {
+			String name = toEntryName(root, file);
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			StoredFile previous = head.get(name);
+			if (previous != null && previous.matches(attributes, headTime)) {
+				manifest.put(name, previous);
+				continue;
+			}
+			String hash = hash(file);
+			Path object = getObjectPath(hash);
+			if (!Files.exists(object)) {
+				copy(file, object);
+				numberStoredFiles++;
+			}
+			manifest.put(name,
+					new StoredFile(hash, attributes.size(), attributes.lastModifiedTime().toMillis()));
+		}
+		writeManifest(id, manifest);
+		writeHead(id);
+		LOGGER.debug("Created the snapshot " + id + " with " + manifest.size() + " files (" + numberStoredFiles
+				+ " new) in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Restores the state of a file layout from a snapshot. Files which are not part of the snapshot are removed. The
+	 * V-SUM must not be in use.
+	 *
+	 * @param id    the identifier of the snapshot.
+	 * @param files the file layout.
+	 * @throws IOException if the snapshot does not exist or a file cannot be written.
+	 */
+	public void restore(String id, FileLayout files) throws IOException {
+		long start = System.currentTimeMillis();
+		Path root = files.getRootPath().toAbsolutePath();
+		Map<String, StoredFile> manifest = loadManifest(id);
+		Map<String, StoredFile> head = loadHead();
+		long headTime = getHeadTime();
+		int numberRemovedFiles = 0;
+		Map<String, BasicFileAttributes> current = new HashMap<>();
+		for (Path file : listFiles(files)) {
+			String name = toEntryName(root, file);
+			if (manifest.containsKey(name)) {
+				current.put(name, Files.readAttributes(file, BasicFileAttributes.class));
+			} else {
+				Files.delete(file);
+				numberRemovedFiles++;
+			}
+		}
+		int numberRestoredFiles = 0;
+		for (var entry : manifest.entrySet()) {
+			StoredFile stored = entry.getValue();
+			StoredFile previous = head.get(entry.getKey());
+			BasicFileAttributes attributes = current.get(entry.getKey());
+			if (attributes != null && previous != null && previous.matches(attributes, headTime)
+					&& previous.hash.equals(stored.hash)) {
+				continue;
+			}
+			Path target = root.resolve(entry.getKey()).normalize();
+			if (!target.startsWith(root)) {
+				throw new IOException("The snapshot entry " + entry.getKey() + " is outside of " + root);
+			}
+			Files.createDirectories(target.getParent());
+			copy(getObjectPath(stored.hash), target);
+			// With the stored modification time, the file is regarded as unchanged by the next snapshot.
+			Files.setLastModifiedTime(target, FileTime.fromMillis(stored.modified));
+			numberRestoredFiles++;
+		}
+		writeHead(id);
+		LOGGER.debug("Restored the snapshot " + id + " (" + numberRestoredFiles + " files written, "
+				+ numberRemovedFiles + " removed) in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Removes a snapshot and all stored files which no other snapshot contains.
+	 *
+	 * @param id the identifier of the snapshot.
+	 * @throws IOException if the store cannot be modified.
+	 */
+	public void delete(String id) throws IOException {
+		Files.deleteIfExists(getManifestPath(id));
+		if (id.equals(readHead())) {
+			Files.deleteIfExists(storePath.resolve(HEAD_FILE_NAME));
+		}
+		Set<String> referencedHashes = new HashSet<>();
+		for (String snapshot : getSnapshots()) {
+			loadManifest(snapshot).values().forEach(f -> referencedHashes.add(f.hash));
+		}
+		Path objects = storePath.resolve(OBJECTS_DIR_NAME);
+		if (!Files.exists(objects)) {
+			return;
+		}
+		List<Path> unreferenced;
+		try (Stream<Path> stream = Files.walk(objects)) {
+			unreferenced = stream.filter(Files::isRegularFile)
+					.filter(p -> !referencedHashes.contains(p.getFileName().toString()))
+					.collect(Collectors.toList());
+		}
+		for (Path object : unreferenced) {
+			Files.delete(object);
+		}
+		LOGGER.debug("Deleted the snapshot " + id + " and " + unreferenced.size() + " stored files.");
+	}
+
+	private static List<Path> listFiles(FileLayout files) throws IOException {
+		Set<Path> excluded = VSUMSnapshot.getExcludedPaths(files);
+		List<Path> result = new ArrayList<>();
+		for (Path content : VSUMSnapshot.getSnapshotContents(files)) {
+			if (!Files.exists(content)) {
+				continue;
+			}
+			try (Stream<Path> stream = Files.walk(content)) {
+				result.addAll(stream.filter(p -> excluded.stream().noneMatch(p::startsWith))
+						.filter(Files::isRegularFile).collect(Collectors.toList()));
+			}
+		}
+		return result;
+	}
+
+	private static String toEntryName(Path root, Path file) {
+		return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+	}
+
+	private static String hash(Path file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+			in.transferTo(OutputStream.nullOutputStream());
+		}
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	private static void copy(Path source, Path target) throws IOException {
+		// Copying into a temporary file first ensures that no partially written file remains.
+		Files.createDirectories(target.getParent());
+		Path tmpFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), null);
+		try {
+			Files.copy(source, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
+	}
+
+	private Path getObjectPath(String hash) {
+		return storePath.resolve(OBJECTS_DIR_NAME).resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	private Path getManifestPath(String id) {
+		if (!SNAPSHOT_ID_PATTERN.matcher(id).matches()) {
+			throw new IllegalArgumentException("Invalid snapshot identifier: " + id);
+		}
+		return storePath.resolve(SNAPSHOTS_DIR_NAME).resolve(id + MANIFEST_SUFFIX);
+	}
+
+	private Map<String, StoredFile> loadManifest(String id) throws IOException {
+		Path manifestPath = getManifestPath(id);
+		if (!Files.exists(manifestPath)) {
+			throw new NoSuchFileException(manifestPath.toString(), null, "The snapshot " + id + " does not exist.");
+		}
+		Properties p = new Properties();
+		try (BufferedReader reader = Files.newBufferedReader(manifestPath)) {
+			p.load(reader);
+		}
+		Map<String, StoredFile> result = new HashMap<>();
+		for (String name : p.stringPropertyNames()) {
+			String[] parts = p.getProperty(name).split(ENTRY_SEPARATOR);
+			result.put(name, new StoredFile(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+		}
+		return result;
+	}
+
+	private void writeManifest(String id, Map<String, StoredFile> manifest) throws IOException {
+		Properties p = new Properties();
+		manifest.forEach((k, v) -> p.setProperty(k, v.hash + ENTRY_SEPARATOR + v.size + ENTRY_SEPARATOR
+				+ v.modified));
+		Path manifestPath = getManifestPath(id);
+		Files.createDirectories(manifestPath.getParent());
+		Path tmpFile = Files.createTempFile(manifestPath.getParent(), id, null);
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpFile)) {
+			p.store(writer, null);
+		}
+		Files.move(tmpFile, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private String readHead() throws IOException {
+		Path headPath = storePath.resolve(HEAD_FILE_NAME);
+		return Files.exists(headPath) ? Files.readString(headPath).trim() : null;
+	}
+
+	private Map<String, StoredFile> loadHead() throws IOException {
+		String head = readHead();
+		if (head == null || !contains(head)) {
+			return Map.of();
+		}
+		return loadManifest(head);
+	}
+
+	/**
+	 * Returns the time at which the snapshot of the head was stored.
+	 *
+	 * @return the time in milliseconds or 0 if there is no head.
+	 * @throws IOException if the snapshot cannot be read.
+	 */
+	private long getHeadTime() throws IOException {
+		String head = readHead();
+		if (head == null || !contains(head)) {
+			return 0;
+		}
+		return Files.getLastModifiedTime(getManifestPath(head)).toMillis();
+	}
+
+	private void writeHead(String id) throws IOException {
+		Files.createDirectories(storePath);
+		Files.writeString(storePath.resolve(HEAD_FILE_NAME), id);
+	}
+
+	/**
+	 * A file in a snapshot.
+	 */
+	private static class StoredFile {
+		private String hash;
+		private long size;
+		private long modified;
+
+		StoredFile(String hash, long size, long modified) {
+			this.hash = hash;
+			this.size = size;
+			this.modified = modified;
+		}
+
+		/**
+		 * Checks if a file is regarded as unchanged since the snapshot of this file was stored.
+		 *
+		 * @param attributes   the current attributes of the file.
+		 * @param snapshotTime the time at which the snapshot was stored.
+		 * @return true if the file has the same size and modification time and was not modified within the
+		 *         granularity of the modification times before the snapshot was stored.
+		 */
+		boolean matches(BasicFileAttributes attributes, long snapshotTime) {
+			return size == attributes.size() && modified == attributes.lastModifiedTime().toMillis()
+					&& modified < snapshotTime - MODIFICATION_TIME_GRANULARITY;
+		}
+	}
+}
@@ -3,8 +3,8 @@ package tools.vitruv.applications.pcmjava.seffstatements.code2seff.extended;
 import org.emftext.language.java.members.Method;
 import org.palladiosimulator.pcm.repository.BasicComponent;
 
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
 
 /**
@@ -15,7 +15,7 @@ import tools.vitruv.framework.correspondence.CorrespondenceModel;
 public class BasicComponentForCommitIntegrationFinder implements BasicComponentFinding {
     @Override
     public BasicComponent findBasicComponentForMethod(final Method newMethod, final CorrespondenceModel ci) {
-    	var correspondences = CorrespondenceModelUtil.getCorrespondingEObjects(ci,
+    	var correspondences = CorrespondenceIndex.getCorrespondingEObjects(ci,
     			newMethod.getContainingConcreteClassifier(), BasicComponent.class);
     	if (correspondences != null && !correspondences.isEmpty()) {
     		return correspondences.iterator().next();
@@ -18,6 +18,7 @@ import com.google.common.collect.Lists;
 
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.ClassMethodBodyChangedTransformation;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
 import tools.vitruv.framework.userinteraction.UserInteractor;
 
@@ -86,7 +87,8 @@ public class ExtendedClassMethodBodyChangedTransformation extends ClassMethodBod
             	}
             	List<EObject> actionList = Lists.newArrayList(ab);
 	            for (Statement statement : seffElementSourceCodeLink.getStatement()) {
-                    correspondenceModel.createAndAddCorrespondence(actionList, Lists.newArrayList(statement));
+                    CorrespondenceIndex.createAndAddCorrespondence(correspondenceModel, actionList,
+                    		Lists.newArrayList(statement));
 	            }
             }
         }
@@ -26,9 +26,9 @@ import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
 
 import de.uka.ipd.sdq.identifier.Identifier;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.extended.ExtendedClassMethodBodyChangedTransformation;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 import tools.vitruv.framework.userinteraction.UserInteractor;
 
 /**
@@ -154,7 +154,7 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 
 			for (AbstractAction oldAbstractAction : oldAbstractActions) {
 				// Get corresponding statements for old AbstractAction.
-				Set<Statement> oldAbstractActionStatements = CorrespondenceModelUtil.getCorrespondingEObjects(ci,
+				Set<Statement> oldAbstractActionStatements = CorrespondenceIndex.getCorrespondingEObjects(ci,
 						oldAbstractAction, Statement.class);
 
 				int similarStatementsCount = this.compareAbstractActions(newAbstractAction, oldAbstractAction,
@@ -296,13 +296,13 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 			List<Statement> listStatements = seffElementSourceCodeLink.getStatement();
 			Identifier seffElement = seffElementSourceCodeLink.getSeffElement();
 			if (oldSeff.getSteps_Behaviour().contains(seffElement)) {
-				correspondenceModel.createAndAddCorrespondence(
-						List.of(seffElement), new ArrayList<>(listStatements));
+				CorrespondenceIndex.createAndAddCorrespondence(correspondenceModel, List.of(seffElement),
+						new ArrayList<>(listStatements));
 			} else {
 				var matching = rdbDifference.getNewAbstractActionMatching((AbstractAction) seffElement);
 				if (matching != null) {
-					correspondenceModel.createAndAddCorrespondence(List.of(matching.getOldAbstractAction()),
-							new ArrayList<>(listStatements));
+					CorrespondenceIndex.createAndAddCorrespondence(correspondenceModel,
+							List.of(matching.getOldAbstractAction()), new ArrayList<>(listStatements));
 				}
 			}
 		}
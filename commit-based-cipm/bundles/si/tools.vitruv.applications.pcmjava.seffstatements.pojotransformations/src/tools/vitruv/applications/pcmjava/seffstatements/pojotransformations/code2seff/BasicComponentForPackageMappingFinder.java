@@ -15,8 +15,8 @@ import org.emftext.language.java.containers.Package;
 import org.emftext.language.java.members.Method;
 import org.palladiosimulator.pcm.repository.BasicComponent;
 
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
 
 /**
@@ -87,7 +87,7 @@ public class BasicComponentForPackageMappingFinder implements BasicComponentFind
         if (0 == jaMoPPPackage.getNamespaces().size()) {
             return null;
         }
-        final Set<BasicComponent> correspondingComponents = CorrespondenceModelUtil
+        final Set<BasicComponent> correspondingComponents = CorrespondenceIndex
                 .getCorrespondingEObjects(ci, jaMoPPPackage, BasicComponent.class);
         if (null == correspondingComponents || correspondingComponents.isEmpty()) {
 
@@ -11,9 +11,9 @@ import org.somox.gast2seff.visitors.AbstractFunctionClassificationStrategy;
 import org.somox.gast2seff.visitors.MethodCallFinder;
 
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.applications.util.temporary.other.UriUtil;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 
 /**
  * FunctionClassificationStrategy for the simple package mapping Strategy.
@@ -49,7 +49,7 @@ public class FunctionClassificationStrategyForPackageMapping extends AbstractFun
                     + ". Method call is not considered as as external call");
             return false;
         }
-        final Set<OperationSignature> correspondingSignatures = CorrespondenceModelUtil
+        final Set<OperationSignature> correspondingSignatures = CorrespondenceIndex
                 .getCorrespondingEObjects(this.correspondenceModel, method, OperationSignature.class);
         if (null != correspondingSignatures && !correspondingSignatures.isEmpty()) {
             return true;
@@ -13,8 +13,8 @@ import org.palladiosimulator.pcm.repository.RequiredRole;
 import org.palladiosimulator.pcm.seff.ResourceDemandingSEFF;
 import org.somox.gast2seff.visitors.InterfaceOfExternalCallFinding;
 
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 
 /**
  * Class realizes a InterfaceOfExternalCallFinding for the simple package mapping
@@ -76,12 +76,12 @@ public class InterfaceOfExternalCallFinderForPackageMapping implements Interface
      * @return the corresponding OperationSignature.
      */
     private OperationSignature queryInterfaceOperation(final Method invokedMethod) {
-        final Set<OperationSignature> correspondingOpSigs = CorrespondenceModelUtil
+        final Set<OperationSignature> correspondingOpSigs = CorrespondenceIndex
                 .getCorrespondingEObjects(this.correspondenceModel, invokedMethod, OperationSignature.class);
         if (null != correspondingOpSigs && 0 < correspondingOpSigs.size()) {
             return correspondingOpSigs.iterator().next();
         }
-        final Set<ResourceDemandingSEFF> correspondingRDSEFFs = CorrespondenceModelUtil
+        final Set<ResourceDemandingSEFF> correspondingRDSEFFs = CorrespondenceIndex
                 .getCorrespondingEObjects(this.correspondenceModel, invokedMethod,
                         ResourceDemandingSEFF.class);
         if (null != correspondingRDSEFFs && 0 < correspondingRDSEFFs.size()) {
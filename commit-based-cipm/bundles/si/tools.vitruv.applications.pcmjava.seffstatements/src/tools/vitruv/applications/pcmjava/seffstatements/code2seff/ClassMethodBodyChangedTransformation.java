@@ -27,7 +27,6 @@ import org.somox.sourcecodedecorator.SourcecodedecoratorFactory;
 import com.google.common.collect.Lists;
 
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 import tools.vitruv.framework.userinteraction.UserInteractor;
 
 /**
@@ -124,7 +123,7 @@ public class ClassMethodBodyChangedTransformation {
 
 	private boolean isMethodArchitectureRelevant(final Method method, final CorrespondenceModel ci) {
 		if (null != method) {
-			final Set<ResourceDemandingBehaviour> correspondingEObjectsByType = CorrespondenceModelUtil
+			final Set<ResourceDemandingBehaviour> correspondingEObjectsByType = CorrespondenceIndex
 					.getCorrespondingEObjects(ci, method, ResourceDemandingBehaviour.class);
 			if (null != correspondingEObjectsByType && !correspondingEObjectsByType.isEmpty()) {
 				return true;
@@ -167,7 +166,7 @@ public class ClassMethodBodyChangedTransformation {
 	protected void createNewCorrespondences(final CorrespondenceModel ci,
 			final ResourceDemandingBehaviour newResourceDemandingBehaviourElements) {
 		for (final AbstractAction abstractAction : newResourceDemandingBehaviourElements.getSteps_Behaviour()) {
-			ci.createAndAddCorrespondence(Lists.newArrayList(abstractAction), Lists.newArrayList(this.newMethod));
+			CorrespondenceIndex.createAndAddCorrespondence(ci, Lists.newArrayList(abstractAction), Lists.newArrayList(this.newMethod));
 		}
 	}
 
@@ -189,7 +188,7 @@ public class ClassMethodBodyChangedTransformation {
 
 	private void removeCorrespondingAbstractActions(final CorrespondenceModel ci) {
 		final Set<AbstractAction> correspondingAbstractActions =
-				CorrespondenceModelUtil.getCorrespondingEObjects(
+				CorrespondenceIndex.getCorrespondingEObjects(
 						ci, this.newMethod, AbstractAction.class);
 		if (null == correspondingAbstractActions) {
 			return;
@@ -203,7 +202,7 @@ public class ClassMethodBodyChangedTransformation {
 			((ResourceDemandingSEFF) resourceDemandingBehaviour).getResourceDemandingInternalBehaviours().clear();
 		}
 		for (final AbstractAction correspondingAbstractAction : correspondingAbstractActions) {
-			ci.removeCorrespondencesFor(Lists.newArrayList(correspondingAbstractAction), null);
+			CorrespondenceIndex.removeCorrespondencesFor(ci, Lists.newArrayList(correspondingAbstractAction), null);
 			EcoreUtil.remove(correspondingAbstractAction);
 		}
 
@@ -243,7 +242,7 @@ public class ClassMethodBodyChangedTransformation {
 
 	protected ResourceDemandingBehaviour findRdBehaviorToInsertElements(final CorrespondenceModel ci) {
 		final Set<ResourceDemandingBehaviour> correspondingResourceDemandingBehaviours =
-				CorrespondenceModelUtil.getCorrespondingEObjects(
+				CorrespondenceIndex.getCorrespondingEObjects(
 						ci, this.newMethod, ResourceDemandingBehaviour.class);
 		if (null == correspondingResourceDemandingBehaviours || correspondingResourceDemandingBehaviours.isEmpty()) {
 			LOGGER.warn("No ResourceDemandingBehaviours found for method " + this.newMethod
@@ -0,0 +1,240 @@
+package tools.vitruv.applications.pcmjava.seffstatements.code2seff;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import tools.vitruv.framework.correspondence.CorrespondenceModel;
+import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
+
+/**
+ * An index for the corresponding objects of an object with a specific type. The index caches the results of
+ * {@link CorrespondenceModelUtil#getCorrespondingEObjects(CorrespondenceModel, EObject, Class)} per correspondence
+ * model.
+ *
+ * <p>The index is kept consistent by listening to the Resource of the correspondences. It is registered with
+ * {@link #observe(CorrespondenceModel, Resource)}, e. g., during the setup of the V-SUM, or found from the first
+ * correspondence which is added with {@link #createAndAddCorrespondence(CorrespondenceModel, List, List)}.
+ * Afterward, the added, removed, or modified correspondences invalidate the cached results for the objects which
+ * they refer to. As long as the Resource is unknown, no result is cached.</p>
+ *
+ * <p>The results are cached with weak references to the objects so that removed models can be collected. As
+ * results can refer to other cached objects, the index should be cleared between two propagations.</p>
+ *
+ * @author Martin Armbruster
+ */
+public final class CorrespondenceIndex {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + CorrespondenceIndex.class.getSimpleName());
+	private static final Map<CorrespondenceModel, CorrespondenceIndex> INDICES = new WeakHashMap<>();
+	private final Map<EObject, Map<Class<?>, Set<?>>> correspondingObjects = new WeakHashMap<>();
+	private CorrespondenceListener listener;
+	private int hits;
+	private int misses;
+	private int invalidations;
+
+	private CorrespondenceIndex() {
+	}
+
+	/**
+	 * Returns the index for a correspondence model.
+	 *
+	 * @param cm the correspondence model.
+	 * @return the index.
+	 */
+	public static synchronized CorrespondenceIndex get(CorrespondenceModel cm) {
+		return INDICES.computeIfAbsent(cm, k -> new CorrespondenceIndex());
+	}
+
+	/**
+	 * Returns the objects which correspond to an object and have a specific type.
+	 *
+	 * @param <T>    the type of the corresponding objects.
+	 * @param cm     the correspondence model.
+	 * @param source the object.
+	 * @param type   the type of the corresponding objects.
+	 * @return the corresponding objects. Modifications of the returned set do not affect the index.
+	 */
+	public static <T> Set<T> getCorrespondingEObjects(CorrespondenceModel cm, EObject source, Class<T> type) {
+		return get(cm).lookup(cm, source, type);
+	}
+
+	/**
+	 * Creates and adds a correspondence and starts listening to the correspondences if necessary.
+	 *
+	 * @param cm       the correspondence model.
+	 * @param eObjects1 the objects on the one side of the correspondence.
+	 * @param eObjects2 the objects on the other side of the correspondence.
+	 */
+	public static void createAndAddCorrespondence(CorrespondenceModel cm, List<EObject> eObjects1,
+			List<EObject> eObjects2) {
+		Object correspondence = cm.createAndAddCorrespondence(eObjects1, eObjects2);
+		CorrespondenceIndex index = get(cm);
+		index.invalidate(eObjects1);
+		index.invalidate(eObjects2);
+		if (correspondence instanceof EObject) {
+			observe(cm, (EObject) correspondence);
+		}
+	}
+
+	/**
+	 * Removes the correspondences of objects.
+	 *
+	 * @param cm       the correspondence model.
+	 * @param eObjects the objects.
+	 * @param tag      tag of the correspondences to remove. Can be null.
+	 */
+	public static void removeCorrespondencesFor(CorrespondenceModel cm, List<EObject> eObjects, String tag) {
+		cm.removeCorrespondencesFor(eObjects, tag);
+		get(cm).invalidate(eObjects);
+	}
+
+	/**
+	 * Starts listening to the correspondences of a correspondence model.
+	 *
+	 * @param cm             the correspondence model.
+	 * @param correspondence an arbitrary correspondence of the correspondence model.
+	 */
+	public static void observe(CorrespondenceModel cm, EObject correspondence) {
+		Resource resource = correspondence.eResource();
+		if (resource != null) {
+			observe(cm, resource);
+		}
+	}
+
+	/**
+	 * Starts listening to the correspondences of a correspondence model.
+	 *
+	 * @param cm       the correspondence model.
+	 * @param resource the Resource which contains the correspondences.
+	 */
+	public static void observe(CorrespondenceModel cm, Resource resource) {
+		get(cm).listenTo(resource);
+	}
+
+	private synchronized void listenTo(Resource resource) {
+		if (listener != null) {
+			if (listener.resource == resource) {
+				return;
+			}
+			listener.resource.eAdapters().remove(listener);
+		}
+		LOGGER.debug("Listening to the correspondences in " + resource.getURI());
+		correspondingObjects.clear();
+		listener = new CorrespondenceListener(resource);
+		resource.eAdapters().add(listener);
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized <T> Set<T> lookup(CorrespondenceModel cm, EObject source, Class<T> type) {
+		if (listener == null) {
+			// Without listening to the correspondences, a cached result can be outdated.
+			misses++;
+			return CorrespondenceModelUtil.getCorrespondingEObjects(cm, source, type);
+		}
+		Map<Class<?>, Set<?>> byType = correspondingObjects.computeIfAbsent(source, k -> new HashMap<>());
+		Set<T> result = (Set<T>) byType.get(type);
+		if (result != null) {
+			hits++;
+		} else {
+			misses++;
+			result = CorrespondenceModelUtil.getCorrespondingEObjects(cm, source, type);
+			result = result != null ? new HashSet<>(result) : new HashSet<>();
+			byType.put(type, result);
+		}
+		return new HashSet<>(result);
+	}
+
+	private synchronized void invalidate(Collection<?> objects) {
+		for (Object obj : objects) {
+			if (correspondingObjects.remove(obj) != null) {
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached results, e. g., before the next propagation.
+	 */
+	public synchronized void clear() {
+		correspondingObjects.clear();
+	}
+
+	private synchronized void invalidateAll() {
+		invalidations += correspondingObjects.size();
+		correspondingObjects.clear();
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	public synchronized int getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized int getSize() {
+		return correspondingObjects.size();
+	}
+
+	/**
+	 * Invalidates the cached results for the objects to which changed correspondences refer.
+	 */
+	private class CorrespondenceListener extends EContentAdapter {
+		private Resource resource;
+
+		CorrespondenceListener(Resource resource) {
+			this.resource = resource;
+		}
+
+		@Override
+		public void notifyChanged(Notification notification) {
+			super.notifyChanged(notification);
+			if (notification.isTouch()) {
+				return;
+			}
+			Notifier notifier = (Notifier) notification.getNotifier();
+			if (notifier instanceof Resource) {
+				// Loading, unloading, or replacing the root of the correspondences.
+				invalidateAll();
+				return;
+			}
+			Set<EObject> affected = new HashSet<>();
+			collectAffectedObjects(notification.getOldValue(), affected);
+			collectAffectedObjects(notification.getNewValue(), affected);
+			if (notifier instanceof EObject) {
+				affected.addAll(((EObject) notifier).eCrossReferences());
+			}
+			if (affected.isEmpty()) {
+				// The correspondences do not refer to the objects directly so that the affected ones are unknown.
+				invalidateAll();
+			} else {
+				invalidate(affected);
+			}
+		}
+
+		private void collectAffectedObjects(Object value, Set<EObject> affected) {
+			if (value instanceof Collection<?>) {
+				((Collection<?>) value).forEach(v -> collectAffectedObjects(v, affected));
+			} else if (value instanceof EObject) {
+				EObject obj = (EObject) value;
+				affected.add(obj);
+				affected.addAll(obj.eCrossReferences());
+			}
+		}
+	}
+}
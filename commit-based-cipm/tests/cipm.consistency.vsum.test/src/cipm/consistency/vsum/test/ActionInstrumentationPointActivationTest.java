@@ -0,0 +1,109 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.ActionInstrumentationPoint;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModelFactory;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.ServiceInstrumentationPoint;
+import cipm.consistency.vsum.ActionInstrumentationPointActivation;
+
+/**
+ * Tests that the {@link ActionInstrumentationPointActivation} mirrors the active attributes of the action
+ * instrumentation points and reuses the ordinals of removed points.
+ *
+ * @author Martin Armbruster
+ */
+public class ActionInstrumentationPointActivationTest {
+	private InstrumentationModel im;
+	private ServiceInstrumentationPoint sip;
+
+	@BeforeEach
+	public void setUp() {
+		im = InstrumentationModelFactory.eINSTANCE.createInstrumentationModel();
+		sip = InstrumentationModelFactory.eINSTANCE.createServiceInstrumentationPoint();
+		im.getPoints().add(sip);
+	}
+
+	@Test
+	public void testExistingPoints() {
+		addPoint(sip, true);
+		addPoint(sip, false);
+		ActionInstrumentationPointActivation activation = new ActionInstrumentationPointActivation(im);
+		assertEquals(2, activation.getNumberOfPoints());
+		assertEquals(1, activation.getNumberOfActivePoints());
+		assertTrue(activation.hasActivePoints());
+	}
+
+	@Test
+	public void testChangedActiveAttribute() {
+		ActionInstrumentationPoint aip = addPoint(sip, false);
+		ActionInstrumentationPointActivation activation = new ActionInstrumentationPointActivation(im);
+		assertFalse(activation.hasActivePoints());
+
+		aip.setActive(true);
+		assertEquals(1, activation.getNumberOfActivePoints());
+		aip.setActive(false);
+		assertFalse(activation.hasActivePoints());
+	}
+
+	@Test
+	public void testDeactivateAll() {
+		ActionInstrumentationPoint first = addPoint(sip, true);
+		ActionInstrumentationPoint second = addPoint(sip, false);
+		ActionInstrumentationPointActivation activation = new ActionInstrumentationPointActivation(im);
+		ActionInstrumentationPoint third = addPoint(sip, true);
+
+		assertEquals(2, activation.deactivateAll());
+		assertFalse(first.isActive());
+		assertFalse(second.isActive());
+		assertFalse(third.isActive());
+		assertFalse(activation.hasActivePoints());
+		assertEquals(0, activation.deactivateAll());
+	}
+
+	@Test
+	public void testAddedAndRemovedPoints() {
+		ActionInstrumentationPointActivation activation = new ActionInstrumentationPointActivation(im);
+		ServiceInstrumentationPoint otherSip = InstrumentationModelFactory.eINSTANCE
+				.createServiceInstrumentationPoint();
+		addPoint(otherSip, true);
+		addPoint(otherSip, true);
+		im.getPoints().add(otherSip);
+		assertEquals(2, activation.getNumberOfPoints());
+		assertEquals(2, activation.getNumberOfActivePoints());
+
+		im.getPoints().remove(otherSip);
+		assertEquals(0, activation.getNumberOfPoints());
+		assertFalse(activation.hasActivePoints());
+	}
+
+	@Test
+	public void testOrdinalsOfRemovedPointsAreReused() {
+		ActionInstrumentationPoint first = addPoint(sip, true);
+		addPoint(sip, false);
+		ActionInstrumentationPointActivation activation = new ActionInstrumentationPointActivation(im);
+		for (int i = 0; i < 10; i++) {
+			sip.getActionInstrumentationPoints().remove(first);
+			assertEquals(1, activation.getNumberOfPoints());
+			assertFalse(activation.hasActivePoints());
+			first = addPoint(sip, true);
+			assertEquals(2, activation.getNumberOfPoints());
+			assertEquals(1, activation.getNumberOfActivePoints());
+		}
+		assertEquals(2, activation.getNumberOfOrdinals());
+		assertEquals(1, activation.deactivateAll());
+	}
+
+	private static ActionInstrumentationPoint addPoint(ServiceInstrumentationPoint sip, boolean active) {
+		ActionInstrumentationPoint aip = InstrumentationModelFactory.eINSTANCE.createActionInstrumentationPoint();
+		aip.setActive(active);
+		sip.getActionInstrumentationPoints().add(aip);
+		return aip;
+	}
+}
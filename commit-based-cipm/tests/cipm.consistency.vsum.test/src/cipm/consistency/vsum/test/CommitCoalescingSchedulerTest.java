@@ -0,0 +1,105 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.CommitCoalescingScheduler;
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+
+/**
+ * Tests that the {@link CommitCoalescingScheduler} ends the groups of commits at its limits and cut rules.
+ *
+ * @author Martin Armbruster
+ */
+public class CommitCoalescingSchedulerTest {
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+	private List<RevCommit> commits;
+
+	@BeforeEach
+	public void setUp() throws IOException, GitAPIException {
+		repository = new GitTestRepository(tempDir);
+		// Every commit changes one line in one Java file. The second commit replaces the line of the first one.
+		commits = List.of(repository.commit(Map.of("README.md", "Base")),
+				repository.commit(Map.of("src/A.java", "class A {}\n")),
+				repository.commit(Map.of("src/A.java", "class A { }\n")),
+				repository.commit(Map.of("src/B.java", "class B {}\n")),
+				repository.commit(Map.of("src/C.java", "class C {}\n")));
+		wrapper = repository.openWrapper();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		wrapper.closeRepository();
+		repository.close();
+	}
+
+	@Test
+	public void testUnlimitedGroup() throws IOException {
+		assertEquals(List.of(commits.get(0), commits.get(4)), schedule(new CommitCoalescingScheduler(wrapper, 0, 0, 0)));
+	}
+
+	@Test
+	public void testMaxCommits() throws IOException {
+		assertEquals(List.of(commits.get(0), commits.get(2), commits.get(4)),
+				schedule(new CommitCoalescingScheduler(wrapper, 2, 0, 0)));
+	}
+
+	@Test
+	public void testMaxChangedFiles() throws IOException {
+		// The first three commits only change A and B.
+		assertEquals(List.of(commits.get(0), commits.get(3), commits.get(4)),
+				schedule(new CommitCoalescingScheduler(wrapper, 0, 2, 0)));
+	}
+
+	@Test
+	public void testMaxChangedLines() throws IOException {
+		// The commits change 1, 2, 1, and 1 lines.
+		assertEquals(List.of(commits.get(0), commits.get(2), commits.get(4)),
+				schedule(new CommitCoalescingScheduler(wrapper, 0, 0, 3)));
+	}
+
+	@Test
+	public void testSingleCommitExceedingLimitsFormsGroup() throws IOException {
+		assertEquals(commits, schedule(new CommitCoalescingScheduler(wrapper, 0, 0, 1)));
+	}
+
+	@Test
+	public void testCutRule() throws IOException {
+		CommitCoalescingScheduler scheduler = new CommitCoalescingScheduler(wrapper, 0, 0, 0);
+		scheduler.addCutRule(commit -> commit.equals(commits.get(3)));
+		assertEquals(List.of(commits.get(0), commits.get(3), commits.get(4)), schedule(scheduler));
+	}
+
+	@Test
+	public void testTaggedCommitCutRule() throws IOException, GitAPIException {
+		repository.tag(commits.get(1), "v1");
+		CommitCoalescingScheduler scheduler = new CommitCoalescingScheduler(wrapper, 0, 0, 0);
+		scheduler.addCutRule(new CommitCoalescingScheduler.TaggedCommitCutRule(wrapper));
+		assertEquals(List.of(commits.get(0), commits.get(1), commits.get(4)), schedule(scheduler));
+	}
+
+	@Test
+	public void testCutAtLastCommitDoesNotDuplicateIt() throws IOException {
+		CommitCoalescingScheduler scheduler = new CommitCoalescingScheduler(wrapper, 0, 0, 0);
+		scheduler.addCutRule(commit -> commit.equals(commits.get(4)));
+		assertEquals(List.of(commits.get(0), commits.get(4)), schedule(scheduler));
+	}
+
+	private List<RevCommit> schedule(CommitCoalescingScheduler scheduler) throws IOException {
+		return scheduler.schedule(commits);
+	}
+}
@@ -0,0 +1,79 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.palladiosimulator.pcm.repository.Repository;
+
+import cipm.consistency.cpr.javapcm.CommitIntegrationJavaPCMChangePropagationSpecification;
+import cipm.consistency.vsum.VSUMFacade;
+import tools.vitruv.applications.pcmjava.seffstatements.code2seff.CorrespondenceIndex;
+import tools.vitruv.framework.correspondence.CorrespondenceModel;
+
+/**
+ * Tests that the {@link CorrespondenceIndex} listens to the correspondences of a V-SUM from its setup on and that
+ * added and removed correspondences invalidate the cached results.
+ *
+ * @author Martin Armbruster
+ */
+public class CorrespondenceIndexTest {
+	@TempDir
+	Path tempDir;
+	private VSUMFacade facade;
+	private CorrespondenceModel cm;
+	private CorrespondenceIndex index;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		TestFixtures.initializeSettings(TestFixtures.createParsingSettings(), tempDir.resolve("settings.properties"));
+		facade = new VSUMFacade(tempDir.resolve("vsum"), new CommitIntegrationJavaPCMChangePropagationSpecification());
+		cm = facade.getVSUM().getCorrespondenceModel();
+		index = CorrespondenceIndex.get(cm);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		index.clear();
+		facade.getVSUM().dispose();
+	}
+
+	@Test
+	public void testResultsAreCachedAfterSetUp() {
+		EObject imm = facade.getInstrumentationModel();
+		int hits = index.getHits();
+		assertTrue(lookup(imm).isEmpty());
+		assertTrue(lookup(imm).isEmpty());
+		assertEquals(hits + 1, index.getHits());
+	}
+
+	@Test
+	public void testAddedAndRemovedCorrespondencesInvalidateResults() {
+		EObject imm = facade.getInstrumentationModel();
+		Repository repository = facade.getPCMWrapper().getRepository();
+		assertTrue(lookup(imm).isEmpty());
+
+		int invalidations = index.getInvalidations();
+		cm.createAndAddCorrespondence(List.of(imm), List.<EObject>of(repository));
+		assertTrue(index.getInvalidations() > invalidations);
+		assertEquals(Set.of(repository), lookup(imm));
+
+		invalidations = index.getInvalidations();
+		cm.removeCorrespondencesFor(List.of(imm), null);
+		assertTrue(index.getInvalidations() > invalidations);
+		assertTrue(lookup(imm).isEmpty());
+	}
+
+	private Set<Repository> lookup(EObject imm) {
+		return CorrespondenceIndex.getCorrespondingEObjects(cm, imm, Repository.class);
+	}
+}
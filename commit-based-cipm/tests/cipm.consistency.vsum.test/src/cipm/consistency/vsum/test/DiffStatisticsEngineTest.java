@@ -0,0 +1,83 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.DiffStatisticsEngine;
+import cipm.consistency.commitintegration.DiffStatisticsEngine.LineCounts;
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+
+/**
+ * Tests that the {@link DiffStatisticsEngine} counts the changed lines and memoizes them per pair of blobs.
+ *
+ * @author Martin Armbruster
+ */
+public class DiffStatisticsEngineTest {
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+
+	@BeforeEach
+	public void setUp() throws GitAPIException {
+		repository = new GitTestRepository(tempDir);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (wrapper != null) {
+			wrapper.closeRepository();
+		}
+		repository.close();
+	}
+
+	@Test
+	public void testLineCounts() throws IOException, GitAPIException {
+		RevCommit first = repository.commit(Map.of("A.java", "class A {\n}\n", "B.java", "class B {\n}\n"));
+		RevCommit second = repository.commit(Map.of("A.java", "class A {\n\tint a;\n\tint b;\n}\n", "B.java", ""));
+		wrapper = repository.openWrapper();
+		List<DiffEntry> diffs = wrapper.scanDiffsBetweenTwoCommits(first, second, true, false);
+		DiffStatisticsEngine engine = wrapper.getDiffStatisticsEngine();
+
+		LineCounts total = engine.computeTotalLineCounts(diffs);
+		assertEquals(2, total.getAddedLines());
+		assertEquals(2, total.getRemovedLines());
+	}
+
+	@Test
+	public void testMemoizationPerBlobPair() throws IOException, GitAPIException {
+		RevCommit first = repository.commit(Map.of("A.java", "class A {}\n"));
+		RevCommit second = repository.commit(Map.of("A.java", "class A { }\n"));
+		// The same pair of blobs for another path.
+		repository.commit(Map.of("A.java", "", "B.java", "class A {}\n"));
+		RevCommit fourth = repository.commit(Map.of("B.java", "class A { }\n"));
+		wrapper = repository.openWrapper();
+		DiffStatisticsEngine engine = wrapper.getDiffStatisticsEngine();
+		DiffEntry firstDiff = wrapper.scanDiffsBetweenTwoCommits(first, second, true, false).get(0);
+		DiffEntry fourthDiff = wrapper.scanDiffsBetweenTwoCommits(
+				wrapper.getCommitForId(fourth.getParent(0).getName()), fourth, true, false).get(0);
+
+		LineCounts counts = engine.computeLineCounts(firstDiff);
+		assertEquals(1, counts.getAddedLines());
+		assertEquals(1, counts.getRemovedLines());
+		assertSame(counts, engine.computeLineCounts(firstDiff));
+		assertSame(counts, engine.computeLineCounts(fourthDiff));
+
+		DiffEntry reversed = wrapper.scanDiffsBetweenTwoCommits(second, first, true, false).get(0);
+		assertNotSame(counts, engine.computeLineCounts(reversed));
+	}
+}
@@ -0,0 +1,109 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+
+/**
+ * Tests that {@link GitRepositoryWrapper#updateWorkingTree(RevCommit, RevCommit, List)} applies the differences
+ * between two commits to the working tree and keeps the files which match the kept patterns during the complete
+ * clean.
+ *
+ * @author Martin Armbruster
+ */
+public class GitRepositoryWrapperTest {
+	private static final String RENAMED_CONTENT = "class R {\n\tint value;\n}\n";
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+	private RevCommit first;
+	private RevCommit second;
+
+	@BeforeEach
+	public void setUp() throws IOException, GitAPIException {
+		repository = new GitTestRepository(tempDir);
+		first = repository.commit(Map.of("src/Modified.java", "class Modified {}\n", "src/Deleted.java",
+				"class Deleted {}\n", "src/Unchanged.java", "class Unchanged {}\n", "old/R.java", RENAMED_CONTENT));
+		second = repository.commit(Map.of("src/Modified.java", "class Modified { }\n", "src/Deleted.java", "",
+				"src/Added.java", "class Added {}\n", "old/R.java", "", "new/R.java", RENAMED_CONTENT));
+		wrapper = repository.openWrapper();
+		wrapper.checkout(first.getId().getName());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		wrapper.closeRepository();
+		repository.close();
+	}
+
+	@Test
+	public void testUpdateAppliesDifferences() throws IOException, GitAPIException {
+		// Files which do not differ between the commits keep their local changes, e. g., of the preprocessing.
+		Files.writeString(tempDir.resolve("src/Unchanged.java"), "class Unchanged { int local; }\n");
+		Files.writeString(tempDir.resolve("local.txt"), "local");
+		// Untracked files at changed paths are replaced.
+		Files.writeString(tempDir.resolve("src/Added.java"), "untracked");
+
+		wrapper.updateWorkingTree(first, second, List.of());
+
+		assertEquals("class Modified { }\n", read("src/Modified.java"));
+		assertFalse(Files.exists(tempDir.resolve("src/Deleted.java")));
+		assertEquals("class Added {}\n", read("src/Added.java"));
+		assertEquals(RENAMED_CONTENT, read("new/R.java"));
+		assertFalse(Files.exists(tempDir.resolve("old")));
+		assertEquals("class Unchanged { int local; }\n", read("src/Unchanged.java"));
+		assertEquals("local", read("local.txt"));
+		assertEquals(second, wrapper.getLatestCommit());
+		assertEquals(second.getId(), wrapper.getCommitForId("HEAD").getId());
+	}
+
+	@Test
+	public void testUpdateRestoresChangedFiles() throws IOException, GitAPIException {
+		Files.writeString(tempDir.resolve("src/Deleted.java"), "class Deleted { int local; }\n");
+		Files.writeString(tempDir.resolve("src/Modified.java"), "class Modified { int local; }\n");
+
+		wrapper.updateWorkingTree(first, second, List.of());
+
+		assertEquals("class Modified { }\n", read("src/Modified.java"));
+		assertFalse(Files.exists(tempDir.resolve("src/Deleted.java")));
+	}
+
+	@Test
+	public void testCompleteCleanKeepsMatchingFiles() throws IOException, GitAPIException {
+		Files.createDirectories(tempDir.resolve("target"));
+		Files.writeString(tempDir.resolve("target/output.txt"), "output");
+		Files.writeString(tempDir.resolve("local.txt"), "local");
+		Files.writeString(tempDir.resolve("src/Unchanged.java"), "class Unchanged { int local; }\n");
+
+		// Without the checked out commit, the working tree is completely cleaned.
+		wrapper.updateWorkingTree(null, second, List.of("target/.*"));
+
+		assertEquals("output", read("target/output.txt"));
+		assertFalse(Files.exists(tempDir.resolve("local.txt")));
+		assertEquals("class Unchanged {}\n", read("src/Unchanged.java"));
+		assertEquals("class Modified { }\n", read("src/Modified.java"));
+		assertFalse(Files.exists(tempDir.resolve("src/Deleted.java")));
+		assertEquals(RENAMED_CONTENT, read("new/R.java"));
+		assertEquals(second.getId(), wrapper.getCommitForId("HEAD").getId());
+	}
+
+	private String read(String path) throws IOException {
+		return Files.readString(tempDir.resolve(path));
+	}
+}
@@ -0,0 +1,87 @@
+package cipm.consistency.vsum.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+
+/**
+ * A local Git repository in which tests create commits.
+ *
+ * @author Martin Armbruster
+ */
+class GitTestRepository implements AutoCloseable {
+	private Path rootDirectory;
+	private Git git;
+
+	/**
+	 * Creates a new and empty repository.
+	 *
+	 * @param rootDirectory the directory of the repository.
+	 * @throws GitAPIException if the repository cannot be created.
+	 */
+	GitTestRepository(Path rootDirectory) throws GitAPIException {
+		this.rootDirectory = rootDirectory;
+		git = Git.init().setDirectory(rootDirectory.toFile()).call();
+	}
+
+	/**
+	 * Writes or deletes files and commits them.
+	 *
+	 * @param files the paths of the files mapped to their new content. An empty content deletes the file.
+	 * @return the created commit.
+	 * @throws IOException     if a file cannot be written.
+	 * @throws GitAPIException if the files cannot be committed.
+	 */
+	RevCommit commit(Map<String, String> files) throws IOException, GitAPIException {
+		for (var entry : files.entrySet()) {
+			Path file = rootDirectory.resolve(entry.getKey());
+			if (entry.getValue().isEmpty()) {
+				Files.deleteIfExists(file);
+			} else {
+				Files.createDirectories(file.getParent());
+				Files.writeString(file, entry.getValue(), StandardCharsets.UTF_8);
+			}
+		}
+		git.add().addFilepattern(".").call();
+		git.add().setUpdate(true).addFilepattern(".").call();
+		return git.commit().setMessage("Change " + files.keySet()).setAuthor("test", "test@example.org")
+				.setCommitter("test", "test@example.org").call();
+	}
+
+	/**
+	 * Tags a commit.
+	 *
+	 * @param commit the commit.
+	 * @param name   name of the tag.
+	 * @throws GitAPIException if the tag cannot be created.
+	 */
+	void tag(RevCommit commit, String name) throws GitAPIException {
+		git.tag().setObjectId(commit).setName(name).setTagger(commit.getCommitterIdent()).call();
+	}
+
+	/**
+	 * Opens a wrapper for the repository.
+	 *
+	 * @return the initialized wrapper.
+	 * @throws IOException     if the repository cannot be read.
+	 * @throws GitAPIException if the repository cannot be read.
+	 */
+	GitRepositoryWrapper openWrapper() throws IOException, GitAPIException {
+		GitRepositoryWrapper wrapper = new GitRepositoryWrapper(rootDirectory.toFile());
+		wrapper.initFromRootDirectory();
+		return wrapper;
+	}
+
+	@Override
+	public void close() {
+		git.close();
+	}
+}
@@ -0,0 +1,118 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+import cipm.consistency.commitintegration.IncrementalParsingState;
+import cipm.consistency.commitintegration.JavaFileChanges;
+import cipm.consistency.commitintegration.JavaParserAndPropagatorUtils;
+
+/**
+ * Tests that the incremental parsing, which re-parses the changed Java files and re-links the references of the kept
+ * models, creates the same models as the parsing of the complete commit.
+ *
+ * @author Martin Armbruster
+ */
+public class IncrementalParsingTest {
+	private static final String SOURCE_DIR = "src/main/java/";
+	@TempDir
+	Path tempDir;
+	private Path repositoryDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+
+	@BeforeEach
+	public void setUp() throws IOException, GitAPIException {
+		TestFixtures.initializeSettings(TestFixtures.createParsingSettings(), tempDir.resolve("settings.properties"));
+		repositoryDir = tempDir.resolve("repository");
+		repository = new GitTestRepository(repositoryDir);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (wrapper != null) {
+			wrapper.closeRepository();
+		}
+		repository.close();
+	}
+
+	@Test
+	public void testIncrementalParsingEqualsCompleteParsing() throws IOException, GitAPIException {
+		// A refers to the modified class B and the renamed class D. The class C is deleted.
+		RevCommit first = repository.commit(Map.of(
+				SOURCE_DIR + "p/A.java", "package p;\n\npublic class A {\n\tprivate B b = new B();\n"
+						+ "\tprivate D d = new D();\n\tpublic int compute() {\n\t\treturn b.value() + d.value();\n"
+						+ "\t}\n}\n",
+				SOURCE_DIR + "p/B.java", "package p;\n\npublic class B {\n\tpublic int value() {\n"
+						+ "\t\treturn 1;\n\t}\n}\n",
+				SOURCE_DIR + "p/C.java", "package p;\n\npublic class C extends B {\n}\n",
+				SOURCE_DIR + "p/D.java", "package p;\n\npublic class D {\n\tpublic int value() {\n"
+						+ "\t\treturn 3;\n\t}\n}\n"));
+		IncrementalParsingState state = new IncrementalParsingState();
+		JavaParserAndPropagatorUtils.parseJavaCodeIntoOneModel(repositoryDir, tempDir.resolve("first.javaxmi"),
+				tempDir.resolve("modules.properties"), state, null);
+		state.restoreModels();
+		state.setCommitId(first.getName());
+
+		RevCommit second = repository.commit(Map.of(
+				SOURCE_DIR + "p/B.java", "package p;\n\npublic class B {\n\tpublic int offset() {\n"
+						+ "\t\treturn 2;\n\t}\n\tpublic int value() {\n\t\treturn offset() - 1;\n\t}\n}\n",
+				SOURCE_DIR + "p/C.java", "",
+				SOURCE_DIR + "p/D.java", "",
+				SOURCE_DIR + "p/moved/D.java", "package p;\n\npublic class D {\n\tpublic int value() {\n"
+						+ "\t\treturn 3;\n\t}\n}\n",
+				SOURCE_DIR + "p/E.java", "package p;\n\npublic class E extends A {\n}\n"));
+		wrapper = repository.openWrapper();
+		List<DiffEntry> diffs = wrapper.scanDiffsBetweenTwoCommits(first, second, true, true);
+		assertTrue(diffs.stream().anyMatch(d -> d.getChangeType() == DiffEntry.ChangeType.RENAME));
+		JavaFileChanges changes = JavaFileChanges.fromDiffs(repositoryDir, diffs, first.getName(),
+				second.getName());
+		List<EObject> incremental = getCompilationUnits(JavaParserAndPropagatorUtils.parseJavaCodeIntoOneModel(
+				repositoryDir, tempDir.resolve("incremental.javaxmi"), tempDir.resolve("modules.properties"), state,
+				changes));
+
+		List<EObject> complete = getCompilationUnits(JavaParserAndPropagatorUtils.parseJavaCodeIntoOneModel(
+				repositoryDir, tempDir.resolve("complete.javaxmi"), tempDir.resolve("complete-modules.properties")));
+		assertEquals(4, complete.size());
+		assertEquals(getNames(complete), getNames(incremental));
+		for (int idx = 0; idx < complete.size(); idx++) {
+			assertTrue(EcoreUtil.equals(complete.get(idx), incremental.get(idx)),
+					"Models of " + getName(complete.get(idx)));
+		}
+		state.restoreModels();
+		state.reset();
+	}
+
+	private static List<EObject> getCompilationUnits(Resource all) {
+		return all.getContents().stream().filter(CompilationUnit.class::isInstance)
+				.sorted(Comparator.comparing(IncrementalParsingTest::getName)).collect(Collectors.toList());
+	}
+
+	private static List<String> getNames(List<EObject> models) {
+		return models.stream().map(IncrementalParsingTest::getName).collect(Collectors.toList());
+	}
+
+	private static String getName(EObject model) {
+		return ((CompilationUnit) model).getName();
+	}
+}
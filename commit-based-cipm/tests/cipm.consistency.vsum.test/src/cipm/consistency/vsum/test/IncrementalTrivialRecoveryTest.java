@@ -0,0 +1,113 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.emftext.language.java.LogicalJavaURIGenerator;
+import org.emftext.language.java.classifiers.Classifier;
+import org.emftext.language.java.classifiers.ClassifiersFactory;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.types.ClassifierReference;
+import org.emftext.language.java.types.TypesFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.commitintegration.IncrementalTrivialRecovery;
+
+/**
+ * Tests that the {@link IncrementalTrivialRecovery} reuses its stubs for re-parsed Resources and removes stubs which
+ * are not referenced anymore.
+ *
+ * @author Martin Armbruster
+ */
+public class IncrementalTrivialRecoveryTest {
+	private ResourceSet resourceSet;
+	private IncrementalTrivialRecovery recovery;
+
+	@BeforeEach
+	public void setUp() {
+		resourceSet = new ResourceSetImpl();
+		recovery = new IncrementalTrivialRecovery();
+	}
+
+	@Test
+	public void testResourcesWithoutProxiesCreateNoStubs() {
+		createResource("A", null);
+		recovery.recoverAll(resourceSet);
+		assertEquals(0, recovery.getNumberOfStubResources());
+		assertEquals(1, resourceSet.getResources().size());
+	}
+
+	@Test
+	public void testStubIsReusedForReparsedResource() {
+		Resource resource = createResource("A", "Missing");
+		recovery.recoverAll(resourceSet);
+		Resource stub = getSuperClassifier(resource).eResource();
+		assertTrue(recovery.isStub(stub));
+		assertFalse(recovery.isStub(resource));
+		int numberStubs = recovery.getNumberOfStubResources();
+
+		reparse(resource, "A", "Missing");
+		recovery.recover(resourceSet, List.of(resource));
+		assertSame(stub, getSuperClassifier(resource).eResource());
+		assertEquals(numberStubs, recovery.getNumberOfStubResources());
+	}
+
+	@Test
+	public void testUnreferencedStubIsRemoved() {
+		Resource resource = createResource("A", "Missing");
+		Resource other = createResource("B", "Missing");
+		recovery.recoverAll(resourceSet);
+		Resource stub = getSuperClassifier(resource).eResource();
+
+		// The stub is still referenced by the other Resource.
+		reparse(resource, "A", null);
+		recovery.recover(resourceSet, List.of(resource));
+		assertTrue(recovery.isStub(stub));
+		assertTrue(resourceSet.getResources().contains(stub));
+
+		resourceSet.getResources().remove(other);
+		recovery.release(other.getURI());
+		recovery.recover(resourceSet, List.of());
+		assertFalse(recovery.isStub(stub));
+		assertFalse(resourceSet.getResources().contains(stub));
+		assertEquals(0, recovery.getNumberOfStubResources());
+	}
+
+	private Resource createResource(String className, String missingSuperClass) {
+		Resource resource = new XMIResourceImpl(URI.createFileURI("/recovery-test/" + className + ".java"));
+		resourceSet.getResources().add(resource);
+		reparse(resource, className, missingSuperClass);
+		return resource;
+	}
+
+	private void reparse(Resource resource, String className, String missingSuperClass) {
+		CompilationUnit cu = TestFixtures.createCompilationUnit("test", className);
+		if (missingSuperClass != null) {
+			org.emftext.language.java.classifiers.Class proxy = ClassifiersFactory.eINSTANCE.createClass();
+			((InternalEObject) proxy).eSetProxyURI(LogicalJavaURIGenerator
+					.getJavaFileResourceURI("test." + missingSuperClass).appendFragment("//@classifiers.0"));
+			ClassifierReference reference = TypesFactory.eINSTANCE.createClassifierReference();
+			reference.setTarget(proxy);
+			TestFixtures.getFirstClass(cu).setExtends(reference);
+		}
+		resource.getContents().clear();
+		resource.getContents().add(cu);
+	}
+
+	private Classifier getSuperClassifier(Resource resource) {
+		Classifier target = ((ClassifierReference) TestFixtures.getFirstClass(resource).getExtends()).getTarget();
+		assertFalse(target.eIsProxy());
+		return target;
+	}
+}
@@ -0,0 +1,92 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.emftext.language.java.JavaClasspath;
+import org.emftext.language.java.LogicalJavaURIGenerator;
+import org.emftext.language.java.classifiers.ClassifiersFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.commitintegration.JavaClasspathRegistry;
+
+/**
+ * Tests that the {@link JavaClasspathRegistry} indexes and removes exactly the classpath entries of a Resource.
+ *
+ * @author Martin Armbruster
+ */
+public class JavaClasspathRegistryTest {
+	private static final URI FIRST_URI = URI.createFileURI("/registry-test/first/C.java");
+	private static final URI SECOND_URI = URI.createFileURI("/registry-test/second/C.java");
+	private static final URI OTHER_URI = URI.createFileURI("/registry-test/other/E.java");
+
+	@AfterEach
+	public void tearDown() {
+		JavaClasspathRegistry.unregister(FIRST_URI);
+		JavaClasspathRegistry.unregister(SECOND_URI);
+		JavaClasspathRegistry.unregister(OTHER_URI);
+		JavaClasspathRegistry.clear();
+	}
+
+	@Test
+	public void testRegisterAndUnregister() {
+		Resource resource = createResource(FIRST_URI, "C");
+		Resource other = createResource(OTHER_URI, "E");
+		JavaClasspathRegistry.register(resource);
+		JavaClasspathRegistry.register(other);
+
+		assertEquals(countEntries(FIRST_URI), JavaClasspathRegistry.getNumberOfEntries(FIRST_URI));
+		assertTrue(JavaClasspathRegistry.getNumberOfEntries(FIRST_URI) > 0);
+		assertEquals(FIRST_URI, JavaClasspath.get().getURIMap()
+				.get(LogicalJavaURIGenerator.getJavaFileResourceURI("a.b.C")));
+
+		int otherEntries = countEntries(OTHER_URI);
+		JavaClasspathRegistry.unregister(resource);
+		assertEquals(0, countEntries(FIRST_URI));
+		assertEquals(0, JavaClasspathRegistry.getNumberOfEntries(FIRST_URI));
+		assertEquals(otherEntries, countEntries(OTHER_URI));
+	}
+
+	@Test
+	public void testOverriddenEntriesAreKept() {
+		Resource first = createResource(FIRST_URI, "C");
+		Resource second = createResource(SECOND_URI, "C");
+		JavaClasspathRegistry.register(first);
+		JavaClasspathRegistry.register(second);
+		assertEquals(0, countEntries(FIRST_URI));
+
+		JavaClasspathRegistry.unregister(first);
+		assertEquals(SECOND_URI, JavaClasspath.get().getURIMap()
+				.get(LogicalJavaURIGenerator.getJavaFileResourceURI("a.b.C")));
+		assertEquals(countEntries(SECOND_URI), JavaClasspathRegistry.getNumberOfEntries(SECOND_URI));
+	}
+
+	@Test
+	public void testUnregisterOfUnindexedResource() {
+		Resource resource = createResource(FIRST_URI, "C");
+		JavaClasspathRegistry.register(resource);
+		JavaClasspathRegistry.clear();
+		assertEquals(0, JavaClasspathRegistry.getNumberOfEntries(FIRST_URI));
+
+		// The entries are derived from the contents of the Resource.
+		JavaClasspathRegistry.unregister(resource);
+		assertEquals(0, countEntries(FIRST_URI));
+	}
+
+	private Resource createResource(URI uri, String className) {
+		Resource resource = TestFixtures.createResource(uri, "a.b", className);
+		new ResourceSetImpl().getResources().add(resource);
+		org.emftext.language.java.classifiers.Class nested = ClassifiersFactory.eINSTANCE.createClass();
+		nested.setName("Nested");
+		TestFixtures.getFirstClass(resource).getMembers().add(nested);
+		return resource;
+	}
+
+	private long countEntries(URI resourceURI) {
+		return JavaClasspath.get().getURIMap().values().stream().filter(resourceURI::equals).count();
+	}
+}
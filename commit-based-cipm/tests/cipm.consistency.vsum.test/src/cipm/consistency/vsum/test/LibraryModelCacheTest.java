@@ -0,0 +1,92 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.LibraryModelCache;
+
+/**
+ * Tests that the {@link LibraryModelCache} loads a library model from the cache after it was stored and that a
+ * changed jar file invalidates the cached models. The class file in the jar contains an XMI model so that the test
+ * does not depend on the parsing of class files.
+ *
+ * @author Martin Armbruster
+ */
+public class LibraryModelCacheTest {
+	private static final String CLASS_FILE = "p/A.class";
+	@TempDir
+	Path tempDir;
+	private Path jar;
+	private URI classURI;
+	private LibraryModelCache cache;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		jar = tempDir.resolve("lib.jar");
+		classURI = URI.createURI("archive:" + URI.createFileURI(jar.toAbsolutePath().toString()) + "!/" + CLASS_FILE);
+		cache = new LibraryModelCache(tempDir.resolve("cache"), false);
+	}
+
+	@Test
+	public void testMissAndHit() throws IOException {
+		writeJar("A");
+		assertEquals("A", load().getName());
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		assertEquals("A", load().getName());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testChangedJarInvalidatesModels() throws IOException {
+		writeJar("A");
+		load();
+		FileTime modified = Files.getLastModifiedTime(jar);
+		writeJar("Changed");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(modified.toMillis() + 1000));
+
+		assertEquals("Changed", load().getName());
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals("Changed", load().getName());
+		assertEquals(1, cache.getHits());
+	}
+
+	private EClass load() {
+		ResourceSet resourceSet = cache.createResourceSet();
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("class", new XMIResourceFactoryImpl());
+		Resource resource = resourceSet.getResource(classURI, true);
+		return (EClass) resource.getContents().get(0);
+	}
+
+	private void writeJar(String className) throws IOException {
+		EClass model = EcoreFactory.eINSTANCE.createEClass();
+		model.setName(className);
+		Resource resource = new XMIResourceImpl(URI.createURI(CLASS_FILE));
+		resource.getContents().add(model);
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+			out.putNextEntry(new JarEntry(CLASS_FILE));
+			resource.save(out, null);
+			out.closeEntry();
+		}
+	}
+}
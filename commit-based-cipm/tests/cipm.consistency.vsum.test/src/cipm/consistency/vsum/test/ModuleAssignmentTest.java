@@ -0,0 +1,184 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.emftext.language.java.containers.ContainersFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.detection.ComponentDetectionStrategy;
+import cipm.consistency.commitintegration.detection.ComponentModuleDetector;
+import cipm.consistency.commitintegration.detection.ModuleAssignment;
+import cipm.consistency.commitintegration.detection.ModuleCandidates;
+import cipm.consistency.commitintegration.detection.ModuleState;
+
+/**
+ * Tests that the {@link ModuleAssignment} is stored and loaded, and that the {@link ComponentModuleDetector} only
+ * reuses it for unchanged Java files with unchanged detection inputs.
+ *
+ * @author Martin Armbruster
+ */
+public class ModuleAssignmentTest {
+	private static final String ASSIGNMENT_FILE_NAME = "module-assignment.properties";
+	@TempDir
+	Path tempDir;
+	private Path repositoryDir;
+	private Path configPath;
+	private Path fileA;
+	private Path fileB;
+	private RecordingStrategy strategy;
+	private ComponentModuleDetector detector;
+
+	/**
+	 * A strategy which assigns every Java file to one module and records the files it visits.
+	 */
+	private static class RecordingStrategy implements ComponentDetectionStrategy {
+		private Set<Path> visitedFiles = new HashSet<>();
+		private Collection<Path> inputs = List.of();
+
+		@Override
+		public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
+			visitedFiles.add(file);
+			candidate.addModuleClassifier(ModuleState.REGULAR_COMPONENT, "module", res);
+		}
+
+		@Override
+		public Collection<Path> getDetectionInputs() {
+			return inputs;
+		}
+	}
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		repositoryDir = tempDir.resolve("repository");
+		fileA = repositoryDir.resolve("A.java");
+		fileB = repositoryDir.resolve("sub").resolve("B.java");
+		Files.createDirectories(fileB.getParent());
+		configPath = tempDir.resolve("config").resolve("module-configuration.properties");
+		Files.createDirectories(configPath.getParent());
+		strategy = new RecordingStrategy();
+		detector = new ComponentModuleDetector();
+		detector.addComponentDetectionStrategy(strategy);
+		detector.setHeadless(true);
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		Path assignmentPath = tempDir.resolve(ASSIGNMENT_FILE_NAME);
+		ModuleAssignment assignment = new ModuleAssignment(assignmentPath);
+		assignment.getStrategies().add("strategy");
+		assignment.getInputs().add("sub/pom.xml");
+		assignment.addModule("sub/B.java", ModuleState.REGULAR_COMPONENT, "first");
+		assignment.addModule("sub/B.java", ModuleState.COMPONENT_CANDIDATE, "second");
+		assignment.addFile("A.java");
+		assignment.save();
+
+		ModuleAssignment loaded = ModuleAssignment.load(assignmentPath);
+		assertEquals(Set.of("strategy"), loaded.getStrategies());
+		assertEquals(Set.of("sub/pom.xml"), loaded.getInputs());
+		assertTrue(loaded.getModules("A.java").isEmpty());
+		var modules = loaded.getModules("sub/B.java");
+		assertEquals(2, modules.size());
+		assertEquals(ModuleState.REGULAR_COMPONENT, modules.get(0).getState());
+		assertEquals("first", modules.get(0).getName());
+		assertEquals(ModuleState.COMPONENT_CANDIDATE, modules.get(1).getState());
+		assertEquals("second", modules.get(1).getName());
+		assertNull(loaded.getModules("C.java"));
+	}
+
+	@Test
+	public void testIncompleteAssignmentIsRemoved() throws IOException {
+		Path assignmentPath = tempDir.resolve(ASSIGNMENT_FILE_NAME);
+		Files.writeString(assignmentPath, "strategies=strategy\n");
+		ModuleAssignment assignment = new ModuleAssignment(assignmentPath);
+		assignment.markIncomplete();
+		assignment.save();
+		assertFalse(Files.exists(assignmentPath));
+		assertNull(ModuleAssignment.load(assignmentPath));
+	}
+
+	@Test
+	public void testUnreadableAssignment() throws IOException {
+		Path assignmentPath = tempDir.resolve(ASSIGNMENT_FILE_NAME);
+		Files.writeString(assignmentPath, "file\\:A.java=UNKNOWN/module\n");
+		assertNull(ModuleAssignment.load(assignmentPath));
+	}
+
+	@Test
+	public void testReuseForUnchangedFiles() {
+		detect(null);
+		assertEquals(Set.of(fileA, fileB), strategy.visitedFiles);
+
+		detect(Set.of(fileA));
+		assertEquals(Set.of(fileA), strategy.visitedFiles);
+	}
+
+	@Test
+	public void testChangedInputInvalidatesItsDirectory() {
+		detect(null);
+		strategy.inputs = List.of(repositoryDir.resolve("sub").resolve("pom.xml"));
+		detect(Set.of());
+		assertEquals(Set.of(fileB), strategy.visitedFiles);
+
+		// The removal of the input invalidates the directory again.
+		strategy.inputs = List.of();
+		detect(Set.of());
+		assertEquals(Set.of(fileB), strategy.visitedFiles);
+	}
+
+	@Test
+	public void testUnknownInputsPreventReuse() {
+		detect(null);
+		strategy.inputs = null;
+		detect(Set.of());
+		assertEquals(Set.of(fileA, fileB), strategy.visitedFiles);
+		assertFalse(Files.exists(configPath.resolveSibling(ASSIGNMENT_FILE_NAME)));
+	}
+
+	@Test
+	public void testAssignmentOfAnotherCommitIsNotReused() {
+		detect(null, "first", null);
+		detect("first", "second", Set.of(fileA));
+		assertEquals(Set.of(fileA), strategy.visitedFiles);
+		assertEquals("second", ModuleAssignment.load(configPath.resolveSibling(ASSIGNMENT_FILE_NAME)).getCommitId());
+
+		// The stored assignment belongs to the second commit.
+		detect("first", "third", Set.of(fileA));
+		assertEquals(Set.of(fileA, fileB), strategy.visitedFiles);
+	}
+
+	private void detect(Set<Path> changedFiles) {
+		detect(null, null, changedFiles);
+	}
+
+	private void detect(String previousCommit, String commit, Set<Path> changedFiles) {
+		strategy.visitedFiles.clear();
+		ResourceSet resourceSet = new ResourceSetImpl();
+		// The modules are created in Resources with logical URIs.
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap()
+				.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new XMIResourceFactoryImpl());
+		for (Path file : List.of(fileA, fileB)) {
+			Resource resource = resourceSet.createResource(URI.createFileURI(file.toString()));
+			resource.getContents().add(ContainersFactory.eINSTANCE.createCompilationUnit());
+		}
+		detector.setIncrementalDetection(true, previousCommit, commit, changedFiles);
+		detector.detectComponentsAndCreateModules(resourceSet, repositoryDir, configPath);
+	}
+}
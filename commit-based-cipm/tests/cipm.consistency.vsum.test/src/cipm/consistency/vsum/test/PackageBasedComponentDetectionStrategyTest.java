@@ -0,0 +1,72 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.commitintegration.detection.ModuleState;
+import cipm.consistency.commitintegration.detection.PackageBasedComponentDetectionStrategy;
+
+/**
+ * Tests that the prefix tree of the {@link PackageBasedComponentDetectionStrategy} finds the same modules as matching
+ * every regular expression of the mappings in order.
+ *
+ * @author Martin Armbruster
+ */
+public class PackageBasedComponentDetectionStrategyTest {
+	private static final List<String> PACKAGE_REGEXES = List.of(
+			// Literal prefixes which are compiled into the prefix tree.
+			"teammates\\.common\\..*?", "teammates\\.common\\..*", "teammates\\..*", "teammates.ui", "teammates\\.ui",
+			".*", "",
+			// Regular expressions which cannot be compiled into the prefix tree.
+			"teammates\\.\\.*", "teammates.*.*", "teammates\\.[a-z]+", "teammates\\.(ui|logic)\\..*",
+			"teammates\\.\\w+", "teammates\\.ui\\.?");
+	private static final List<String> PACKAGE_NAMES = List.of("", "teammates", "teammates.", "teammates..",
+			"teammates.ui", "teammates.ui.", "teammates.uix", "teammatesxui", "teammates.common",
+			"teammates.common.", "teammates.common.util", "teammates.logic.api", "teammates.Logic", "other.teammates");
+
+	/**
+	 * A strategy with one mapping per regular expression whose module is named by the regular expression.
+	 */
+	private static class RegexStrategy extends PackageBasedComponentDetectionStrategy {
+		@Override
+		protected void initializeMappings() {
+			for (String regex : PACKAGE_REGEXES) {
+				addPackageModuleMapping(regex, regex, ModuleState.REGULAR_COMPONENT);
+			}
+		}
+	}
+
+	@Test
+	public void testPrefixTreeMatchesRegexSemantics() {
+		RegexStrategy strategy = new RegexStrategy();
+		for (String packageName : PACKAGE_NAMES) {
+			List<String> expected = new ArrayList<>();
+			for (String regex : PACKAGE_REGEXES) {
+				if (Pattern.matches(regex, packageName)) {
+					expected.add(regex);
+				}
+			}
+			assertEquals(expected, strategy.findModules(packageName), "Modules of the package " + packageName);
+		}
+	}
+
+	@Test
+	public void testMappingsOfTheSameModule() {
+		PackageBasedComponentDetectionStrategy strategy = new PackageBasedComponentDetectionStrategy() {
+			@Override
+			protected void initializeMappings() {
+				addPackageModuleMapping("a\\.b\\..*", "ab", ModuleState.REGULAR_COMPONENT);
+				addPackageModuleMapping("a\\..*", "a", ModuleState.MICROSERVICE_COMPONENT);
+				addPackageModuleMapping("a\\.b\\.c", "ab", ModuleState.REGULAR_COMPONENT);
+			}
+		};
+		assertEquals(List.of("ab", "a", "ab"), strategy.findModules("a.b.c"));
+		assertEquals(List.of("ab", "a"), strategy.findModules("a.b.d"));
+		assertEquals(List.of(), strategy.findModules("b"));
+	}
+}
@@ -0,0 +1,88 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.JavaParserAndPropagatorUtils;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+
+/**
+ * Tests that the parallel parsing creates the same models as the sequential parsing. It has to pass before the
+ * parallel parsing is enabled for a JaMoPP version.
+ *
+ * @author Martin Armbruster
+ */
+public class ParallelParsingTest {
+	@TempDir
+	Path tempDir;
+	private Path sourceDir;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		sourceDir = tempDir.resolve("src").resolve("main").resolve("java");
+		writeClass("p", "A", "public class A {\n\tprivate B b = new B();\n\tprotected String name;\n"
+				+ "\tpublic int compute() {\n\t\treturn b.value() + name.length();\n\t}\n}\n");
+		writeClass("p", "B", "public class B {\n\tpublic int value() {\n\t\treturn 1;\n\t}\n}\n");
+		writeClass("p", "I", "public interface I {\n\tint compute();\n}\n");
+		writeClass("p.q", "C", "import p.A;\nimport p.I;\n\npublic class C extends A implements I {\n"
+				+ "\tpublic java.util.List<A> parts;\n}\n");
+		for (int idx = 0; idx < 12; idx++) {
+			writeClass("p.r", "D" + idx, "public class D" + idx + " extends p.q.C {\n\tpublic p.B next() {\n"
+					+ "\t\treturn new p.B();\n\t}\n}\n");
+		}
+	}
+
+	@Test
+	public void testParallelParsingEqualsSequentialParsing() throws IOException {
+		List<EObject> sequential = parse(1, "sequential");
+		List<EObject> parallel = parse(4, "parallel");
+		assertEquals(16, sequential.size());
+		assertEquals(getNames(sequential), getNames(parallel));
+		for (int idx = 0; idx < sequential.size(); idx++) {
+			assertTrue(EcoreUtil.equals(sequential.get(idx), parallel.get(idx)),
+					"Models of " + getName(sequential.get(idx)));
+		}
+	}
+
+	private List<EObject> parse(int parallelism, String name) throws IOException {
+		Properties settings = TestFixtures.createParsingSettings();
+		settings.setProperty(SettingKeys.PARSING_PARALLELISM, Integer.toString(parallelism));
+		settings.setProperty(SettingKeys.ENABLE_PARALLEL_PARSING, Boolean.TRUE.toString());
+		TestFixtures.initializeSettings(settings, tempDir.resolve(name + ".properties"));
+		Resource all = JavaParserAndPropagatorUtils.parseJavaCodeIntoOneModel(tempDir.resolve("src"),
+				tempDir.resolve(name + ".javaxmi"), tempDir.resolve(name + "-modules.properties"));
+		// The order of the models depends on the distribution of the files.
+		return all.getContents().stream().filter(CompilationUnit.class::isInstance)
+				.sorted(Comparator.comparing(ParallelParsingTest::getName)).collect(Collectors.toList());
+	}
+
+	private static List<String> getNames(List<EObject> models) {
+		return models.stream().map(ParallelParsingTest::getName).collect(Collectors.toList());
+	}
+
+	private static String getName(EObject model) {
+		return ((CompilationUnit) model).getName();
+	}
+
+	private void writeClass(String packageName, String className, String body) throws IOException {
+		Path file = sourceDir.resolve(packageName.replace('.', '/')).resolve(className + ".java");
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, "package " + packageName + ";\n\n" + body);
+	}
+}
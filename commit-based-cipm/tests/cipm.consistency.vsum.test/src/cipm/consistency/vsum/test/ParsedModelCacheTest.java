@@ -0,0 +1,164 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jgit.lib.ObjectId;
+import org.emftext.language.java.classifiers.Classifier;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.types.ClassifierReference;
+import org.emftext.language.java.types.TypesFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.JavaParserAndPropagatorUtils;
+import cipm.consistency.commitintegration.ParsedModelCache;
+
+/**
+ * Tests that the models parsed with the {@link ParsedModelCache} equal the models of the parsing without the cache and
+ * that the cache does not exceed its maximum size.
+ *
+ * @author Martin Armbruster
+ */
+public class ParsedModelCacheTest {
+	private static final String OPTIONS_KEY = "test";
+	@TempDir
+	Path tempDir;
+	private Path cacheDir;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		cacheDir = tempDir.resolve("cache");
+		TestFixtures.initializeSettings(TestFixtures.createParsingSettings(), tempDir.resolve("settings.properties"));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		JavaParserAndPropagatorUtils.setParsedModelCache(null);
+	}
+
+	@Test
+	public void testCachedModelsEqualParsedModels() throws IOException {
+		Path sourceDir = tempDir.resolve("src").resolve("main").resolve("java");
+		writeFile(sourceDir.resolve("p/A.java"), "package p;\n\npublic class A {\n\tprivate B b = new B();\n"
+				+ "\tpublic int compute(String name) {\n\t\treturn b.value() + name.length();\n\t}\n}\n");
+		writeFile(sourceDir.resolve("p/B.java"), "package p;\n\npublic class B {\n\tpublic int value() {\n"
+				+ "\t\treturn 1;\n\t}\n}\n");
+		writeFile(sourceDir.resolve("p/q/C.java"), "package p.q;\n\nimport p.A;\n\npublic class C extends A {\n"
+				+ "\tpublic java.util.List<A> parts;\n}\n");
+
+		JavaParserAndPropagatorUtils.setParsedModelCache(null);
+		List<EObject> uncached = parse("uncached");
+		assertEquals(3, uncached.size());
+
+		JavaParserAndPropagatorUtils.setParsedModelCache(new ParsedModelCache(cacheDir));
+		List<EObject> stored = parse("stored");
+		assertEquals(3, countModelFiles());
+		List<EObject> loaded = parse("loaded");
+		for (int idx = 0; idx < uncached.size(); idx++) {
+			assertTrue(EcoreUtil.equals(uncached.get(idx), stored.get(idx)), "Stored model " + idx);
+			assertTrue(EcoreUtil.equals(uncached.get(idx), loaded.get(idx)), "Loaded model " + idx);
+		}
+	}
+
+	@Test
+	public void testCacheIsPruned() throws IOException {
+		long maxSize = 2000;
+		ParsedModelCache cache = new ParsedModelCache(cacheDir, maxSize);
+		Path lastFile = null;
+		ObjectId lastBlobId = null;
+		for (int idx = 0; idx < 20; idx++) {
+			lastFile = tempDir.resolve("C" + idx + ".java");
+			writeFile(lastFile, "package p;\n\npublic class C" + idx + " {\n}\n");
+			lastBlobId = cache.computeBlobId(lastFile);
+			cache.store(createModel(lastFile, "C" + idx), lastBlobId, OPTIONS_KEY);
+			assertTrue(getSizeOfModelFiles() <= maxSize, "Size of the cache after storing model " + idx);
+		}
+		assertTrue(countModelFiles() < 20);
+		assertNotNull(cache.load(new ResourceSetImpl(), lastFile, lastBlobId, OPTIONS_KEY));
+	}
+
+	@Test
+	public void testModelIsLoadedForAnotherLocation() throws IOException {
+		ParsedModelCache cache = new ParsedModelCache(cacheDir);
+		Path fileA = tempDir.resolve("p/A.java");
+		Path fileB = tempDir.resolve("p/B.java");
+		writeFile(fileA, "package p;\n\npublic class A extends B {\n}\n");
+		writeFile(fileB, "package p;\n\npublic class B {\n}\n");
+		ResourceSet resourceSet = new ResourceSetImpl();
+		Resource modelB = createModel(fileB, "B");
+		Resource modelA = createModel(fileA, "A");
+		resourceSet.getResources().add(modelB);
+		resourceSet.getResources().add(modelA);
+		ClassifierReference reference = TypesFactory.eINSTANCE.createClassifierReference();
+		reference.setTarget(TestFixtures.getFirstClass(modelB));
+		TestFixtures.getFirstClass(modelA).setExtends(reference);
+		cache.store(modelA, cache.computeBlobId(fileA), OPTIONS_KEY);
+
+		// The same content at another location, e. g., after a rename.
+		Path renamedFile = tempDir.resolve("q/r/A.java");
+		writeFile(renamedFile, Files.readString(fileA));
+		ResourceSet nextSet = new ResourceSetImpl();
+		nextSet.getResources().add(createModel(fileB, "B"));
+		Resource loaded = cache.load(nextSet, renamedFile, cache.computeBlobId(renamedFile), OPTIONS_KEY);
+		assertNotNull(loaded);
+		Classifier target = ((ClassifierReference) TestFixtures.getFirstClass(loaded).getExtends()).getTarget();
+		assertFalse(target.eIsProxy());
+		assertEquals(URI.createFileURI(fileB.toAbsolutePath().toString()), target.eResource().getURI());
+
+		// The model is not reused if the referenced file changed.
+		writeFile(fileB, "package p;\n\npublic class B {\n\tint value;\n}\n");
+		assertNull(cache.load(new ResourceSetImpl(), renamedFile, cache.computeBlobId(renamedFile), OPTIONS_KEY));
+	}
+
+	private List<EObject> parse(String name) {
+		Resource all = JavaParserAndPropagatorUtils.parseJavaCodeIntoOneModel(tempDir.resolve("src"),
+				tempDir.resolve(name + ".javaxmi"), tempDir.resolve(name + "-modules.properties"));
+		return all.getContents().stream().filter(CompilationUnit.class::isInstance)
+				.sorted(Comparator.comparing(m -> ((CompilationUnit) m).getName())).collect(Collectors.toList());
+	}
+
+	private static Resource createModel(Path file, String className) {
+		return TestFixtures.createResource(URI.createFileURI(file.toAbsolutePath().toString()), "p", className);
+	}
+
+	private long countModelFiles() throws IOException {
+		try (Stream<Path> stream = Files.walk(cacheDir)) {
+			return stream.filter(Files::isRegularFile).count();
+		}
+	}
+
+	private long getSizeOfModelFiles() throws IOException {
+		long size = 0;
+		try (Stream<Path> stream = Files.walk(cacheDir)) {
+			for (Path file : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+				size += Files.size(file);
+			}
+		}
+		return size;
+	}
+
+	private static void writeFile(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+}
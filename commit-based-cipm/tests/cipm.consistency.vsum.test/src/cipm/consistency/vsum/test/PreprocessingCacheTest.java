@@ -0,0 +1,116 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.PreprocessingCache;
+
+/**
+ * Tests that the {@link PreprocessingCache} restores the outputs of the preprocessing script for unchanged inputs,
+ * runs the script again for changed inputs or output patterns, does not cache failed runs, and removes the least
+ * recently used outputs if it exceeds its maximum size.
+ *
+ * @author Martin Armbruster
+ */
+@DisabledOnOs(OS.WINDOWS)
+public class PreprocessingCacheTest {
+	private static final List<String> INPUTS = List.of("build.txt");
+	private static final List<String> OUTPUTS = List.of("out/**");
+	@TempDir
+	Path tempDir;
+	private Path directory;
+	private Path cacheDir;
+	private Path runs;
+	private Path script;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		directory = tempDir.resolve("commit");
+		cacheDir = tempDir.resolve("cache");
+		runs = tempDir.resolve("runs.txt");
+		script = tempDir.resolve("preprocess.sh");
+		Files.createDirectories(directory);
+		Files.writeString(runs, "");
+		writeScript("mkdir -p out\ncat build.txt > out/result.txt\n");
+	}
+
+	@Test
+	public void testUnchangedInputsRestoreOutputs() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDir, INPUTS, OUTPUTS);
+		Files.writeString(directory.resolve("build.txt"), "first");
+		assertTrue(cache.preprocess(directory, script));
+		assertEquals(1, getNumberOfRuns());
+
+		FileUtils.deleteDirectory(directory.resolve("out").toFile());
+		assertTrue(cache.preprocess(directory, script));
+		assertEquals(1, getNumberOfRuns());
+		assertEquals("first", Files.readString(directory.resolve("out/result.txt")));
+	}
+
+	@Test
+	public void testChangedInputsRunScript() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDir, INPUTS, OUTPUTS);
+		Files.writeString(directory.resolve("build.txt"), "first");
+		assertTrue(cache.preprocess(directory, script));
+		Files.writeString(directory.resolve("build.txt"), "second");
+		assertTrue(cache.preprocess(directory, script));
+		assertEquals(2, getNumberOfRuns());
+		assertEquals("second", Files.readString(directory.resolve("out/result.txt")));
+	}
+
+	@Test
+	public void testChangedOutputPatternsRunScript() throws IOException {
+		Files.writeString(directory.resolve("build.txt"), "first");
+		assertTrue(new PreprocessingCache(cacheDir, INPUTS, List.of("out/other.txt")).preprocess(directory, script));
+		assertTrue(new PreprocessingCache(cacheDir, INPUTS, OUTPUTS).preprocess(directory, script));
+		assertEquals(2, getNumberOfRuns());
+	}
+
+	@Test
+	public void testFailedScriptIsNotCached() throws IOException {
+		writeScript("mkdir -p out\ncat build.txt > out/result.txt\nexit 1\n");
+		PreprocessingCache cache = new PreprocessingCache(cacheDir, INPUTS, OUTPUTS);
+		Files.writeString(directory.resolve("build.txt"), "first");
+		assertFalse(cache.preprocess(directory, script));
+		assertFalse(cache.preprocess(directory, script));
+		assertEquals(2, getNumberOfRuns());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedOutputsAreRemoved() throws IOException {
+		// Every cached output has 100 bytes so that the cache only keeps one of them.
+		PreprocessingCache cache = new PreprocessingCache(cacheDir, INPUTS, OUTPUTS, 150);
+		Files.writeString(directory.resolve("build.txt"), "1".repeat(100));
+		assertTrue(cache.preprocess(directory, script));
+		Files.writeString(directory.resolve("build.txt"), "2".repeat(100));
+		assertTrue(cache.preprocess(directory, script));
+		assertTrue(cache.preprocess(directory, script));
+		assertEquals(2, getNumberOfRuns());
+
+		Files.writeString(directory.resolve("build.txt"), "1".repeat(100));
+		assertTrue(cache.preprocess(directory, script));
+		assertEquals(3, getNumberOfRuns());
+	}
+
+	private void writeScript(String commands) throws IOException {
+		Files.writeString(script, "#!/bin/sh\necho run >> \"" + runs.toAbsolutePath() + "\"\n" + commands);
+		assertTrue(script.toFile().setExecutable(true));
+	}
+
+	private int getNumberOfRuns() throws IOException {
+		return Files.readAllLines(runs).size();
+	}
+}
@@ -0,0 +1,77 @@
+package cipm.consistency.vsum.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.vsum.BinaryResourceSupport;
+import cipm.consistency.vsum.FileLayout;
+import cipm.consistency.vsum.ResourceFormatMigration;
+
+/**
+ * Compares the load time, save time, and file size of the models in XMI and EMF's binary resource encoding. The
+ * benchmark requires the V-SUMs created by the TeaStore and TEAMMATES tests.
+ * 
+ * @author Martin Armbruster
+ */
+@Disabled("Needs to follow manual control.")
+public class ResourceFormatBenchmark {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ResourceFormatBenchmark.class.getSimpleName());
+	private static final List<String> TEST_PATHS = List.of("target/TeaStoreTest", "target/TeammatesTest");
+	private static final int REPETITIONS = 5;
+
+	@Test
+	public void benchmarkFormats() throws IOException {
+		for (String testPath : TEST_PATHS) {
+			Path root = Paths.get(testPath);
+			if (Files.notExists(root)) {
+				LOGGER.debug("Skipping " + testPath + " because it does not exist.");
+				continue;
+			}
+			Path copyDir = Files.createTempDirectory("cipm-format-benchmark");
+			for (Map.Entry<String, Path> model : BinaryResourceSupport.getModelFiles(new FileLayout(root)).entrySet()) {
+				Path file = model.getValue();
+				if (Files.notExists(file)) {
+					continue;
+				}
+				Path xmiFile = copyDir.resolve(model.getKey() + "-xmi." + file.getFileName());
+				Path binaryFile = copyDir.resolve(model.getKey() + "-binary." + file.getFileName());
+				Files.copy(file, xmiFile);
+				Files.copy(file, binaryFile);
+				ResourceFormatMigration.convert(xmiFile, false);
+				ResourceFormatMigration.convert(binaryFile, true);
+				LOGGER.debug(testPath + " " + model.getKey() + " XMI: " + measure(xmiFile, false));
+				LOGGER.debug(testPath + " " + model.getKey() + " binary: " + measure(binaryFile, true));
+			}
+		}
+	}
+
+	private String measure(Path file, boolean binary) throws IOException {
+		long loadTime = 0;
+		long saveTime = 0;
+		for (int idx = 0; idx < REPETITIONS; idx++) {
+			ResourceSet resourceSet = new ResourceSetImpl();
+			long timer = System.nanoTime();
+			Resource resource = ResourceFormatMigration.load(resourceSet, file);
+			loadTime += System.nanoTime() - timer;
+			BinaryResourceSupport.setBinary((XMLResource) resource, binary);
+			timer = System.nanoTime();
+			resource.save(null);
+			saveTime += System.nanoTime() - timer;
+			resource.unload();
+		}
+		return "load " + (loadTime / REPETITIONS / 1_000_000) + " ms, save " + (saveTime / REPETITIONS / 1_000_000)
+				+ " ms, size " + Files.size(file) + " bytes";
+	}
+}
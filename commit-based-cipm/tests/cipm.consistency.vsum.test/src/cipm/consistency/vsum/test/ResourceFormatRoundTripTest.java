@@ -0,0 +1,115 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.palladiosimulator.pcm.repository.BasicComponent;
+import org.palladiosimulator.pcm.repository.OperationInterface;
+import org.palladiosimulator.pcm.repository.OperationProvidedRole;
+import org.palladiosimulator.pcm.repository.OperationSignature;
+import org.palladiosimulator.pcm.repository.Repository;
+import org.palladiosimulator.pcm.repository.RepositoryFactory;
+
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModelFactory;
+import cipm.consistency.vsum.BinaryResourceSupport;
+import cipm.consistency.vsum.ResourceFormatMigration;
+
+/**
+ * Tests that models are equal after they are saved and loaded in XMI and in EMF's binary resource encoding.
+ * 
+ * @author Martin Armbruster
+ */
+public class ResourceFormatRoundTripTest {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testRepositoryRoundTrip() throws IOException {
+		assertRoundTrip(createRepository(), "Repository", "repository");
+	}
+
+	@Test
+	public void testInstrumentationModelRoundTrip() throws IOException {
+		InstrumentationModel im = InstrumentationModelFactory.eINSTANCE.createInstrumentationModel();
+		assertRoundTrip(im, "InstrumentationModel", "imm");
+	}
+
+	@Test
+	public void testMigrationBetweenFormats() throws IOException {
+		Repository repository = createRepository();
+		Path file = tempDir.resolve("Migrated.repository");
+		save(repository, file, false);
+		assertFalse(BinaryResourceSupport.isBinary(file));
+
+		ResourceFormatMigration.convert(file, true);
+		assertTrue(BinaryResourceSupport.isBinary(file));
+		assertTrue(EcoreUtil.equals(repository, loadRoot(file)));
+
+		ResourceFormatMigration.convert(file, false);
+		assertFalse(BinaryResourceSupport.isBinary(file));
+		assertTrue(EcoreUtil.equals(repository, loadRoot(file)));
+	}
+
+	private void assertRoundTrip(EObject root, String name, String extension) throws IOException {
+		Path xmiFile = tempDir.resolve(name + "-xmi." + extension);
+		Path binaryFile = tempDir.resolve(name + "-binary." + extension);
+		save(root, xmiFile, false);
+		save(root, binaryFile, true);
+		assertFalse(BinaryResourceSupport.isBinary(xmiFile));
+		assertTrue(BinaryResourceSupport.isBinary(binaryFile));
+
+		EObject fromXmi = loadRoot(xmiFile);
+		EObject fromBinary = loadRoot(binaryFile);
+		assertTrue(EcoreUtil.equals(root, fromXmi));
+		assertTrue(EcoreUtil.equals(root, fromBinary));
+		assertTrue(EcoreUtil.equals(fromXmi, fromBinary));
+	}
+
+	private Repository createRepository() {
+		RepositoryFactory factory = RepositoryFactory.eINSTANCE;
+		Repository repository = factory.createRepository();
+		repository.setEntityName("RoundTripRepository");
+		OperationInterface operationInterface = factory.createOperationInterface();
+		operationInterface.setEntityName("IService");
+		OperationSignature signature = factory.createOperationSignature();
+		signature.setEntityName("serve");
+		operationInterface.getSignatures__OperationInterface().add(signature);
+		repository.getInterfaces__Repository().add(operationInterface);
+		BasicComponent component = factory.createBasicComponent();
+		component.setEntityName("Service");
+		OperationProvidedRole role = factory.createOperationProvidedRole();
+		role.setEntityName("ProvidedIService");
+		role.setProvidedInterface__OperationProvidedRole(operationInterface);
+		component.getProvidedRoles_InterfaceProvidingEntity().add(role);
+		repository.getComponents__Repository().add(component);
+		return repository;
+	}
+
+	private void save(EObject root, Path file, boolean binary) throws IOException {
+		XMLResource resource = new XMIResourceImpl(URI.createFileURI(file.toAbsolutePath().toString()));
+		new ResourceSetImpl().getResources().add(resource);
+		resource.getContents().add(EcoreUtil.copy(root));
+		BinaryResourceSupport.setBinary(resource, binary);
+		resource.save(null);
+	}
+
+	private EObject loadRoot(Path file) throws IOException {
+		Resource resource = ResourceFormatMigration.load(new ResourceSetImpl(), file);
+		assertEquals(1, resource.getContents().size());
+		return resource.getContents().get(0);
+	}
+}
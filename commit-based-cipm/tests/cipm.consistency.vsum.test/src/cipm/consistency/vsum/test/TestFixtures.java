@@ -0,0 +1,107 @@
+package cipm.consistency.vsum.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.emftext.language.java.classifiers.ClassifiersFactory;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.ContainersFactory;
+
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+
+/**
+ * Creates the settings and the minimal Java models which are shared by the tests.
+ *
+ * @author Martin Armbruster
+ */
+final class TestFixtures {
+	private TestFixtures() {
+	}
+
+	/**
+	 * Creates the settings for the parsing of Java code in the tests. The test code is excluded, and the modules are
+	 * classified without user interaction.
+	 *
+	 * @return the settings.
+	 */
+	static Properties createParsingSettings() {
+		Properties settings = new Properties();
+		settings.setProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS, ".*?/src/test/.*?");
+		settings.setProperty(SettingKeys.HEADLESS_MODULE_CLASSIFICATION, Boolean.TRUE.toString());
+		return settings;
+	}
+
+	/**
+	 * Stores settings and initializes the global settings container with them.
+	 *
+	 * @param settings     the settings.
+	 * @param settingsPath the file in which the settings are stored.
+	 * @throws IOException if the settings cannot be stored.
+	 */
+	static void initializeSettings(Properties settings, Path settingsPath) throws IOException {
+		try (OutputStream out = Files.newOutputStream(settingsPath)) {
+			settings.store(out, null);
+		}
+		CommitIntegrationSettingsContainer.initialize(settingsPath);
+	}
+
+	/**
+	 * Creates a compilation unit with one class.
+	 *
+	 * @param packageName the qualified name of the package.
+	 * @param className   name of the class.
+	 * @return the compilation unit.
+	 */
+	static CompilationUnit createCompilationUnit(String packageName, String className) {
+		CompilationUnit cu = ContainersFactory.eINSTANCE.createCompilationUnit();
+		for (String namespace : packageName.split("\\.")) {
+			cu.getNamespaces().add(namespace);
+		}
+		cu.setName(packageName + "." + className + ".java");
+		org.emftext.language.java.classifiers.Class cls = ClassifiersFactory.eINSTANCE.createClass();
+		cls.setName(className);
+		cu.getClassifiers().add(cls);
+		return cu;
+	}
+
+	/**
+	 * Creates a Resource which contains a compilation unit with one class.
+	 *
+	 * @param uri         URI of the Resource.
+	 * @param packageName the qualified name of the package.
+	 * @param className   name of the class.
+	 * @return the Resource. It is not contained in a ResourceSet.
+	 */
+	static Resource createResource(URI uri, String packageName, String className) {
+		Resource resource = new XMIResourceImpl(uri);
+		resource.getContents().add(createCompilationUnit(packageName, className));
+		return resource;
+	}
+
+	/**
+	 * Returns the first class of the compilation unit in a Resource.
+	 *
+	 * @param resource the Resource.
+	 * @return the class.
+	 */
+	static org.emftext.language.java.classifiers.Class getFirstClass(Resource resource) {
+		return getFirstClass((CompilationUnit) resource.getContents().get(0));
+	}
+
+	/**
+	 * Returns the first class of a compilation unit.
+	 *
+	 * @param cu the compilation unit.
+	 * @return the class.
+	 */
+	static org.emftext.language.java.classifiers.Class getFirstClass(CompilationUnit cu) {
+		return (org.emftext.language.java.classifiers.Class) cu.getClassifiers().get(0);
+	}
+}
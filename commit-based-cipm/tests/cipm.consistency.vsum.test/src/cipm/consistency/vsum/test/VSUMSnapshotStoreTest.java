@@ -0,0 +1,118 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.vsum.FileLayout;
+import cipm.consistency.vsum.VSUMSnapshotStore;
+
+/**
+ * Tests that the {@link VSUMSnapshotStore} restores the state of a file layout and removes the stored files which
+ * no snapshot contains anymore.
+ *
+ * @author Martin Armbruster
+ */
+public class VSUMSnapshotStoreTest {
+	@TempDir
+	Path tempDir;
+	private Path storePath;
+	private FileLayout files;
+	private VSUMSnapshotStore store;
+	private Path vsumFile;
+	private Path repositoryFile;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		storePath = tempDir.resolve("store");
+		files = new FileLayout(tempDir.resolve("layout"));
+		store = new VSUMSnapshotStore(storePath);
+		vsumFile = files.getVsumPath().resolve("correspondences.correspondence");
+		repositoryFile = files.getPcmRepositoryPath();
+		write(vsumFile, "first correspondences");
+		write(repositoryFile, "first repository");
+	}
+
+	@Test
+	public void testCreateAndRestore() throws IOException {
+		store.create("first", files);
+		write(vsumFile, "second correspondences");
+		Files.delete(repositoryFile);
+		write(files.getImPath(), "instrumentation model");
+		store.create("second", files);
+		assertEquals(List.of("first", "second"), store.getSnapshots());
+
+		store.restore("first", files);
+		assertEquals("first correspondences", Files.readString(vsumFile));
+		assertEquals("first repository", Files.readString(repositoryFile));
+		assertFalse(Files.exists(files.getImPath()));
+
+		store.restore("second", files);
+		assertEquals("second correspondences", Files.readString(vsumFile));
+		assertFalse(Files.exists(repositoryFile));
+		assertEquals("instrumentation model", Files.readString(files.getImPath()));
+	}
+
+	@Test
+	public void testRewriteWithSameSizeAndModificationTime() throws IOException {
+		store.create("first", files);
+		// The file is rewritten within the granularity of the modification times.
+		FileTime modified = Files.getLastModifiedTime(vsumFile);
+		write(vsumFile, "other correspondences");
+		Files.setLastModifiedTime(vsumFile, modified);
+		store.create("second", files);
+
+		store.restore("first", files);
+		assertEquals("first correspondences", Files.readString(vsumFile));
+		store.restore("second", files);
+		assertEquals("other correspondences", Files.readString(vsumFile));
+	}
+
+	@Test
+	public void testDeleteRemovesUnreferencedFiles() throws IOException {
+		store.create("first", files);
+		write(vsumFile, "second correspondences");
+		store.create("second", files);
+		assertEquals(3, countStoredFiles());
+
+		store.delete("first");
+		assertFalse(store.contains("first"));
+		assertTrue(store.contains("second"));
+		assertEquals(List.of("second"), store.getSnapshots());
+		// The unchanged repository is shared with the remaining snapshot.
+		assertEquals(2, countStoredFiles());
+		assertThrows(IOException.class, () -> store.restore("first", files));
+
+		store.restore("second", files);
+		assertEquals("second correspondences", Files.readString(vsumFile));
+		assertEquals("first repository", Files.readString(repositoryFile));
+	}
+
+	@Test
+	public void testInvalidIdentifier() {
+		assertThrows(IllegalArgumentException.class, () -> store.create("../first", files));
+	}
+
+	private long countStoredFiles() throws IOException {
+		try (Stream<Path> stream = Files.walk(storePath.resolve("objects"))) {
+			return stream.filter(Files::isRegularFile).count();
+		}
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+}